@@ -0,0 +1,345 @@
+package application;
+
+import database.BookInserter;
+import database.ImportCheckpoint;
+import database.InsertStatistics;
+import domain.Book;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+
+/**
+ * This class imports a text file of books into the library database as a pipeline.
+ * A reader thread reads and parses lines into batches and hands them to the importing
+ * thread through a bounded queue, where they are written by a BookInserter. At most
+ * a few batches are held in memory at once, whatever the size of the file. The reader
+ * thread uses a MappedBookReader, or a ParallelBookReader with a parallelism above one.
+ * <p>
+ * Batches carry the position in the file after their last line where it is known,
+ * which the BookInserter saves with each commit when the import is checkpointed.
+ * An import started from a checkpoint reads the file from the saved position.
+ * <p>
+ * A pipeline runs one import at a time and must not be shared between threads.
+ * @author Elise Kidroske
+ */
+public class BookImportPipeline {
+    /** Number of books parsed into each batch unless another size is provided.*/
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    /** Number of parsed batches that may wait for the inserter unless another capacity is provided.*/
+    public static final int DEFAULT_QUEUE_CAPACITY = 4;
+    /** Line number of a batch whose position in the file is not known.*/
+    private static final long NO_POSITION = -1;
+    /** Batch marking the end of the file. Compared by identity.*/
+    private static final Batch END_OF_FILE = new Batch(new ArrayList<>(), ImportCheckpoint.UNKNOWN_OFFSET, NO_POSITION);
+
+    /** Encoding of the text file.*/
+    private final Charset encoding;
+    /** Number of books per batch.*/
+    private final int batchSize;
+    /** Number of batches the queue holds.*/
+    private final int queueCapacity;
+    /** Number of threads parsing the file.*/
+    private final int parallelism;
+
+    /** Number of lines read by the reader thread, including the lines before the checkpoint.*/
+    private volatile long linesRead;
+    /** Number of lines the reader thread could not convert into books.*/
+    private volatile long linesRejected;
+    /** Error that stopped the reader thread, if any.*/
+    private volatile IOException readFailure;
+
+    public BookImportPipeline(Charset encoding) {
+        this(encoding, DEFAULT_BATCH_SIZE, DEFAULT_QUEUE_CAPACITY, 1);
+    }
+
+    public BookImportPipeline(Charset encoding, int batchSize, int queueCapacity, int parallelism) {
+        this.encoding = encoding;
+        this.batchSize = Math.max(1, batchSize);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Reads every book from a text file and inserts it with the provided inserter.
+     * Books are committed as the inserter's commit interval is reached, so books
+     * committed before a failure or cancellation remain in the library database.
+     * @param path Path to the text file.
+     * @param inserter BookInserter the books are written to. It is not closed.
+     * @param token CancellationToken checked before each batch is inserted.
+     * @param reporter ProgressReporter receiving progress after each batch is inserted.
+     * @return InsertStatistics describing the import.
+     * @throws IOException Thrown if the file cannot be read.
+     * @throws SQLException Thrown if the books cannot be written or committed.
+     * @throws InterruptedException Thrown if the importing thread is interrupted.
+     * @throws CancellationException Thrown if the token is cancelled.
+     */
+    public InsertStatistics run(Path path, BookInserter inserter, CancellationToken token, ProgressReporter reporter)
+            throws IOException, SQLException, InterruptedException {
+        return run(path, null, inserter, token, reporter);
+    }
+
+    /**
+     * Reads the books of a text file from a checkpoint and inserts them with the provided
+     * inserter, marking the position reached after each batch whose position is known.
+     * Line counts include the lines before the checkpoint, while rejected lines and
+     * inserted books are counted from it.
+     * @param path Path to the text file.
+     * @param checkpoint ImportCheckpoint whose position the file is read from, or null to read the whole file.
+     * @param inserter BookInserter the books are written to. It is not closed.
+     * @param token CancellationToken checked before each batch is inserted.
+     * @param reporter ProgressReporter receiving progress after each batch is inserted.
+     * @return InsertStatistics describing the import.
+     * @throws IOException Thrown if the file cannot be read.
+     * @throws SQLException Thrown if the books cannot be written or committed.
+     * @throws InterruptedException Thrown if the importing thread is interrupted.
+     * @throws CancellationException Thrown if the token is cancelled.
+     */
+    public InsertStatistics run(Path path, ImportCheckpoint checkpoint, BookInserter inserter,
+                                CancellationToken token, ProgressReporter reporter)
+            throws IOException, SQLException, InterruptedException {
+        BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(queueCapacity);
+        long startOffset = checkpoint == null ? 0 : checkpoint.getByteOffset();
+        long startLine = checkpoint == null ? 0 : checkpoint.getLineNumber();
+        linesRead = startLine;
+        linesRejected = 0;
+        readFailure = null;
+
+        Thread reader = new Thread(() -> readBatches(path, startOffset, startLine, queue), "book-import-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        try {
+            Batch batch = queue.take();
+            while (batch != END_OF_FILE) {
+                token.throwIfCancelled();
+                inserter.addAll(batch.books);
+                if (batch.line != NO_POSITION) {
+                    inserter.markPosition(batch.offset, batch.line);
+                }
+                reporter.report(linesRead, linesRejected, inserter.getStatistics().getRowsInserted());
+                batch = queue.take();
+            }
+
+            reader.join();
+            if (readFailure != null) {
+                throw readFailure;
+            }
+
+            token.throwIfCancelled();
+            InsertStatistics statistics = inserter.finish();
+            reporter.finish(linesRead, linesRejected, statistics.getRowsInserted());
+            return statistics;
+        } finally {
+            // Stop the reader if the inserter failed while it was still reading
+            if (reader.isAlive()) {
+                reader.interrupt();
+                reader.join();
+            }
+        }
+    }
+
+    /**
+     * Reads and parses the file on the reader thread, handing each full batch to the
+     * queue. Uncompressed files in encodings that can be scanned as bytes are parsed in
+     * mapped windows, on several threads if the parallelism allows it. Other files,
+     * including gzip compressed files, are read line by line, as are files whose
+     * checkpoint only records a line number.
+     * @param path Path to the text file.
+     * @param startOffset Long position in bytes of the first line to read, or ImportCheckpoint.UNKNOWN_OFFSET.
+     * @param startLine Long number of lines before the first line to read.
+     * @param queue BlockingQueue of parsed batches shared with the importing thread.
+     */
+    private void readBatches(Path path, long startOffset, long startLine, BlockingQueue<Batch> queue) {
+        BatchHandler batches = new BatchHandler(queue);
+
+        try {
+            try {
+                boolean mappable = TextFiles.canMap(path, encoding) &&
+                        startOffset != ImportCheckpoint.UNKNOWN_OFFSET;
+
+                if (parallelism > 1 && mappable) {
+                    ParallelBookReader reader = new ParallelBookReader(encoding, parallelism);
+                    reader.read(path, startOffset, books -> {
+                        for (Book book : books) {
+                            batches.accept(book);
+                        }
+                        linesRead = startLine + reader.getLinesRead();
+                        linesRejected = reader.getLinesRejected();
+                        // Ranges end between lines, so the end of each range is a position to resume from
+                        batches.flush(reader.getPosition(), linesRead);
+                    });
+                    linesRead = startLine + reader.getLinesRead();
+                    linesRejected = reader.getLinesRejected();
+                } else if (mappable) {
+                    MappedBookReader reader = new MappedBookReader(encoding);
+                    batches.afterFlush = () -> {
+                        linesRead = startLine + reader.getLinesRead();
+                        linesRejected = reader.getLinesRejected();
+                    };
+                    reader.read(path, startOffset, book ->
+                            batches.accept(book, reader.getPosition(), startLine + reader.getLinesRead()));
+                    linesRead = startLine + reader.getLinesRead();
+                    linesRejected = reader.getLinesRejected();
+                } else {
+                    readLines(path, startLine, batches);
+                }
+            } catch (IOException e) {
+                readFailure = e;
+            }
+
+            if (readFailure == null) {
+                batches.flush();
+            }
+            queue.put(END_OF_FILE);
+        } catch (InterruptedException ignored) {
+            // The importing thread stopped and no longer reads from the queue
+        }
+    }
+
+    /**
+     * Reads and parses the file line by line with a BufferedReader, decompressing it if
+     * needed. Batches are marked with line numbers, as byte offsets are not known.
+     * @param path Path to the text file.
+     * @param startLine Long number of lines skipped before parsing.
+     * @param batches BatchHandler receiving each book.
+     * @throws IOException Thrown if the file cannot be read.
+     * @throws InterruptedException Thrown if the reader thread is interrupted.
+     */
+    private void readLines(Path path, long startLine, BatchHandler batches) throws IOException, InterruptedException {
+        BookLineParser parser = new BookLineParser();
+
+        try (BufferedReader reader = TextFiles.newBufferedReader(path, encoding)) {
+            for (long skipped = 0; skipped < startLine && reader.readLine() != null; skipped++) {
+                // Lines before the checkpoint were imported by an earlier run
+            }
+
+            String line = reader.readLine();
+
+            while (line != null) {
+                linesRead++;
+
+                Book book = parser.parse(line);
+                if (book != null) {
+                    batches.accept(book, ImportCheckpoint.UNKNOWN_OFFSET, linesRead);
+                } else {
+                    linesRejected++;
+                }
+
+                line = reader.readLine();
+            }
+        }
+    }
+
+    /**
+     * Counts the lines read by the last import.
+     * @return Long number of lines read.
+     */
+    public long getLinesRead() {
+        return linesRead;
+    }
+
+    /**
+     * Counts the lines of the last import that could not be converted into books.
+     * @return Long number of rejected lines.
+     */
+    public long getLinesRejected() {
+        return linesRejected;
+    }
+
+    /**
+     * Books parsed from the file together with the position after the last of their lines.
+     */
+    private static class Batch {
+        /** Books in the order they appear in the file.*/
+        private final List<Book> books;
+        /** Position in bytes after the last line of the batch, or ImportCheckpoint.UNKNOWN_OFFSET.*/
+        private final long offset;
+        /** Number of lines up to and including the last line of the batch, or NO_POSITION.*/
+        private final long line;
+
+        private Batch(List<Book> books, long offset, long line) {
+            this.books = books;
+            this.offset = offset;
+            this.line = line;
+        }
+    }
+
+    /**
+     * Groups books into batches of the pipeline's batch size and hands full batches to the queue.
+     */
+    private class BatchHandler {
+        /** Queue shared with the importing thread.*/
+        private final BlockingQueue<Batch> queue;
+        /** Batch being filled.*/
+        private List<Book> batch = new ArrayList<>(batchSize);
+        /** Runs after each batch is handed to the queue, such as to publish line counts.*/
+        private Runnable afterFlush = () -> { };
+        /** Position in bytes after the line of the last book added, or ImportCheckpoint.UNKNOWN_OFFSET.*/
+        private long offset = ImportCheckpoint.UNKNOWN_OFFSET;
+        /** Number of lines up to and including the line of the last book added, or NO_POSITION.*/
+        private long line = NO_POSITION;
+
+        private BatchHandler(BlockingQueue<Batch> queue) {
+            this.queue = queue;
+        }
+
+        /**
+         * Adds a book whose position in the file is not known to the batch being filled.
+         * @param book Book read from the file.
+         * @throws InterruptedException Thrown if the reader thread is interrupted while waiting.
+         */
+        private void accept(Book book) throws InterruptedException {
+            accept(book, ImportCheckpoint.UNKNOWN_OFFSET, NO_POSITION);
+        }
+
+        /**
+         * Adds a book to the batch being filled, handing the batch to the queue once it is full.
+         * @param book Book read from the file.
+         * @param offset Long position in bytes after the book's line, or ImportCheckpoint.UNKNOWN_OFFSET.
+         * @param line Long number of lines up to and including the book's line, or NO_POSITION.
+         * @throws InterruptedException Thrown if the reader thread is interrupted while waiting.
+         */
+        private void accept(Book book, long offset, long line) throws InterruptedException {
+            batch.add(book);
+            this.offset = offset;
+            this.line = line;
+
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        /**
+         * Hands the batch being filled to the queue, if it contains any books.
+         * @throws InterruptedException Thrown if the reader thread is interrupted while waiting.
+         */
+        private void flush() throws InterruptedException {
+            if (!batch.isEmpty()) {
+                flush(offset, line);
+            }
+        }
+
+        /**
+         * Hands the batch being filled to the queue marked with a position, even if it
+         * is empty, so the importing thread may commit at that position.
+         * @param offset Long position in bytes after the last line read, or ImportCheckpoint.UNKNOWN_OFFSET.
+         * @param line Long number of lines read, or NO_POSITION.
+         * @throws InterruptedException Thrown if the reader thread is interrupted while waiting.
+         */
+        private void flush(long offset, long line) throws InterruptedException {
+            queue.put(new Batch(batch, offset, line));
+            batch = new ArrayList<>(batchSize);
+            this.offset = ImportCheckpoint.UNKNOWN_OFFSET;
+            this.line = NO_POSITION;
+            afterFlush.run();
+        }
+    }
+}
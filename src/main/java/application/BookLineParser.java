@@ -0,0 +1,220 @@
+package application;
+
+import domain.Book;
+import domain.BookStatus;
+
+/**
+ * This class converts lines of text from user-provided files into Book objects.
+ * Each line is validated and split into fields in a single pass without regular
+ * expressions, and due dates are checked without throwing exceptions.
+ * <p>
+ * A line follows the format TITLE,AUTHOR,GENRE,CHECKED_IN/CHECKED_OUT,DUE_DATE.
+ * It must contain at least five comma separated fields, the first four fields must
+ * not be empty, and the due date may be left empty. The author, genre, and status
+ * must not contain semicolons. The title may contain semicolons as long as it does
+ * not end with one, as the regular expression this parser replaced accepted. Due dates
+ * that are not valid YYYY-MM-DD dates are ignored.
+ * <p>
+ * A parser reuses internal state between lines and must not be shared between threads.
+ * @author Elise Kidroske
+ */
+public class BookLineParser {
+    /** Number of fields a valid line starts with, including the due date.*/
+    private static final int FIELD_COUNT = 5;
+    /** Length of a date in YYYY-MM-DD format.*/
+    private static final int DATE_LENGTH = 10;
+
+    /** Start and end index of each of the first five fields of the line being parsed.*/
+    private final int[] fieldBounds = new int[FIELD_COUNT * 2];
+
+    /**
+     * Converts a line of text into a Book object.
+     * @param line CharSequence line of text without its line terminator.
+     * @return Book object from the provided line, or null if the line is not valid.
+     */
+    public Book parse(CharSequence line) {
+        return parse(line, 0, line.length());
+    }
+
+    /**
+     * Converts part of a character sequence into a Book object.
+     * @param text CharSequence containing the line.
+     * @param start Int index of the first character of the line.
+     * @param end Int index after the last character of the line.
+     * @return Book object from the provided line, or null if the line is not valid.
+     */
+    public Book parse(CharSequence text, int start, int end) {
+        int field = 0;
+        int fieldStart = start;
+        int lastTitleSemicolon = -1;
+
+        for (int i = start; i < end && field < FIELD_COUNT; i++) {
+            char c = text.charAt(i);
+
+            if (c == ',') {
+                if (field < FIELD_COUNT - 1 && i == fieldStart) {
+                    return null;
+                }
+                // The title must keep at least one character after its last semicolon
+                if (field == 0 && lastTitleSemicolon == i - 1) {
+                    return null;
+                }
+
+                fieldBounds[field * 2] = fieldStart;
+                fieldBounds[field * 2 + 1] = i;
+                field++;
+                fieldStart = i + 1;
+            } else if (c == ';' && field == 0) {
+                lastTitleSemicolon = i;
+            } else if (c == ';' && field < FIELD_COUNT - 1) {
+                return null;
+            }
+        }
+
+        if (field < FIELD_COUNT - 1) {
+            return null;
+        }
+
+        if (field == FIELD_COUNT - 1) {
+            // The due date is the last field on the line
+            fieldBounds[field * 2] = fieldStart;
+            fieldBounds[field * 2 + 1] = end;
+        }
+
+        BookStatus bookStatus = parseBookStatus(text, fieldBounds[6], fieldBounds[7]);
+        if (bookStatus == null) {
+            return null;
+        }
+
+        String title = decodeField(text, fieldBounds[0], fieldBounds[1]);
+        String author = decodeField(text, fieldBounds[2], fieldBounds[3]);
+        String genre = decodeField(text, fieldBounds[4], fieldBounds[5]);
+
+        if (isValidDate(text, fieldBounds[8], fieldBounds[9])) {
+            String dueDate = decodeField(text, fieldBounds[8], fieldBounds[9]);
+            return new Book(-1, title, author, genre, bookStatus, dueDate);
+        }
+
+        return new Book(-1, title, author, genre, bookStatus);
+    }
+
+    /**
+     * Creates the String value of a field of a valid line. Only fields kept on the
+     * Book are converted, so a subclass reading undecoded text only decodes those.
+     * @param text CharSequence containing the field.
+     * @param start Int index of the first character of the field.
+     * @param end Int index after the last character of the field.
+     * @return String value of the field.
+     */
+    protected String decodeField(CharSequence text, int start, int end) {
+        return text.subSequence(start, end).toString();
+    }
+
+    /**
+     * Converts a field into a BookStatus without regard to letter case.
+     * @param text CharSequence containing the field.
+     * @param start Int index of the first character of the field.
+     * @param end Int index after the last character of the field.
+     * @return BookStatus matching the field, or null if it matches neither status.
+     */
+    static BookStatus parseBookStatus(CharSequence text, int start, int end) {
+        if (regionEqualsIgnoreCase(text, start, end, "CHECKED_OUT")) {
+            return BookStatus.CHECKED_OUT;
+        }
+        if (regionEqualsIgnoreCase(text, start, end, "CHECKED_IN")) {
+            return BookStatus.CHECKED_IN;
+        }
+        return null;
+    }
+
+    /**
+     * Determines whether a field is a valid date in YYYY-MM-DD format.
+     * @param text CharSequence containing the field.
+     * @param start Int index of the first character of the field.
+     * @param end Int index after the last character of the field.
+     * @return True if the field is a valid calendar date, false otherwise.
+     */
+    static boolean isValidDate(CharSequence text, int start, int end) {
+        if (end - start != DATE_LENGTH || text.charAt(start + 4) != '-' || text.charAt(start + 7) != '-') {
+            return false;
+        }
+
+        int year = parseDigits(text, start, start + 4);
+        int month = parseDigits(text, start + 5, start + 7);
+        int day = parseDigits(text, start + 8, start + 10);
+
+        if (year < 0 || month < 1 || month > 12 || day < 1) {
+            return false;
+        }
+
+        return day <= lengthOfMonth(year, month);
+    }
+
+    /**
+     * Parses a run of decimal digits.
+     * @param text CharSequence containing the digits.
+     * @param start Int index of the first digit.
+     * @param end Int index after the last digit.
+     * @return Int value of the digits, or -1 if any character is not a digit.
+     */
+    private static int parseDigits(CharSequence text, int start, int end) {
+        int value = 0;
+
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+
+        return value;
+    }
+
+    /**
+     * Finds the number of days in a month.
+     * @param year Int year, used to account for leap years.
+     * @param month Int month from 1 to 12.
+     * @return Int number of days in the month.
+     */
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leapYear = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leapYear ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Compares a region of text with an upper case ASCII keyword without regard to letter case.
+     * @param text CharSequence containing the region.
+     * @param start Int index of the first character of the region.
+     * @param end Int index after the last character of the region.
+     * @param keyword String upper case keyword to compare against.
+     * @return True if the region matches the keyword, false otherwise.
+     */
+    private static boolean regionEqualsIgnoreCase(CharSequence text, int start, int end, String keyword) {
+        if (end - start != keyword.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < keyword.length(); i++) {
+            char c = text.charAt(start + i);
+            if (c >= 'a' && c <= 'z') {
+                c = (char) (c - ('a' - 'A'));
+            }
+            if (c != keyword.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,81 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * This class lets the user stop a long running operation such as an import.
+ * The operation checks the token between units of work, and listeners registered
+ * with onCancel can interrupt work that is blocked, such as a running query.
+ * A token is shared between the thread cancelling and the thread doing the work.
+ * @author Elise Kidroske
+ */
+public class CancellationToken {
+    /** Whether the operation has been cancelled.*/
+    private volatile boolean cancelled;
+    /** Listeners run once the operation is cancelled.*/
+    private final List<Runnable> listeners = new ArrayList<>();
+
+    /**
+     * Cancels the operation and runs every registered listener once.
+     */
+    public void cancel() {
+        List<Runnable> listenersToRun;
+
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            listenersToRun = new ArrayList<>(listeners);
+            listeners.clear();
+        }
+
+        for (Runnable listener : listenersToRun) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Determines whether the operation has been cancelled.
+     * @return True if cancel was called, false otherwise.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Stops the calling operation if it has been cancelled.
+     * @throws CancellationException Thrown if cancel was called.
+     */
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new CancellationException("The operation was cancelled.");
+        }
+    }
+
+    /**
+     * Registers a listener to run once the operation is cancelled. The listener runs
+     * immediately on the calling thread if the operation is already cancelled.
+     * @param listener Runnable to run on the thread calling cancel.
+     */
+    public void onCancel(Runnable listener) {
+        synchronized (this) {
+            if (!cancelled) {
+                listeners.add(listener);
+                return;
+            }
+        }
+
+        listener.run();
+    }
+
+    /**
+     * Removes a listener that is no longer needed, such as one cancelling a query that has finished.
+     * @param listener Runnable previously registered with onCancel.
+     */
+    public synchronized void removeOnCancel(Runnable listener) {
+        listeners.remove(listener);
+    }
+}
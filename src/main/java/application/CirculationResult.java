@@ -0,0 +1,35 @@
+package application;
+
+import domain.Book;
+
+/**
+ * This class represents the outcome of checking a single book in or out as part
+ * of a batch of books.
+ * @author Elise Kidroske
+ */
+public class CirculationResult {
+    /** The book as saved if successful, otherwise the book as provided.*/
+    private final Book book;
+    /** Whether the book's new status was saved to the library database.*/
+    private final boolean successful;
+    /** Explains why the book could not be checked in or out. Empty if successful.*/
+    private final String message;
+
+    public CirculationResult(Book book, boolean successful, String message) {
+        this.book = book;
+        this.successful = successful;
+        this.message = message;
+    }
+
+    public Book getBook() {
+        return book;
+    }
+
+    public boolean isSuccessful() {
+        return successful;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,98 @@
+package application;
+
+import database.SQLForm;
+import domain.Book;
+
+import java.util.ArrayList;
+
+/**
+ * This class summarizes a text file or external database table the user provided
+ * before it is imported. It keeps only the first books of the source for display,
+ * while the counts cover every line of the file or row of the table.
+ * @author Elise Kidroske
+ */
+public class ImportPreview {
+    /** String absolute path to the text file, or name of the table.*/
+    private final String pathString;
+    /** First valid books of the file.*/
+    private final ArrayList<Book> books;
+    /** Number of lines read from the file, or rows in the table.*/
+    private final long linesRead;
+    /** Number of lines that could not be converted into books.*/
+    private final long linesRejected;
+    /** Number of lines an earlier, unfinished import of the file committed, or 0.*/
+    private final long resumeLine;
+    /** Connection information of the external database, or null if the source is a text file.*/
+    private final SQLForm form;
+
+    public ImportPreview(String pathString, ArrayList<Book> books, long linesRead, long linesRejected) {
+        this(pathString, books, linesRead, linesRejected, 0);
+    }
+
+    public ImportPreview(String pathString, ArrayList<Book> books, long linesRead, long linesRejected,
+                         long resumeLine) {
+        this.pathString = pathString;
+        this.books = books;
+        this.linesRead = linesRead;
+        this.linesRejected = linesRejected;
+        this.resumeLine = resumeLine;
+        this.form = null;
+    }
+
+    public ImportPreview(SQLForm form, ArrayList<Book> books, long rowCount) {
+        this.pathString = form.getTableName();
+        this.books = books;
+        this.linesRead = rowCount;
+        this.linesRejected = 0;
+        this.resumeLine = 0;
+        this.form = form;
+    }
+
+    public String getPathString() {
+        return pathString;
+    }
+
+    public ArrayList<Book> getBooks() {
+        return books;
+    }
+
+    public long getLinesRead() {
+        return linesRead;
+    }
+
+    public long getLinesRejected() {
+        return linesRejected;
+    }
+
+    public long getResumeLine() {
+        return resumeLine;
+    }
+
+    public SQLForm getForm() {
+        return form;
+    }
+
+    /**
+     * Counts the books the file contains.
+     * @return Long number of valid lines in the file.
+     */
+    public long getValidBooks() {
+        return linesRead - linesRejected;
+    }
+
+    @Override
+    public String toString() {
+        if (form != null) {
+            return String.format("Showing %,d of %,d rows from table %s.", books.size(), linesRead, pathString);
+        }
+
+        String summary = String.format("Showing %,d of %,d books.\n%,d lines read, %,d lines rejected.",
+                books.size(), getValidBooks(), linesRead, linesRejected);
+
+        if (resumeLine > 0) {
+            summary += String.format("\nAn earlier import of this file stopped after line %,d and will resume there.",
+                    resumeLine);
+        }
+        return summary;
+    }
+}
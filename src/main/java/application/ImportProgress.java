@@ -0,0 +1,86 @@
+package application;
+
+/**
+ * This class reports how far an import into the library database has come.
+ * Each instance is a snapshot and does not change.
+ * @author Elise Kidroske
+ */
+public class ImportProgress {
+    /** Value returned by getFraction when the number of rows to import is not known.*/
+    public static final double UNKNOWN_FRACTION = -1;
+
+    /** Number of rows read from the source.*/
+    private final long rowsRead;
+    /** Number of rows that could not be converted into books.*/
+    private final long rowsRejected;
+    /** Number of books committed to the library database.*/
+    private final long rowsInserted;
+    /** Number of rows the source contains, or -1 if it is not known.*/
+    private final long totalRows;
+    /** Time in nanoseconds since the import started.*/
+    private final long elapsedNanos;
+    /** Whether the import has stopped, successfully or not.*/
+    private final boolean finished;
+
+    public ImportProgress(long rowsRead, long rowsRejected, long rowsInserted, long totalRows,
+                          long elapsedNanos, boolean finished) {
+        this.rowsRead = rowsRead;
+        this.rowsRejected = rowsRejected;
+        this.rowsInserted = rowsInserted;
+        this.totalRows = totalRows;
+        this.elapsedNanos = elapsedNanos;
+        this.finished = finished;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getRowsRejected() {
+        return rowsRejected;
+    }
+
+    public long getRowsInserted() {
+        return rowsInserted;
+    }
+
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Calculates the rate rows are read at.
+     * @return Double number of rows read per second.
+     */
+    public double getRowsPerSecond() {
+        if (elapsedNanos <= 0) {
+            return 0;
+        }
+        return rowsRead / (elapsedNanos / 1_000_000_000.0);
+    }
+
+    /**
+     * Calculates how much of the source has been read.
+     * @return Double from 0 to 1, or UNKNOWN_FRACTION if the number of rows is not known.
+     */
+    public double getFraction() {
+        if (totalRows <= 0) {
+            return UNKNOWN_FRACTION;
+        }
+        return Math.min(1.0, (double) rowsRead / totalRows);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d read, %,d rejected, %,d added (%,.0f rows/sec)",
+                rowsRead, rowsRejected, rowsInserted, getRowsPerSecond());
+    }
+}
@@ -1,9 +1,20 @@
 package application;
 
+import controller.BookChanges;
 import controller.IBookController;
+import database.AttachedBookImporter;
+import database.BookFilter;
+import database.BookFingerprintIndex;
+import database.BookInserter;
+import database.BookSynchronizer;
 import database.DatabaseManager;
+import database.ExternalConnectionCache;
 import database.ExternalSQLHandler;
+import database.ImportCheckpoint;
+import database.InsertStatistics;
 import database.SQLForm;
+import database.SQLSourceType;
+import database.SyncWatermark;
 import domain.Book;
 import domain.BookStatus;
 
@@ -14,29 +25,97 @@ import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.DateTimeException;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Represents the application layer of the library management system. Processes and
  * validates data from external files and passes them on for use. Handles exchanges
  * of information between the controller and database layers. Enforces business logic.
+ * Close the LibraryCore once it is no longer used to close its database connections.
  * @author Elise Kidroske
  */
-public class LibraryCore {
+public class LibraryCore implements AutoCloseable {
+    /** Number of books retrieved from the library database per query.*/
+    public static final int PAGE_SIZE = DatabaseManager.DEFAULT_PAGE_SIZE;
+    /** Number of books shown when previewing a file that is imported as a stream.*/
+    public static final int PREVIEW_SIZE = 100;
+    /** Size in bytes above which text files are imported as a stream instead of being read into memory.*/
+    public static final long DEFAULT_STREAMING_THRESHOLD = 8L * 1024 * 1024;
+    /** Number of rows above which external database tables are imported as a stream instead of being read into memory.*/
+    public static final long DEFAULT_DATABASE_STREAMING_THRESHOLD = 100_000;
+    /** System property overriding the size above which text files are imported as a stream.*/
+    public static final String STREAMING_THRESHOLD_PROPERTY = "library.import.streamingThreshold";
+    /** System property setting the number of threads parsing large text files.*/
+    public static final String PARALLELISM_PROPERTY = "library.import.parallelism";
+    /** System property enabling skipping imported books whose title and author are already in the library.*/
+    public static final String SKIP_DUPLICATES_PROPERTY = "library.import.skipDuplicates";
+    /** Number of key ranges an external database table with a key column is split into unless another number is provided.*/
+    public static final int DEFAULT_DATABASE_PARTITIONS = 8;
+    /** System property setting the number of key ranges an external database table with a key column is split into.*/
+    public static final String DATABASE_PARTITIONS_PROPERTY = "library.external.partitions";
+    /** System property setting the largest number of connections opened to an external database at once.*/
+    public static final String DATABASE_CONNECTIONS_PROPERTY = "library.external.maxConnections";
+    /** System property disabling attaching external SQLite databases to import large tables without reading their rows.*/
+    public static final String ATTACH_SQLITE_PROPERTY = "library.external.attachSqlite";
+    /** System property setting the number of seconds a query to an external database may run.*/
+    public static final String QUERY_TIMEOUT_PROPERTY = "library.external.queryTimeout";
 
     /** Handles direct interactions with the library database.*/
     private final DatabaseManager databaseManager;
     /** Encoding used for processing user-provided text files.*/
     private final Charset encoding;
+    /** Converts lines of user-provided text files into Book objects.*/
+    private final BookLineParser lineParser = new BookLineParser();
+    /** Size in bytes above which text files are imported as a stream.*/
+    private long streamingThreshold = Long.getLong(STREAMING_THRESHOLD_PROPERTY, DEFAULT_STREAMING_THRESHOLD);
+    /** Number of threads parsing text files larger than a single parallel range.*/
+    private int parallelism = Integer.getInteger(PARALLELISM_PROPERTY, Runtime.getRuntime().availableProcessors());
+    /** Number of rows above which external database tables are imported as a stream.*/
+    private long databaseStreamingThreshold = DEFAULT_DATABASE_STREAMING_THRESHOLD;
+    /** Whether imported books whose title and author are already in the library are skipped.*/
+    private boolean skipDuplicates = Boolean.getBoolean(SKIP_DUPLICATES_PROPERTY);
+    /** Number of key ranges read at once from external database tables with a key column.*/
+    private int databasePartitions = Integer.getInteger(DATABASE_PARTITIONS_PROPERTY, DEFAULT_DATABASE_PARTITIONS);
+    /** Largest number of connections opened to an external database at once.*/
+    private int databaseConnections = Integer.getInteger(DATABASE_CONNECTIONS_PROPERTY,
+            ExternalSQLHandler.DEFAULT_MAX_CONNECTIONS);
+    /** Number of seconds a query to an external database may run, or 0 for no limit.*/
+    private int queryTimeoutSeconds = Integer.getInteger(QUERY_TIMEOUT_PROPERTY,
+            ExternalSQLHandler.DEFAULT_QUERY_TIMEOUT_SECONDS);
+    /** Whether large tables of external SQLite databases are imported by attaching the database.*/
+    private boolean attachSqliteSources = Boolean.parseBoolean(System.getProperty(ATTACH_SQLITE_PROPERTY, "true"));
+    /** Connections to external databases kept open between previews, imports, and syncs.*/
+    private final ExternalConnectionCache externalConnections = new ExternalConnectionCache(
+            ExternalConnectionCache.DEFAULT_MAX_SOURCES, Math.max(1, databaseConnections),
+            ExternalConnectionCache.DEFAULT_IDLE_TIMEOUT_MILLIS);
 
     public LibraryCore(Charset encoding) {
+        this(encoding, new DatabaseManager());
+    }
+
+    public LibraryCore(Charset encoding, DatabaseManager databaseManager) {
         this.encoding = encoding;
-        databaseManager = new DatabaseManager();
+        this.databaseManager = databaseManager;
+    }
+
+    /**
+     * Closes the connections to the library database and to external databases,
+     * stopping the threads that close idle connections.
+     */
+    @Override
+    public void close() {
+        externalConnections.close();
+        databaseManager.close();
     }
 
     /**
@@ -45,6 +124,18 @@ public class LibraryCore {
      * @param bookController IBookController representing the controller layer.
      */
     public void getBooksFromTextFile(String pathString, IBookController bookController) {
+        if (isLargeFile(pathString)) {
+            ImportPreview preview = previewBooks(pathString);
+
+            if (preview == null || preview.getValidBooks() == 0) {
+                bookController.invokeError("Unable to read any books from file.");
+                return;
+            }
+
+            bookController.invokeImportPreview(preview);
+            return;
+        }
+
         ArrayList<Book> books = readBooks(pathString);
 
         if (books == null || books.isEmpty()) {
@@ -56,21 +147,580 @@ public class LibraryCore {
     }
 
     /**
-     * Retrieves Book objects from an external database provided by the user.
-     * @param form SQLForm representing connection information for an external database.
+     * Imports every book from an external text file into the library database as a
+     * stream, without holding the whole file in memory. Once the import stops, the books
+     * it committed are sent to the controller layer as added books, or the controller
+     * layer is told to read the collection again if there are more than a page of them.
+     * Progress is sent to the controller layer as the import runs, and books committed
+     * before the import is cancelled or fails remain in the library database. The position
+     * reached is saved with every commit, so importing the same unchanged file again
+     * resumes after the last committed line instead of adding its books twice.
+     * @param preview ImportPreview of the text file, providing its path and number of lines.
+     * @param token CancellationToken used to stop the import.
      * @param bookController IBookController representing the controller layer.
+     * @return InsertStatistics describing the import, or null if the import did not finish.
      */
-    public void getBooksFromDatabase(SQLForm form, IBookController bookController) {
-        ExternalSQLHandler handler = new ExternalSQLHandler();
+    public InsertStatistics importBooksFromTextFile(ImportPreview preview, CancellationToken token,
+                                                    IBookController bookController) {
+        Integer lastBarcode = findLastBarcode();
 
-        ArrayList<Book> books = handler.getBooksFromDatabase(form);
+        try {
+            return streamBooksFromTextFile(preview, token, bookController);
+        } finally {
+            sendBooksAddedAfter(lastBarcode, bookController);
+        }
+    }
 
-        if (books == null || books.isEmpty()) {
+    /**
+     * Runs the import of importBooksFromTextFile without sending the added books.
+     * @param preview ImportPreview of the text file, providing its path and number of lines.
+     * @param token CancellationToken used to stop the import.
+     * @param bookController IBookController representing the controller layer.
+     * @return InsertStatistics describing the import, or null if the import did not finish.
+     */
+    private InsertStatistics streamBooksFromTextFile(ImportPreview preview, CancellationToken token,
+                                                     IBookController bookController) {
+        BookImportPipeline pipeline = new BookImportPipeline(encoding, BookImportPipeline.DEFAULT_BATCH_SIZE,
+                BookImportPipeline.DEFAULT_QUEUE_CAPACITY, parallelism);
+        ProgressReporter reporter = new ProgressReporter(bookController, preview.getLinesRead());
+        Path path = Paths.get(preview.getPathString());
+        // Without a checkpoint the import still runs, but cannot be resumed
+        ImportCheckpoint checkpoint = findImportCheckpoint(path);
+        long resumeLine = checkpoint == null ? 0 : checkpoint.getLineNumber();
+        InsertStatistics statistics = null;
+
+        try (BookInserter inserter = openBookInserter(checkpoint, preview.getValidBooks())) {
+            String failure = null;
+
+            try {
+                statistics = pipeline.run(path, checkpoint, inserter, token, reporter);
+            } catch (CancellationException e) {
+                failure = "The import was cancelled";
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = "The import was interrupted";
+            } catch (Exception e) {
+                e.printStackTrace();
+                failure = "The import stopped";
+            }
+
+            if (statistics == null) {
+                // Books committed before the failure remain in the library database
+                long rowsInserted = inserter.getStatistics().getRowsInserted();
+                reporter.finish(pipeline.getLinesRead(), pipeline.getLinesRejected(), rowsInserted);
+                bookController.invokeError(failure + " after " + String.format("%,d", rowsInserted) +
+                        (rowsInserted == 1 ? " book was" : " books were") + " added." +
+                        (checkpoint != null ? "\nImporting the file again resumes where it stopped." : ""));
+                return null;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            bookController.invokeError("Unable to insert books.");
+            return null;
+        }
+
+        if (statistics.getRowsInserted() == 0 && statistics.getDuplicatesSkipped() == 0) {
+            bookController.invokeError("Unable to read any books from file.");
+            return statistics;
+        }
+
+        bookController.invokeMessage(String.format("%,d books were added successfully.", statistics.getRowsInserted()) +
+                describeDuplicates(statistics) +
+                (pipeline.getLinesRejected() > 0 ? String.format("\n%,d lines were rejected.", pipeline.getLinesRejected()) : "") +
+                (resumeLine > 0 ? String.format("\nThe import resumed after line %,d.", resumeLine) : ""));
+        return statistics;
+    }
+
+    /**
+     * Imports every book from a previewed text file or external database table into the
+     * library database as a stream.
+     * @param preview ImportPreview of the source to import.
+     * @param token CancellationToken used to stop the import.
+     * @param bookController IBookController representing the controller layer.
+     * @return InsertStatistics describing the import, or null if the import did not finish.
+     */
+    public InsertStatistics importBooks(ImportPreview preview, CancellationToken token, IBookController bookController) {
+        if (preview.getForm() != null) {
+            return importBooksFromDatabase(preview, token, bookController);
+        }
+        return importBooksFromTextFile(preview, token, bookController);
+    }
+
+    /**
+     * Imports every book from the table of an external database into the library database
+     * as a stream. Rows are fetched and inserted in batches on the calling thread, so memory
+     * use does not grow with the size of the table. Tables with a key column are read as
+     * several key ranges over separate connections, while books are still inserted on the
+     * calling thread. Tables of SQLite databases are copied inside SQLite instead, unless
+     * duplicates are skipped. Progress is sent to the controller layer
+     * as the import runs, and books committed before the import is cancelled or fails
+     * remain in the library database. Once the import stops, the books it committed are
+     * sent to the controller layer as added books, or the controller layer is told to
+     * read the collection again if there are more than a page of them.
+     * @param preview ImportPreview of the table, providing its connection information and number of rows.
+     * @param token CancellationToken used to stop the import.
+     * @param bookController IBookController representing the controller layer.
+     * @return InsertStatistics describing the import, or null if the import did not finish.
+     */
+    public InsertStatistics importBooksFromDatabase(ImportPreview preview, CancellationToken token,
+                                                    IBookController bookController) {
+        Integer lastBarcode = findLastBarcode();
+
+        try {
+            return streamBooksFromDatabase(preview, token, bookController);
+        } finally {
+            sendBooksAddedAfter(lastBarcode, bookController);
+        }
+    }
+
+    /**
+     * Runs the import of importBooksFromDatabase without sending the added books.
+     * @param preview ImportPreview of the table, providing its connection information and number of rows.
+     * @param token CancellationToken used to stop the import.
+     * @param bookController IBookController representing the controller layer.
+     * @return InsertStatistics describing the import, or null if the import did not finish.
+     */
+    private InsertStatistics streamBooksFromDatabase(ImportPreview preview, CancellationToken token,
+                                                     IBookController bookController) {
+        // Duplicates are found by fingerprints in memory, so they need every row read by the application
+        if (attachSqliteSources && !skipDuplicates &&
+                preview.getForm().getSourceType().equals(SQLSourceType.SQLITE)) {
+            return importBooksByAttaching(preview, token, bookController);
+        }
+
+        ExternalSQLHandler handler = createExternalHandler();
+        ProgressReporter reporter = new ProgressReporter(bookController, preview.getLinesRead());
+        InsertStatistics statistics = null;
+
+        try (BookInserter inserter = openBookInserter(null, preview.getValidBooks())) {
+            Runnable cancelRead = handler::cancel;
+            token.onCancel(cancelRead);
+            String failure = null;
+
+            try {
+                handler.streamBooksPartitioned(preview.getForm(), databasePartitions, databaseConnections,
+                        BookImportPipeline.DEFAULT_BATCH_SIZE, books -> {
+                            token.throwIfCancelled();
+                            inserter.addAll(books);
+                            reporter.report(handler.getRowsRead(), handler.getRowsRejected(),
+                                    inserter.getStatistics().getRowsInserted());
+                        });
+
+                token.throwIfCancelled();
+                statistics = inserter.finish();
+                reporter.finish(handler.getRowsRead(), handler.getRowsRejected(), statistics.getRowsInserted());
+            } catch (CancellationException e) {
+                failure = "The import was cancelled";
+            } catch (Exception e) {
+                if (token.isCancelled()) {
+                    failure = "The import was cancelled";
+                } else {
+                    e.printStackTrace();
+                    failure = "The import stopped";
+                }
+            } finally {
+                token.removeOnCancel(cancelRead);
+            }
+
+            if (statistics == null) {
+                // Books committed before the failure remain in the library database
+                long rowsInserted = inserter.getStatistics().getRowsInserted();
+                reporter.finish(handler.getRowsRead(), handler.getRowsRejected(), rowsInserted);
+                bookController.invokeError(failure + " after " + String.format("%,d", rowsInserted) +
+                        (rowsInserted == 1 ? " book was" : " books were") + " added.");
+                return null;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            bookController.invokeError("Unable to insert books.");
+            return null;
+        }
+
+        if (statistics.getRowsInserted() == 0 && statistics.getDuplicatesSkipped() == 0) {
             bookController.invokeError("Unable to read any books from database.");
+            return statistics;
+        }
+
+        bookController.invokeMessage(String.format("%,d books were added successfully.", statistics.getRowsInserted()) +
+                describeDuplicates(statistics) +
+                (handler.getRowsRejected() > 0 ? String.format("\n%,d rows were rejected.", handler.getRowsRejected()) : ""));
+        return statistics;
+    }
+
+    /**
+     * Imports every book from the table of an external SQLite database by attaching the
+     * database to the library database and copying the rows inside SQLite, validating
+     * their book statuses and due dates as they are copied. No row is read into memory.
+     * The table is committed in ranges of rows, with progress sent to the controller layer
+     * after each, and cancelling interrupts the range being copied. Books committed before
+     * the import is cancelled or fails remain in the library database.
+     * @param preview ImportPreview of the table, providing its connection information and number of rows.
+     * @param token CancellationToken used to stop the import.
+     * @param bookController IBookController representing the controller layer.
+     * @return InsertStatistics describing the import, or null if the import did not finish.
+     */
+    private InsertStatistics importBooksByAttaching(ImportPreview preview, CancellationToken token,
+                                                    IBookController bookController) {
+        SQLForm form = preview.getForm();
+        ProgressReporter reporter = new ProgressReporter(bookController, preview.getLinesRead());
+        InsertStatistics statistics;
+        long rowsRejected;
+
+        try (AttachedBookImporter importer = databaseManager.openAttachedImport(form.getDatabaseFilePath(),
+                form.getTableName())) {
+            Runnable cancelCopy = importer::cancel;
+            token.onCancel(cancelCopy);
+            String failure = null;
+
+            try {
+                while (importer.copyNextChunk()) {
+                    reporter.report(importer.getRowsRead(), importer.getRowsRejected(),
+                            importer.getStatistics().getRowsInserted());
+                    token.throwIfCancelled();
+                }
+            } catch (CancellationException e) {
+                failure = "The import was cancelled";
+            } catch (SQLException e) {
+                if (token.isCancelled()) {
+                    failure = "The import was cancelled";
+                } else {
+                    e.printStackTrace();
+                    failure = "The import stopped";
+                }
+            } finally {
+                token.removeOnCancel(cancelCopy);
+            }
+
+            statistics = importer.getStatistics();
+            rowsRejected = importer.getRowsRejected();
+            reporter.finish(importer.getRowsRead(), rowsRejected, statistics.getRowsInserted());
+
+            if (failure != null) {
+                // Ranges committed before the failure remain in the library database
+                long rowsInserted = statistics.getRowsInserted();
+                bookController.invokeError(failure + " after " + String.format("%,d", rowsInserted) +
+                        (rowsInserted == 1 ? " book was" : " books were") + " added.");
+                return null;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            bookController.invokeError("Unable to read any books from database.");
+            return null;
+        }
+
+        if (statistics.getRowsInserted() == 0) {
+            bookController.invokeError("Unable to read any books from database.");
+            return statistics;
+        }
+
+        bookController.invokeMessage(String.format("%,d books were added successfully.", statistics.getRowsInserted()) +
+                (rowsRejected > 0 ? String.format("\n%,d rows were rejected.", rowsRejected) : ""));
+        return statistics;
+    }
+
+    /**
+     * Brings the library database up to date with the rows of an external table changed
+     * since the last sync, as named by the form's watermark column. The first sync of a
+     * table reads every row. Each row is added as a book, or updates the book synced from
+     * the same row before, and each batch is committed with the watermark of its last
+     * row, so a sync that is cancelled or fails continues from there the next time. Once
+     * the sync stops, the books added and updated by its committed batches are sent to the
+     * controller, or the controller is told to read the collection again if there are more
+     * than a page of them.
+     * @param form SQLForm with external database connection information and a watermark column.
+     * @param token CancellationToken used to stop the sync.
+     * @param bookController IBookController representing the controller layer.
+     * @return InsertStatistics describing the sync, where every added or updated book
+     * counts as inserted, or null if the sync did not finish.
+     */
+    public InsertStatistics syncBooksFromDatabase(SQLForm form, CancellationToken token,
+                                                  IBookController bookController) {
+        ExternalSQLHandler handler = createExternalHandler();
+        ProgressReporter reporter = new ProgressReporter(bookController, -1);
+        String sourceKey = form.getSourceKey();
+        SyncWatermark watermark = databaseManager.findSyncWatermark(sourceKey);
+        InsertStatistics statistics;
+
+        try (BookSynchronizer synchronizer = databaseManager.openBookSynchronizer(sourceKey)) {
+            Runnable cancelRead = handler::cancel;
+            token.onCancel(cancelRead);
+            String failure = null;
+            // Books are only kept until there are more than a page of them
+            List<Book> addedBooks = new ArrayList<>();
+            List<Book> updatedBooks = new ArrayList<>();
+
+            try {
+                handler.streamChanges(form, watermark, BookImportPipeline.DEFAULT_BATCH_SIZE,
+                        (books, sourceRows, batchWatermark) -> {
+                            token.throwIfCancelled();
+                            synchronizer.sync(books, sourceRows, batchWatermark);
+                            if (addedBooks.size() + updatedBooks.size() <= PAGE_SIZE) {
+                                addedBooks.addAll(synchronizer.getLastAddedBooks());
+                                updatedBooks.addAll(synchronizer.getLastUpdatedBooks());
+                            }
+                            reporter.report(handler.getRowsRead(), handler.getRowsRejected(),
+                                    synchronizer.getRowsSynced());
+                        });
+            } catch (CancellationException e) {
+                failure = "The sync was cancelled";
+            } catch (Exception e) {
+                if (token.isCancelled()) {
+                    failure = "The sync was cancelled";
+                } else {
+                    e.printStackTrace();
+                    failure = "The sync stopped";
+                }
+            } finally {
+                token.removeOnCancel(cancelRead);
+            }
+
+            // Batches committed before a failure remain, so their books are sent either way
+            if (addedBooks.size() + updatedBooks.size() > PAGE_SIZE) {
+                bookController.reloadContent();
+            } else {
+                BookChanges changes = new BookChanges(addedBooks, updatedBooks, Collections.emptyList());
+                if (!changes.isEmpty()) {
+                    bookController.applyChanges(changes);
+                }
+            }
+
+            statistics = synchronizer.getStatistics();
+            reporter.finish(handler.getRowsRead(), handler.getRowsRejected(), statistics.getRowsInserted());
+
+            if (failure != null) {
+                // Batches committed before the failure remain, along with their watermark
+                bookController.invokeError(failure + " after " + String.format("%,d", statistics.getRowsInserted()) +
+                        (statistics.getRowsInserted() == 1 ? " book was" : " books were") + " synced.");
+                return null;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            bookController.invokeError("Unable to sync books.");
+            return null;
+        }
+
+        if (handler.getRowsRead() == 0) {
+            bookController.invokeMessage(watermark == null ? "There are no books to sync." :
+                    "No books have changed since the last sync.");
+            return statistics;
+        }
+
+        bookController.invokeMessage(String.format("%,d books were added or updated.", statistics.getRowsInserted()) +
+                (handler.getRowsRejected() > 0 ? String.format("\n%,d rows were rejected.", handler.getRowsRejected()) : ""));
+        return statistics;
+    }
+
+    /**
+     * Sets the file size above which text files are imported as a stream.
+     * @param streamingThreshold Long size in bytes. Use 0 to stream every file.
+     */
+    public void setStreamingThreshold(long streamingThreshold) {
+        this.streamingThreshold = streamingThreshold;
+    }
+
+    /**
+     * Sets the number of rows above which external database tables are imported as a stream.
+     * @param databaseStreamingThreshold Long number of rows. Use 0 to stream every table.
+     */
+    public void setDatabaseStreamingThreshold(long databaseStreamingThreshold) {
+        this.databaseStreamingThreshold = databaseStreamingThreshold;
+    }
+
+    /**
+     * Sets the number of key ranges external database tables with a key column are split into.
+     * @param databasePartitions Int number of ranges. Use 1 to read every table over a single connection.
+     */
+    public void setDatabasePartitions(int databasePartitions) {
+        this.databasePartitions = databasePartitions;
+    }
+
+    /**
+     * Sets the largest number of connections opened to an external database at once by a
+     * partitioned read. The connections kept open to each source are capped at the number
+     * set when the LibraryCore was created, so partitions beyond it wait for a connection.
+     * @param databaseConnections Int number of connections.
+     */
+    public void setDatabaseConnections(int databaseConnections) {
+        this.databaseConnections = databaseConnections;
+    }
+
+    /**
+     * Sets the number of seconds each query to an external database may run before it is cancelled.
+     * @param queryTimeoutSeconds Int number of seconds. Use 0 for no limit.
+     */
+    public void setQueryTimeout(int queryTimeoutSeconds) {
+        this.queryTimeoutSeconds = queryTimeoutSeconds;
+    }
+
+    /**
+     * Creates a handler reading from external databases over the cached connections,
+     * limiting each of its queries to the query timeout.
+     * @return ExternalSQLHandler for a single preview, import, or sync.
+     */
+    private ExternalSQLHandler createExternalHandler() {
+        ExternalSQLHandler handler = new ExternalSQLHandler(externalConnections);
+        handler.setQueryTimeout(queryTimeoutSeconds);
+        return handler;
+    }
+
+    /**
+     * Sets whether large tables of external SQLite databases are imported by attaching the
+     * database and copying the rows inside SQLite, instead of reading them as books.
+     * @param attachSqliteSources True to attach SQLite databases, false to read every table as a stream.
+     */
+    public void setAttachSqliteSources(boolean attachSqliteSources) {
+        this.attachSqliteSources = attachSqliteSources;
+    }
+
+    /**
+     * Sets the number of threads parsing text files larger than a single parallel range.
+     * @param parallelism Int number of threads. Use 1 to always parse on the calling thread.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets whether imported books whose title and author are already in the library,
+     * or earlier in the same import, are skipped instead of added as further copies.
+     * @param skipDuplicates True to skip duplicates, false to add every book.
+     */
+    public void setSkipDuplicates(boolean skipDuplicates) {
+        this.skipDuplicates = skipDuplicates;
+    }
+
+    /**
+     * Opens an inserter for importing books, loading the books already in the library
+     * first if duplicates are skipped.
+     * @param checkpoint ImportCheckpoint of the imported file, or null if there is none.
+     * @param expectedBooks Long number of books expected to be imported.
+     * @return BookInserter for the import.
+     * @throws SQLException Thrown if the library cannot be read or a connection cannot be obtained.
+     */
+    private BookInserter openBookInserter(ImportCheckpoint checkpoint, long expectedBooks) throws SQLException {
+        BookFingerprintIndex duplicates = skipDuplicates ? databaseManager.loadFingerprintIndex(expectedBooks) : null;
+        return databaseManager.openBookInserter(checkpoint, duplicates);
+    }
+
+    /**
+     * Finds the largest barcode before a streamed import, so the books it adds can be found afterwards.
+     * @return Integer largest barcode, or null if it cannot be read.
+     */
+    private Integer findLastBarcode() {
+        try {
+            return databaseManager.findLastBarcode();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Sends the books added by a streamed import to the controller layer, so the displayed
+     * collection is patched as it is after adding previewed books. Imports adding more than
+     * a page of books instead have the controller layer read the collection again, so they
+     * are never all held in memory or queued for the JavaFX thread at once. Imports run one
+     * at a time on the controller's writer with every other change, so every book after
+     * the barcode was added by it.
+     * @param lastBarcode Integer largest barcode before the import, or null if it is not known.
+     * @param bookController IBookController representing the controller layer.
+     */
+    private void sendBooksAddedAfter(Integer lastBarcode, IBookController bookController) {
+        if (lastBarcode == null) {
+            bookController.invokeError("The imported books will appear once the collection is displayed again.");
             return;
         }
 
-        bookController.invokePreview(books);
+        try {
+            // One book more than a page tells whether the import added more than a page
+            ArrayList<Book> addedBooks = databaseManager.getBooksPage(lastBarcode, PAGE_SIZE + 1);
+            if (addedBooks.size() > PAGE_SIZE) {
+                bookController.reloadContent();
+            } else if (!addedBooks.isEmpty()) {
+                bookController.applyChanges(BookChanges.added(addedBooks));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            bookController.invokeError("The imported books will appear once the collection is displayed again.");
+        }
+    }
+
+    /**
+     * Describes the duplicates skipped by an import for the message shown once it finishes.
+     * @param statistics InsertStatistics of the import.
+     * @return String sentence on its own line, or an empty String if no duplicates were skipped.
+     */
+    private static String describeDuplicates(InsertStatistics statistics) {
+        long duplicatesSkipped = statistics.getDuplicatesSkipped();
+
+        if (duplicatesSkipped == 0) {
+            return "";
+        }
+        return String.format("\n%,d duplicate %s skipped.", duplicatesSkipped,
+                duplicatesSkipped == 1 ? "book was" : "books were");
+    }
+
+    /**
+     * Retrieves Book objects from an external database provided by the user.
+     * @param form SQLForm representing connection information for an external database.
+     * @param bookController IBookController representing the controller layer.
+     */
+    public void getBooksFromDatabase(SQLForm form, IBookController bookController) {
+        getBooksFromDatabase(form, new CancellationToken(), bookController);
+    }
+
+    /**
+     * Retrieves Book objects from an external database provided by the user. The books
+     * are sent to the controller layer only once every query has finished, and cancelling
+     * stops the query that is running. Each query is limited by the query timeout.
+     * @param form SQLForm representing connection information for an external database.
+     * @param token CancellationToken used to stop the read.
+     * @param bookController IBookController representing the controller layer.
+     */
+    public void getBooksFromDatabase(SQLForm form, CancellationToken token, IBookController bookController) {
+        ExternalSQLHandler handler = createExternalHandler();
+        Runnable cancelRead = handler::cancel;
+        token.onCancel(cancelRead);
+
+        try {
+            // Large tables are previewed by their first rows and imported as a stream
+            long rowCount = handler.countBooks(form);
+            if (token.isCancelled()) {
+                bookController.invokeError("The database read was cancelled.");
+                return;
+            }
+
+            if (rowCount > databaseStreamingThreshold) {
+                ArrayList<Book> books = handler.previewBooks(form, PREVIEW_SIZE);
+
+                if (token.isCancelled()) {
+                    bookController.invokeError("The database read was cancelled.");
+                    return;
+                }
+                if (books.isEmpty()) {
+                    bookController.invokeError("Unable to read any books from database.");
+                    return;
+                }
+
+                bookController.invokeImportPreview(new ImportPreview(form, books, rowCount));
+                return;
+            }
+
+            ArrayList<Book> books = handler.getBooksFromDatabase(form);
+
+            if (token.isCancelled()) {
+                bookController.invokeError("The database read was cancelled.");
+                return;
+            }
+            if (books == null || books.isEmpty()) {
+                bookController.invokeError("Unable to read any books from database.");
+                return;
+            }
+
+            bookController.invokePreview(books);
+        } finally {
+            token.removeOnCancel(cancelRead);
+        }
     }
 
     /**
@@ -79,15 +729,72 @@ public class LibraryCore {
      * @param bookController IBookController representing the controller layer.
      */
     public void addBooksToDatabase(List<Book> newBooks, IBookController bookController) {
-        boolean insertedBooks = databaseManager.insertBooks(newBooks);
+        addBooksToDatabase(newBooks, new CancellationToken(), bookController);
+    }
 
-        if (!insertedBooks) {
-            bookController.invokeError("Unable to insert books.");
+    /**
+     * Instructs the database layer to add Book objects to the library database in batches,
+     * sending progress to the controller layer after each batch. Books committed before
+     * the insert is cancelled remain in the library database.
+     * @param newBooks Book List representing books to add to database.
+     * @param token CancellationToken checked before each batch is inserted.
+     * @param bookController IBookController representing the controller layer.
+     */
+    public void addBooksToDatabase(List<Book> newBooks, CancellationToken token, IBookController bookController) {
+        ProgressReporter reporter = new ProgressReporter(bookController, newBooks.size());
+        InsertStatistics statistics = null;
+        long rowsInserted = 0;
+        int booksSent = 0;
+        boolean cancelled = false;
+
+        try (BookInserter inserter = openBookInserter(null, newBooks.size())) {
+            try {
+                while (booksSent < newBooks.size()) {
+                    token.throwIfCancelled();
+
+                    int batchEnd = Math.min(newBooks.size(), booksSent + BookImportPipeline.DEFAULT_BATCH_SIZE);
+                    inserter.addAll(newBooks.subList(booksSent, batchEnd));
+                    booksSent = batchEnd;
+
+                    reporter.report(booksSent, 0, inserter.getStatistics().getRowsInserted());
+                }
+
+                token.throwIfCancelled();
+                statistics = inserter.finish();
+            } finally {
+                rowsInserted = inserter.getStatistics().getRowsInserted();
+            }
+        } catch (CancellationException e) {
+            cancelled = true;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        reporter.finish(booksSent, 0, rowsInserted);
+
+        // Books committed before a failure keep the barcode they were assigned
+        ArrayList<Book> addedBooks = new ArrayList<>();
+        for (Book book : newBooks) {
+            if (book.getBarcode() != -1) {
+                addedBooks.add(book);
+            }
+        }
+        bookController.applyChanges(BookChanges.added(addedBooks));
+
+        if (cancelled) {
+            bookController.invokeError("The import was cancelled after " + addedBooks.size() +
+                    (addedBooks.size() == 1 ? " book was" : " books were") + " added.");
             return;
         }
 
-        bookController.updateContent(databaseManager.getAllBooks());
-        bookController.invokeMessage("Books were added successfully.");
+        if (statistics == null || statistics.getRowsInserted() == 0 && statistics.getDuplicatesSkipped() == 0) {
+            bookController.invokeError("Unable to insert books.");
+            return;
+        }
+        if (statistics.getRowsInserted() == 0) {
+            bookController.invokeMessage("No books were added." + describeDuplicates(statistics));
+            return;
+        }
+        bookController.invokeMessage("Books were added successfully." + describeDuplicates(statistics));
     }
 
     /**
@@ -103,13 +810,106 @@ public class LibraryCore {
             return;
         }
 
-        bookController.updateContent(databaseManager.getAllBooks());
+        bookController.applyChanges(BookChanges.removed(Collections.singletonList(book.getBarcode())));
         bookController.invokeMessage(book.getTitle() + " was successfully removed from the database.");
     }
 
+    /**
+     * Counts the books selected by a filter and asks the user to confirm deleting all
+     * of them at once.
+     * @param filter BookFilter selecting the books to delete.
+     * @param bookController IBookController representing the controller layer.
+     */
+    public void requestBulkRemoval(BookFilter filter, IBookController bookController) {
+        int matchingBooks = databaseManager.countBooks(filter);
+
+        if (matchingBooks < 0) {
+            bookController.invokeError("Unable to find books to delete.");
+            return;
+        }
+
+        if (matchingBooks == 0) {
+            bookController.invokeError("No books in the library's collection match.");
+            return;
+        }
+
+        bookController.invokeBulkDeleteConfirmation("Are you sure you want to delete " + matchingBooks +
+                (matchingBooks == 1 ? " book" : " books") + "\nfrom the library", filter);
+    }
+
+    /**
+     * Instructs the database layer to remove every book selected by a filter
+     * from the library database in one transaction.
+     * @param filter BookFilter selecting the books to delete.
+     * @param bookController IBookController representing the controller layer.
+     * @return Int number of books removed, or -1 if the books could not be removed.
+     */
+    public int removeBooksFromCollection(BookFilter filter, IBookController bookController) {
+        List<Integer> deletedBarcodes = databaseManager.deleteBooks(filter);
+
+        if (deletedBarcodes == null) {
+            bookController.invokeError("Unable to delete books.");
+            return -1;
+        }
+
+        bookController.applyChanges(BookChanges.removed(deletedBarcodes));
+        bookController.invokeMessage(deletedBarcodes.size() + (deletedBarcodes.size() == 1 ? " book was" : " books were") +
+                " successfully removed from the database.");
+        return deletedBarcodes.size();
+    }
+
+    /**
+     * Instructs the database layer to change the genre of every book selected by a
+     * filter in one transaction.
+     * @param filter BookFilter selecting the books to change.
+     * @param genre String new genre.
+     * @param bookController IBookController representing the controller layer.
+     * @return Int number of books changed, or -1 if the books could not be changed.
+     */
+    public int changeGenre(BookFilter filter, String genre, IBookController bookController) {
+        return reportBulkUpdate(databaseManager.updateGenre(filter, genre), bookController);
+    }
+
+    /**
+     * Instructs the database layer to change the checked status of every book selected
+     * by a filter in one transaction. Checked out books are due four weeks from today.
+     * @param filter BookFilter selecting the books to change.
+     * @param bookStatus BookStatus new checked status.
+     * @param bookController IBookController representing the controller layer.
+     * @return Int number of books changed, or -1 if the books could not be changed.
+     */
+    public int changeStatus(BookFilter filter, BookStatus bookStatus, IBookController bookController) {
+        String dueDate = "";
+        if (bookStatus == BookStatus.CHECKED_OUT) {
+            dueDate = LocalDate.now().plusWeeks(4).toString();
+        }
+
+        return reportBulkUpdate(databaseManager.updateStatus(filter, bookStatus, dueDate), bookController);
+    }
+
+    /**
+     * Sends the books changed by a bulk update to the controller layer and reports how many changed.
+     * @param updatedBarcodes Integer List of changed barcodes, or null if the update failed.
+     * @param bookController IBookController representing the controller layer.
+     * @return Int number of books changed, or -1 if the update failed.
+     */
+    private int reportBulkUpdate(List<Integer> updatedBarcodes, IBookController bookController) {
+        if (updatedBarcodes == null) {
+            bookController.invokeError("Unable to update books.");
+            return -1;
+        }
+
+        bookController.applyChanges(BookChanges.updated(databaseManager.searchByBarcodes(updatedBarcodes)));
+        bookController.invokeMessage(updatedBarcodes.size() + (updatedBarcodes.size() == 1 ? " book was" : " books were") +
+                " successfully updated.");
+        return updatedBarcodes.size();
+    }
+
     /**
      * Enforces check-out logic for Book objects, checks out Book objects if applicable,
      * and instructs the database layer to update the provided book in the library database.
+     * The provided book is left unchanged, as it may be shown by the controller; a checked
+     * out copy is sent to the controller once it is saved.
      * @param book Book object to check out.
      * @param bookController IBookController representing the controller layer.
      */
@@ -119,25 +919,27 @@ public class LibraryCore {
             return;
         }
 
-        book.setBookStatus(BookStatus.CHECKED_OUT);
-
         LocalDate dueDate = LocalDate.now().plusWeeks(4);
-        book.setDueDate(dueDate.toString());
+        Book checkedOutBook = new Book(book.getBarcode(), book.getTitle(), book.getAuthor(), book.getGenre(),
+                BookStatus.CHECKED_OUT, dueDate.toString());
 
-        boolean bookUpdated = databaseManager.updateBook(book);
+        boolean bookUpdated = databaseManager.updateBook(checkedOutBook);
 
         if (!bookUpdated) {
             bookController.invokeError("Unable to update book.");
             return;
         }
 
-        bookController.updateContent(databaseManager.getAllBooks());
-        bookController.invokeMessage(book.getTitle() + " was successfully checked out.\nThe new due date is " + book.getDueDate() + ".");
+        bookController.applyChanges(BookChanges.updated(Collections.singletonList(checkedOutBook)));
+        bookController.invokeMessage(checkedOutBook.getTitle() + " was successfully checked out.\nThe new due date is " +
+                checkedOutBook.getDueDate() + ".");
     }
 
     /**
      * Enforces check-in logic for Book objects, checks in Book objects if applicable,
      * and instructs the database layer to update the provided book in the library database.
+     * The provided book is left unchanged, as it may be shown by the controller; a checked
+     * in copy is sent to the controller once it is saved.
      * @param book Book object to check out.
      * @param bookController IBookController representing the controller layer.
      */
@@ -147,18 +949,139 @@ public class LibraryCore {
             return;
         }
 
-        book.setBookStatus(BookStatus.CHECKED_IN);
-        book.setDueDate("");
+        Book checkedInBook = new Book(book.getBarcode(), book.getTitle(), book.getAuthor(), book.getGenre(),
+                BookStatus.CHECKED_IN, "");
 
-        boolean bookUpdated = databaseManager.updateBook(book);
+        boolean bookUpdated = databaseManager.updateBook(checkedInBook);
 
         if (!bookUpdated) {
             bookController.invokeError("Unable to update book.");
             return;
         }
 
-        bookController.updateContent(databaseManager.getAllBooks());
-        bookController.invokeMessage(book.getTitle() + " was successfully checked in.");
+        bookController.applyChanges(BookChanges.updated(Collections.singletonList(checkedInBook)));
+        bookController.invokeMessage(checkedInBook.getTitle() + " was successfully checked in.");
+    }
+
+    /**
+     * Enforces check-out logic for several Book objects at once and saves every book
+     * that can be checked out in a single transaction.
+     * @param books Book List of books to check out.
+     * @param bookController IBookController representing the controller layer.
+     * @return CirculationResult List with the outcome for each book, in the order provided.
+     */
+    public List<CirculationResult> checkOutBooks(List<Book> books, IBookController bookController) {
+        return changeBookStatuses(books, BookStatus.CHECKED_OUT, bookController);
+    }
+
+    /**
+     * Enforces check-in logic for several Book objects at once and saves every book
+     * that can be checked in in a single transaction.
+     * @param books Book List of books to check in.
+     * @param bookController IBookController representing the controller layer.
+     * @return CirculationResult List with the outcome for each book, in the order provided.
+     */
+    public List<CirculationResult> checkInBooks(List<Book> books, IBookController bookController) {
+        return changeBookStatuses(books, BookStatus.CHECKED_IN, bookController);
+    }
+
+    /**
+     * Validates and applies a new checked status to several books, then instructs the
+     * database layer to save them together. The provided books are left unchanged, as they
+     * may be shown by the controller; the saved copies are sent to the controller and
+     * returned with the results.
+     * @param books Book List of books to check in or out.
+     * @param newStatus BookStatus the books should have afterwards.
+     * @param bookController IBookController representing the controller layer.
+     * @return CirculationResult List with the outcome for each book, in the order provided.
+     */
+    private List<CirculationResult> changeBookStatuses(List<Book> books, BookStatus newStatus,
+                                                       IBookController bookController) {
+        boolean checkingOut = newStatus == BookStatus.CHECKED_OUT;
+        String newDueDate = checkingOut ? LocalDate.now().plusWeeks(4).toString() : "";
+
+        CirculationResult[] results = new CirculationResult[books.size()];
+        ArrayList<Book> eligibleBooks = new ArrayList<>();
+        ArrayList<Integer> eligibleIndexes = new ArrayList<>();
+        Set<Integer> seenBarcodes = new HashSet<>();
+
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+
+            if (!seenBarcodes.add(book.getBarcode())) {
+                results[i] = new CirculationResult(book, false, "Listed more than once.");
+            } else if (book.getBookStatus() == newStatus) {
+                results[i] = new CirculationResult(book, false,
+                        checkingOut ? "Already checked out." : "Already checked in.");
+            } else {
+                eligibleBooks.add(new Book(book.getBarcode(), book.getTitle(), book.getAuthor(),
+                        book.getGenre(), newStatus, newDueDate));
+                eligibleIndexes.add(i);
+            }
+        }
+
+        ArrayList<Book> updatedBooks = new ArrayList<>();
+
+        if (!eligibleBooks.isEmpty()) {
+            boolean[] updated = databaseManager.updateBooks(eligibleBooks);
+
+            for (int j = 0; j < eligibleBooks.size(); j++) {
+                int i = eligibleIndexes.get(j);
+
+                if (updated != null && updated[j]) {
+                    Book updatedBook = eligibleBooks.get(j);
+                    updatedBooks.add(updatedBook);
+                    results[i] = new CirculationResult(updatedBook, true, "");
+                } else {
+                    results[i] = new CirculationResult(books.get(i), false, "Unable to update book.");
+                }
+            }
+        }
+
+        bookController.applyChanges(BookChanges.updated(updatedBooks));
+        reportCirculationResults(results, updatedBooks.size(), checkingOut, newDueDate, bookController);
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Summarizes the outcome of checking in or out several books for the user.
+     * @param results CirculationResult array with the outcome for each book.
+     * @param updatedCount Int number of books that were saved.
+     * @param checkingOut True if the books were checked out, false if checked in.
+     * @param newDueDate String due date given to checked out books.
+     * @param bookController IBookController representing the controller layer.
+     */
+    private void reportCirculationResults(CirculationResult[] results, int updatedCount, boolean checkingOut,
+                                          String newDueDate, IBookController bookController) {
+        String action = checkingOut ? "checked out" : "checked in";
+        StringBuilder message = new StringBuilder();
+
+        message.append(updatedCount).append(updatedCount == 1 ? " book was " : " books were ")
+                .append("successfully ").append(action).append('.');
+
+        if (checkingOut && updatedCount > 0) {
+            message.append("\nThe new due date is ").append(newDueDate).append('.');
+        }
+
+        int failedCount = results.length - updatedCount;
+        if (failedCount > 0) {
+            message.append("\n").append(failedCount).append(failedCount == 1 ? " book" : " books")
+                    .append(" could not be ").append(action).append(':');
+
+            for (CirculationResult result : results) {
+                if (!result.isSuccessful()) {
+                    message.append("\n").append(result.getBook().getTitle())
+                            .append(" - ").append(result.getMessage());
+                }
+            }
+        }
+
+        if (updatedCount == 0) {
+            bookController.invokeError(message.toString());
+        } else {
+            bookController.invokeMessage(message.toString());
+        }
     }
 
     /**
@@ -183,122 +1106,213 @@ public class LibraryCore {
 
     /**
      * Instructs the database layer to retrieve all books from the library database.
-     * @return Book ArrayList containing all books in library database.
+     * Books are read one page at a time rather than in a single query.
+     * @return Book ArrayList containing all books in library database, or null if any page could not be read.
      */
     public ArrayList<Book> getLibraryBooks() {
-        return databaseManager.getAllBooks();
+        try (Stream<Book> books = databaseManager.streamBooks(PAGE_SIZE)) {
+            return books.collect(Collectors.toCollection(ArrayList::new));
+        } catch (IllegalStateException e) {
+            e.printStackTrace();
+            return null;
+        }
     }
 
     /**
-     * Attempts to read Book objects from a provided text file.
-     * @param path Path object representing absolute path to text file.
-     * @return Book ArrayList containing books retrieved from the provided text file.
+     * Instructs the database layer to retrieve one page of books ordered by barcode.
+     * @param afterBarcode Int barcode the page starts after. Use DatabaseManager.BEFORE_FIRST_BARCODE
+     *                     for the first page.
+     * @return Book ArrayList containing at most PAGE_SIZE books, empty if there are no more books,
+     * or null if the page could not be read.
      */
-    private ArrayList<Book> readBooks(Path path) {
+    public ArrayList<Book> getLibraryBooksPage(int afterBarcode) {
+        try {
+            return databaseManager.getBooksPage(afterBarcode, PAGE_SIZE);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Instructs the database layer to count the books in the library database.
+     * @return Int number of books in the library database.
+     */
+    public int getLibraryBookCount() {
+        return databaseManager.countBooks();
+    }
+
+    /**
+     * Determines whether a text file is large enough to be imported as a stream.
+     * @param pathString String absolute path to text file.
+     * @return True if the file is gzip compressed or larger than the streaming threshold,
+     * false otherwise or if its size cannot be read.
+     */
+    private boolean isLargeFile(String pathString) {
+        try {
+            Path path = Paths.get(pathString);
+
+            // The uncompressed size of a gzip file is not known until it has been read
+            return TextFiles.isGzip(path) || Files.size(path) > streamingThreshold;
+        } catch (IOException | InvalidPathException ignored) {
+        }
+
+        return false;
+    }
+
+    /**
+     * Determines whether a text file can be read through memory mapped windows.
+     * @param pathString String absolute path to text file.
+     * @return True if the file is uncompressed and in an encoding that can be scanned
+     * as bytes, false otherwise or if the file cannot be read.
+     */
+    private boolean canMap(String pathString) {
+        try {
+            return TextFiles.canMap(Paths.get(pathString), encoding);
+        } catch (IOException | InvalidPathException ignored) {
+        }
+
+        return false;
+    }
+
+    /**
+     * Reads the first books of a text file for display and counts the valid and
+     * rejected lines of the whole file, keeping only the displayed books in memory.
+     * @param pathString String absolute path to text file.
+     * @return ImportPreview of the file, or null if the file cannot be read.
+     */
+    public ImportPreview previewBooks(String pathString) {
         ArrayList<Book> books = new ArrayList<>();
 
-        try (BufferedReader reader = Files.newBufferedReader(path, encoding)) {
+        if (canMap(pathString)) {
+            MappedBookReader reader = new MappedBookReader(encoding);
+
+            try {
+                reader.read(Paths.get(pathString), book -> {
+                    if (books.size() < PREVIEW_SIZE) {
+                        books.add(book);
+                    }
+                });
+                return new ImportPreview(pathString, books, reader.getLinesRead(), reader.getLinesRejected(),
+                        findResumeLine(pathString));
+            } catch (IOException | InvalidPathException ignored) {
+                // Read line by line below, which reports the error the way the rest of the file is read
+                books.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+
+        long linesRead = 0;
+        long linesRejected = 0;
 
+        try (BufferedReader reader = TextFiles.newBufferedReader(Paths.get(pathString), encoding)) {
             String line = reader.readLine();
 
             while (line != null) {
-                if (validateFormat(line)) {
-                    Book book = createBookFromString(line);
-                    if (book != null) {
-                        books.add(book);
-                    }
+                linesRead++;
+
+                Book book = lineParser.parse(line);
+                if (book == null) {
+                    linesRejected++;
+                } else if (books.size() < PREVIEW_SIZE) {
+                    books.add(book);
                 }
 
                 line = reader.readLine();
             }
-        } catch (IOException ignored) {
+        } catch (IOException | InvalidPathException ignored) {
+            return null;
         }
 
-        return books;
+        return new ImportPreview(pathString, books, linesRead, linesRejected, findResumeLine(pathString));
     }
 
     /**
-     * Attempts to read Book objects from a provided text file.
-     * @param pathString String absolute path to text file.
-     * @return Book ArrayList containing books retrieved from the provided text file.
+     * Identifies a text file and looks up the position an unfinished import of it reached.
+     * @param path Path to the text file.
+     * @return ImportCheckpoint holding the saved position, a new ImportCheckpoint at the
+     * start of the file if there is none, or null if the file cannot be identified.
      */
-    public ArrayList<Book> readBooks(String pathString) {
+    private ImportCheckpoint findImportCheckpoint(Path path) {
         try {
-            Path path = Paths.get(pathString);
-            return readBooks(path);
-        } catch (InvalidPathException ignored) {
+            Path absolutePath = path.toAbsolutePath().normalize();
+            ImportCheckpoint source = new ImportCheckpoint(absolutePath.toString(), Files.size(absolutePath),
+                    Files.getLastModifiedTime(absolutePath).toMillis(), TextFiles.fingerprint(absolutePath));
+            ImportCheckpoint checkpoint = databaseManager.findImportCheckpoint(source);
+
+            return checkpoint == null ? source : checkpoint;
+        } catch (IOException | InvalidPathException e) {
+            e.printStackTrace();
         }
 
         return null;
     }
 
     /**
-     * Ensures a file is in the correct format using a regular expression.
-     * @param line String line of text from a text document.
-     * @return True if validation is successful, false otherwise.
+     * Finds the line an unfinished import of a text file will resume after.
+     * @param pathString String absolute path to text file.
+     * @return Long number of lines already imported, or 0 if the import starts from the beginning.
      */
-    private boolean validateFormat(String line) {
-        // This pattern matches title,author,genre,checked_status
-        Pattern pattern = Pattern.compile("[^,;]+,[^,;]+,[^,;]+,[^,;]+,[^,;]*");
-        Matcher matcher = pattern.matcher(line);
-        return matcher.find();
+    private long findResumeLine(String pathString) {
+        try {
+            ImportCheckpoint checkpoint = findImportCheckpoint(Paths.get(pathString));
+            return checkpoint == null ? 0 : checkpoint.getLineNumber();
+        } catch (InvalidPathException ignored) {
+        }
+
+        return 0;
     }
 
     /**
-     * Converts a String into a Book object.
-     * @param bookString String line of text to be converted.
-     * @return Book object from provided String.
+     * Attempts to read Book objects from a provided text file.
+     * @param path Path object representing absolute path to text file.
+     * @return Book ArrayList containing books retrieved from the provided text file.
      */
-    private Book createBookFromString(String bookString) {
-
-        String[] parameters = bookString.split(",");
+    private ArrayList<Book> readBooks(Path path) {
+        if (canMap(path.toString())) {
+            try {
+                if (parallelism > 1 && Files.size(path) > ParallelBookReader.DEFAULT_RANGE_SIZE) {
+                    return new ParallelBookReader(encoding, parallelism).readBooks(path);
+                }
+                return new MappedBookReader(encoding).readBooks(path);
+            } catch (IOException ignored) {
+                // Read line by line below, which keeps the books read before a malformed line
+            }
+        }
 
-        String title = parameters[0];
-        String author = parameters[1];
-        String genre = parameters[2];
-        String status = parameters[3];
+        ArrayList<Book> books = new ArrayList<>();
 
-        BookStatus bookStatus = stringToBookStatus(status);
+        try (BufferedReader reader = TextFiles.newBufferedReader(path, encoding)) {
 
-        if (bookStatus == null) {
-            return null;
-        }
+            String line = reader.readLine();
 
-        if (parameters.length > 4) {
-            String dateString = parameters[4];
+            while (line != null) {
+                Book book = lineParser.parse(line);
+                if (book != null) {
+                    books.add(book);
+                }
 
-            LocalDate dueDate = parseLocalDate(dateString);
-            if (dueDate != null) {
-                return  new Book(-1, title, author, genre,  bookStatus, dateString);
+                line = reader.readLine();
             }
+        } catch (IOException ignored) {
         }
 
-        return new Book(-1,  title, author, genre,  bookStatus);
-    }
-
-    /**
-     * Converts a String value into a BookStatus enum.
-     * @param text String value to convert.
-     * @return BookStatus processed.
-     */
-    private BookStatus stringToBookStatus(String text) {
-        if (text.equalsIgnoreCase(BookStatus.CHECKED_OUT.toString()) ||
-                text.equalsIgnoreCase(BookStatus.CHECKED_IN.toString())) {
-            return BookStatus.valueOf(text.toUpperCase());
-        }
-        return null;
+        return books;
     }
 
     /**
-     * Attempts to convert a String into a LocalData object.
-     * @param dateString String date to parse.
-     * @return LocalData representing processed date.
+     * Attempts to read Book objects from a provided text file. Gzip compressed files
+     * are decompressed as they are read.
+     * @param pathString String absolute path to text file.
+     * @return Book ArrayList containing books retrieved from the provided text file.
      */
-    private LocalDate parseLocalDate(String dateString) {
+    public ArrayList<Book> readBooks(String pathString) {
         try {
-            return LocalDate.parse(dateString);
-        } catch (DateTimeException ignored) {
-
+            Path path = Paths.get(pathString);
+            return readBooks(path);
+        } catch (InvalidPathException ignored) {
         }
 
         return null;
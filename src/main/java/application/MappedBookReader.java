@@ -0,0 +1,354 @@
+package application;
+
+import domain.Book;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * This class reads books from a text file by scanning its bytes in memory mapped
+ * windows instead of decoding every line into a String. Delimiters, the checked
+ * status, and the due date are checked on the raw bytes, and only the fields kept
+ * on each Book are decoded. Fields containing only ASCII bytes skip the decoder.
+ * <p>
+ * Scanning bytes for delimiters only works for the encodings ParallelBookReader.supports
+ * accepts. The books, line counts, and line terminators handled match reading the
+ * file with a BufferedReader. A reader must not be shared between threads.
+ * @author Elise Kidroske
+ */
+public class MappedBookReader {
+    /** Size in bytes of the part of the file mapped at once unless another size is provided.*/
+    public static final int DEFAULT_WINDOW_SIZE = 128 * 1024 * 1024;
+    /** Number of bytes copied out of the mapped window at a time.*/
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    /** Size in bytes of the part of the file mapped at once.*/
+    private final int windowSize;
+    /** Converts lines of bytes into Book objects, decoding only the fields it keeps.*/
+    private final FieldDecodingParser parser;
+    /** Bytes copied out of the mapped window, holding at least the line being parsed.*/
+    private final ByteSequence block = new ByteSequence(BLOCK_SIZE);
+
+    /** Number of lines read since the last read started.*/
+    private long linesRead;
+    /** Number of lines since the last read started that could not be converted into books.*/
+    private long linesRejected;
+    /** Position in bytes in the file after the last line read, including its terminator.*/
+    private long position;
+
+    /**
+     * Receives each book in file order.
+     */
+    public interface BookHandler {
+        /**
+         * Handles one book read from the file.
+         * @param book Book read from the file.
+         * @throws InterruptedException Thrown if the handler is interrupted while waiting.
+         */
+        void accept(Book book) throws InterruptedException;
+    }
+
+    public MappedBookReader(Charset encoding) {
+        this(encoding, DEFAULT_WINDOW_SIZE);
+    }
+
+    public MappedBookReader(Charset encoding, int windowSize) {
+        this.windowSize = Math.max(1, windowSize);
+        this.parser = new FieldDecodingParser(encoding);
+    }
+
+    /**
+     * Reads every book from a text file into a list.
+     * @param path Path to the text file.
+     * @return Book ArrayList in the order the books appear in the file.
+     * @throws IOException Thrown if the file cannot be read or a field cannot be decoded.
+     */
+    public ArrayList<Book> readBooks(Path path) throws IOException {
+        ArrayList<Book> books = new ArrayList<>();
+
+        try {
+            read(path, books::add);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Reading " + path + " was interrupted.", e);
+        }
+
+        return books;
+    }
+
+    /**
+     * Reads every book from a text file, handing each book to a handler in file order.
+     * Windows of the file are mapped one at a time and each window ends after a line
+     * feed, so no line is split between windows.
+     * @param path Path to the text file.
+     * @param handler BookHandler receiving each book on the calling thread.
+     * @throws IOException Thrown if the file cannot be read, a field cannot be decoded,
+     * or a line is longer than a window.
+     * @throws InterruptedException Thrown if the handler is interrupted.
+     */
+    public void read(Path path, BookHandler handler) throws IOException, InterruptedException {
+        read(path, 0, handler);
+    }
+
+    /**
+     * Reads the books from a position in a text file to its end, handing each book to
+     * a handler in file order. The position must be the start of a line, such as one
+     * returned by getPosition, and line counts start from it.
+     * @param path Path to the text file.
+     * @param startOffset Long position in bytes of the first line to read.
+     * @param handler BookHandler receiving each book on the calling thread.
+     * @throws IOException Thrown if the file cannot be read, a field cannot be decoded,
+     * or a line is longer than a window.
+     * @throws InterruptedException Thrown if the handler is interrupted.
+     */
+    public void read(Path path, long startOffset, BookHandler handler) throws IOException, InterruptedException {
+        linesRead = 0;
+        linesRejected = 0;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = skipLineFeed(channel, startOffset);
+            this.position = position;
+
+            while (position < size) {
+                int length = (int) Math.min(windowSize, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+                if (position + length < size) {
+                    length = lastLineFeed(window, length) + 1;
+                    if (length == 0) {
+                        throw new IOException("A line in " + path + " is longer than " + windowSize + " bytes.");
+                    }
+                }
+
+                parse(window, length, position, handler);
+                position += length;
+            }
+        }
+    }
+
+    /**
+     * Parses the lines at the start of a buffer. Lines end at a line feed, a carriage
+     * return, or a carriage return followed by a line feed, and the last line does not
+     * need a terminator. The bytes are copied out of the buffer in blocks, which is far
+     * cheaper than reading mapped memory one byte at a time. Line counts are added to
+     * the reader's counts, and the reader's position is updated before each book is handed over.
+     * @param buffer ByteBuffer containing encoded lines, starting at index 0.
+     * @param length Int number of bytes to parse.
+     * @param bufferPosition Long position in the file of the first byte of the buffer.
+     * @param handler BookHandler receiving each book in order.
+     * @throws CharacterCodingException Thrown if a field cannot be decoded.
+     * @throws InterruptedException Thrown if the handler is interrupted.
+     */
+    void parse(ByteBuffer buffer, int length, long bufferPosition, BookHandler handler)
+            throws CharacterCodingException, InterruptedException {
+        ByteBuffer source = buffer.duplicate();
+        source.position(0).limit(length);
+
+        // Position in the file of the first byte of the block
+        long blockPosition = bufferPosition;
+        int filled = 0;
+        int lineStart = 0;
+        boolean skipLineFeed = false;
+
+        try {
+            while (source.hasRemaining()) {
+                // Keep the unfinished line at the start of the block, growing it for long lines
+                if (lineStart > 0) {
+                    System.arraycopy(block.bytes, lineStart, block.bytes, 0, filled - lineStart);
+                    blockPosition += lineStart;
+                    filled -= lineStart;
+                    lineStart = 0;
+                } else if (filled == block.bytes.length) {
+                    block.bytes = Arrays.copyOf(block.bytes, block.bytes.length * 2);
+                }
+
+                int count = Math.min(block.bytes.length - filled, source.remaining());
+                source.get(block.bytes, filled, count);
+
+                byte[] bytes = block.bytes;
+                for (int i = filled; i < filled + count; i++) {
+                    byte b = bytes[i];
+
+                    if (skipLineFeed) {
+                        skipLineFeed = false;
+                        if (b == '\n') {
+                            lineStart = i + 1;
+                            position = blockPosition + lineStart;
+                            continue;
+                        }
+                    }
+
+                    if (b == '\n' || b == '\r') {
+                        position = blockPosition + i + 1;
+                        handleLine(lineStart, i, handler);
+                        skipLineFeed = b == '\r';
+                        lineStart = i + 1;
+                    }
+                }
+                filled += count;
+            }
+
+            if (lineStart < filled) {
+                position = blockPosition + filled;
+                handleLine(lineStart, filled, handler);
+            }
+        } catch (UncheckedIOException e) {
+            throw (CharacterCodingException) e.getCause();
+        }
+    }
+
+    /**
+     * Parses one line of the block and hands its book to the handler.
+     * @param start Int index of the first byte of the line.
+     * @param end Int index after the last byte of the line.
+     * @param handler BookHandler receiving the book.
+     * @throws InterruptedException Thrown if the handler is interrupted.
+     */
+    private void handleLine(int start, int end, BookHandler handler) throws InterruptedException {
+        linesRead++;
+
+        Book book = parser.parse(block, start, end);
+        if (book == null) {
+            linesRejected++;
+        } else {
+            handler.accept(book);
+        }
+    }
+
+    /**
+     * Moves a position that falls between a carriage return and a line feed past the
+     * line feed, which belongs to the line before it.
+     * @param channel FileChannel of the text file.
+     * @param offset Long position in bytes of the start of a line.
+     * @return Long position of the start of the line, after any line feed ending the line before it.
+     * @throws IOException Thrown if the file cannot be read.
+     */
+    static long skipLineFeed(FileChannel channel, long offset) throws IOException {
+        if (offset <= 0) {
+            return 0;
+        }
+
+        ByteBuffer terminator = ByteBuffer.allocate(2);
+        while (terminator.hasRemaining() && channel.read(terminator, offset - 1 + terminator.position()) > 0) {
+            // Keep reading until both bytes arrive or the file ends
+        }
+
+        if (terminator.position() == 2 && terminator.get(0) == '\r' && terminator.get(1) == '\n') {
+            return offset + 1;
+        }
+        return offset;
+    }
+
+    /**
+     * Finds the last line feed in the first bytes of a buffer.
+     * @param buffer ByteBuffer to search.
+     * @param length Int number of bytes to search.
+     * @return Int index of the last line feed, or -1 if there is none.
+     */
+    private static int lastLineFeed(ByteBuffer buffer, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Counts the lines read since the last read started.
+     * @return Long number of lines read.
+     */
+    public long getLinesRead() {
+        return linesRead;
+    }
+
+    /**
+     * Counts the lines since the last read started that could not be converted into books.
+     * @return Long number of rejected lines.
+     */
+    public long getLinesRejected() {
+        return linesRejected;
+    }
+
+    /**
+     * Provides the position in the file after the last line read, which a later read can start from.
+     * While a BookHandler runs, this is the position after the line of the book being handled.
+     * @return Long position in bytes.
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Presents encoded bytes to BookLineParser one byte per character. Delimiters and
+     * keywords are ASCII, so they compare correctly, while other bytes never match them.
+     */
+    private static class ByteSequence implements CharSequence {
+        /** Bytes of the text.*/
+        private byte[] bytes;
+
+        private ByteSequence(int size) {
+            this.bytes = new byte[size];
+        }
+
+        @Override
+        public int length() {
+            return bytes.length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (bytes[index] & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    /**
+     * Parses lines presented as a ByteSequence and decodes the kept fields with the file's encoding.
+     */
+    private static class FieldDecodingParser extends BookLineParser {
+        /** Decodes fields containing bytes outside of ASCII. Reports malformed input.*/
+        private final CharsetDecoder decoder;
+
+        private FieldDecodingParser(Charset encoding) {
+            this.decoder = encoding.newDecoder();
+        }
+
+        @Override
+        protected String decodeField(CharSequence text, int start, int end) {
+            byte[] bytes = ((ByteSequence) text).bytes;
+
+            boolean ascii = true;
+            for (int i = start; i < end && ascii; i++) {
+                ascii = bytes[i] >= 0;
+            }
+
+            if (ascii) {
+                // Every supported encoding matches ASCII, which ISO-8859-1 decodes without a decoder
+                return new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+            }
+
+            try {
+                return decoder.decode(ByteBuffer.wrap(bytes, start, end - start)).toString();
+            } catch (CharacterCodingException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
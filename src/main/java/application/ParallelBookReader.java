@@ -0,0 +1,279 @@
+package application;
+
+import domain.Book;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * This class reads books from a text file on several threads. The file is split into
+ * byte ranges that end after a line feed, each range is mapped and parsed on a
+ * ForkJoinPool, and the parsed ranges are handed back in file order. The books, line
+ * counts, and line terminators handled match reading the file with a BufferedReader.
+ * <p>
+ * Splitting on line feed bytes is only safe for encodings in which that byte always
+ * means a line feed, which supports checks. A reader must not be shared between threads.
+ * @author Elise Kidroske
+ */
+public class ParallelBookReader {
+    /** Approximate size in bytes of each range unless another size is provided.*/
+    public static final int DEFAULT_RANGE_SIZE = 1024 * 1024;
+    /** Number of bytes read at a time while searching for the end of a range.*/
+    private static final int SEARCH_BUFFER_SIZE = 8192;
+
+    /** Encoding of the text file.*/
+    private final Charset encoding;
+    /** Number of threads parsing ranges.*/
+    private final int parallelism;
+    /** Approximate size in bytes of each range.*/
+    private final int rangeSize;
+
+    /** Number of lines read by the last read.*/
+    private long linesRead;
+    /** Number of lines of the last read that could not be converted into books.*/
+    private long linesRejected;
+    /** Position in bytes in the file after the last range handed over.*/
+    private long position;
+
+    /**
+     * Receives the books of each range in file order.
+     */
+    public interface RangeHandler {
+        /**
+         * Handles the books parsed from one range of the file.
+         * @param books Book List in the order they appear in the file.
+         * @throws InterruptedException Thrown if the handler is interrupted while waiting.
+         */
+        void accept(List<Book> books) throws InterruptedException;
+    }
+
+    public ParallelBookReader(Charset encoding, int parallelism) {
+        this(encoding, parallelism, DEFAULT_RANGE_SIZE);
+    }
+
+    public ParallelBookReader(Charset encoding, int parallelism, int rangeSize) {
+        this.encoding = encoding;
+        this.parallelism = Math.max(1, parallelism);
+        this.rangeSize = Math.max(1, rangeSize);
+    }
+
+    /**
+     * Determines whether files in an encoding can be split on line feed bytes. This is
+     * true of UTF-8 and single byte encodings that extend ASCII, but not of UTF-16 or UTF-32.
+     * @param encoding Charset of the text file.
+     * @return True if the encoding can be read in parallel, false otherwise.
+     */
+    public static boolean supports(Charset encoding) {
+        String name = encoding.name();
+
+        return encoding.equals(StandardCharsets.UTF_8) ||
+                encoding.equals(StandardCharsets.US_ASCII) ||
+                encoding.equals(StandardCharsets.ISO_8859_1) ||
+                name.startsWith("ISO-8859-") ||
+                name.startsWith("windows-125");
+    }
+
+    /**
+     * Reads every book from a text file into a list.
+     * @param path Path to the text file.
+     * @return Book ArrayList in the order the books appear in the file.
+     * @throws IOException Thrown if the file cannot be read or decoded.
+     */
+    public ArrayList<Book> readBooks(Path path) throws IOException {
+        ArrayList<Book> books = new ArrayList<>();
+
+        try {
+            read(path, books::addAll);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Reading " + path + " was interrupted.", e);
+        }
+
+        return books;
+    }
+
+    /**
+     * Reads every book from a text file, handing the books of each range to a handler
+     * in file order. Only a few ranges beyond the one being handled are parsed ahead,
+     * so memory use does not grow with the size of the file.
+     * @param path Path to the text file.
+     * @param handler RangeHandler receiving the books of each range on the calling thread.
+     * @throws IOException Thrown if the file cannot be read or decoded.
+     * @throws InterruptedException Thrown if the calling thread is interrupted.
+     */
+    public void read(Path path, RangeHandler handler) throws IOException, InterruptedException {
+        read(path, 0, handler);
+    }
+
+    /**
+     * Reads the books from a position in a text file to its end, handing the books of
+     * each range to a handler in file order. The position must be the start of a line,
+     * such as one returned by getPosition, and line counts start from it.
+     * @param path Path to the text file.
+     * @param startOffset Long position in bytes of the first line to read.
+     * @param handler RangeHandler receiving the books of each range on the calling thread.
+     * @throws IOException Thrown if the file cannot be read or decoded.
+     * @throws InterruptedException Thrown if the calling thread is interrupted.
+     */
+    public void read(Path path, long startOffset, RangeHandler handler) throws IOException, InterruptedException {
+        linesRead = 0;
+        linesRejected = 0;
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = MappedBookReader.skipLineFeed(channel, startOffset);
+            this.position = position;
+            ArrayDeque<Future<RangeResult>> pending = new ArrayDeque<>();
+
+            while (position < size || !pending.isEmpty()) {
+                while (position < size && pending.size() < parallelism * 2) {
+                    long start = position;
+                    long end = findRangeEnd(channel, start, size);
+                    pending.add(pool.submit(() -> parseRange(channel, start, end)));
+                    position = end;
+                }
+
+                RangeResult result = await(pending.poll());
+                linesRead += result.linesRead;
+                linesRejected += result.linesRejected;
+                this.position = result.end;
+                handler.accept(result.books);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Waits for a range to be parsed.
+     * @param future Future of the parsed range.
+     * @return RangeResult of the range.
+     * @throws IOException Thrown if the range could not be read or decoded.
+     * @throws InterruptedException Thrown if the calling thread is interrupted.
+     */
+    private static RangeResult await(Future<RangeResult> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Finds where a range starting at a position ends, which is just after the first
+     * line feed at or after the approximate range size, or the end of the file.
+     * @param channel FileChannel of the text file.
+     * @param start Long position the range starts at.
+     * @param size Long size of the file.
+     * @return Long position after the last byte of the range.
+     * @throws IOException Thrown if the file cannot be read.
+     */
+    private long findRangeEnd(FileChannel channel, long start, long size) throws IOException {
+        long position = start + rangeSize - 1;
+        if (position >= size - 1) {
+            return size;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(SEARCH_BUFFER_SIZE);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+
+        return size;
+    }
+
+    /**
+     * Maps and parses one range of the file with a MappedBookReader, which decodes
+     * only the fields kept on each book.
+     * @param channel FileChannel of the text file.
+     * @param start Long position of the first byte of the range.
+     * @param end Long position after the last byte of the range.
+     * @return RangeResult containing the range's books and line counts.
+     * @throws IOException Thrown if the range cannot be read or decoded.
+     * @throws InterruptedException Thrown if the parsing thread is interrupted.
+     */
+    private RangeResult parseRange(FileChannel channel, long start, long end)
+            throws IOException, InterruptedException {
+        int length = (int) (end - start);
+        MappedByteBuffer range = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+
+        MappedBookReader reader = new MappedBookReader(encoding);
+        RangeResult result = new RangeResult(end);
+        reader.parse(range, length, start, result.books::add);
+
+        result.linesRead = reader.getLinesRead();
+        result.linesRejected = reader.getLinesRejected();
+        return result;
+    }
+
+    /**
+     * Counts the lines read by the last read.
+     * @return Long number of lines read.
+     */
+    public long getLinesRead() {
+        return linesRead;
+    }
+
+    /**
+     * Counts the lines of the last read that could not be converted into books.
+     * @return Long number of rejected lines.
+     */
+    public long getLinesRejected() {
+        return linesRejected;
+    }
+
+    /**
+     * Provides the position in the file after the last range read, which a later read can start from.
+     * While a RangeHandler runs, this is the position after the range being handled.
+     * @return Long position in bytes.
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Books and line counts parsed from one range of the file.
+     */
+    private static class RangeResult {
+        /** Position in the file after the last byte of the range.*/
+        private final long end;
+        /** Books in the order they appear in the range.*/
+        private final List<Book> books = new ArrayList<>();
+        /** Number of lines in the range.*/
+        private long linesRead;
+        /** Number of lines in the range that could not be converted into books.*/
+        private long linesRejected;
+
+        private RangeResult(long end) {
+            this.end = end;
+        }
+    }
+}
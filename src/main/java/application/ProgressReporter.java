@@ -0,0 +1,63 @@
+package application;
+
+import controller.IBookController;
+
+/**
+ * This class sends import progress to the controller layer no more often than a
+ * fixed interval, however often the import reports it. The final progress of an
+ * import is always sent.
+ * @author Elise Kidroske
+ */
+public class ProgressReporter {
+    /** Minimum time in nanoseconds between progress updates unless another interval is provided.*/
+    public static final long DEFAULT_INTERVAL_NANOS = 100_000_000L;
+
+    /** Receives the progress updates.*/
+    private final IBookController bookController;
+    /** Number of rows the source contains, or -1 if it is not known.*/
+    private final long totalRows;
+    /** Minimum time in nanoseconds between progress updates.*/
+    private final long intervalNanos;
+    /** Time in nanoseconds the import started.*/
+    private final long startNanos = System.nanoTime();
+    /** Time in nanoseconds the last update was sent.*/
+    private long lastReportNanos = startNanos;
+
+    public ProgressReporter(IBookController bookController, long totalRows) {
+        this(bookController, totalRows, DEFAULT_INTERVAL_NANOS);
+    }
+
+    public ProgressReporter(IBookController bookController, long totalRows, long intervalNanos) {
+        this.bookController = bookController;
+        this.totalRows = totalRows;
+        this.intervalNanos = intervalNanos;
+    }
+
+    /**
+     * Sends the import's progress if the interval has passed since the last update.
+     * @param rowsRead Long number of rows read from the source.
+     * @param rowsRejected Long number of rows that could not be converted into books.
+     * @param rowsInserted Long number of books committed to the library database.
+     */
+    public void report(long rowsRead, long rowsRejected, long rowsInserted) {
+        long now = System.nanoTime();
+        if (now - lastReportNanos < intervalNanos) {
+            return;
+        }
+
+        lastReportNanos = now;
+        bookController.updateProgress(new ImportProgress(rowsRead, rowsRejected, rowsInserted,
+                totalRows, now - startNanos, false));
+    }
+
+    /**
+     * Sends the import's final progress.
+     * @param rowsRead Long number of rows read from the source.
+     * @param rowsRejected Long number of rows that could not be converted into books.
+     * @param rowsInserted Long number of books committed to the library database.
+     */
+    public void finish(long rowsRead, long rowsRejected, long rowsInserted) {
+        bookController.updateProgress(new ImportProgress(rowsRead, rowsRejected, rowsInserted,
+                totalRows, System.nanoTime() - startNanos, true));
+    }
+}
@@ -0,0 +1,148 @@
+package application;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * This class opens user-provided text files for reading, decompressing gzip files
+ * as they are read instead of writing them to disk first. Compressed files are
+ * recognized by their contents rather than their name.
+ * @author Elise Kidroske
+ */
+public final class TextFiles {
+    /** Size in bytes of the buffer compressed input is read into.*/
+    private static final int GZIP_BUFFER_SIZE = 256 * 1024;
+    /** Size in characters of the buffer decompressed text is read into.*/
+    private static final int READER_BUFFER_SIZE = 64 * 1024;
+    /** First byte of every gzip member.*/
+    private static final int GZIP_MAGIC_FIRST = 0x1f;
+    /** Second byte of every gzip member.*/
+    private static final int GZIP_MAGIC_SECOND = 0x8b;
+    /** Number of bytes hashed from each end of a file when fingerprinting it.*/
+    private static final int FINGERPRINT_SAMPLE_SIZE = 64 * 1024;
+
+    private TextFiles() {
+    }
+
+    /**
+     * Determines whether a file is gzip compressed by reading its first two bytes.
+     * @param path Path to the file.
+     * @return True if the file starts with the gzip magic number, false otherwise.
+     * @throws IOException Thrown if the file cannot be read.
+     */
+    public static boolean isGzip(Path path) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(2);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Keep reading until both bytes arrive or the file ends
+            }
+        }
+
+        return header.position() == 2 &&
+                (header.get(0) & 0xFF) == GZIP_MAGIC_FIRST &&
+                (header.get(1) & 0xFF) == GZIP_MAGIC_SECOND;
+    }
+
+    /**
+     * Determines whether a file can be scanned as bytes by MappedBookReader and
+     * ParallelBookReader, which requires an uncompressed file in a supported encoding.
+     * @param path Path to the file.
+     * @param encoding Charset of the text.
+     * @return True if the file can be mapped, false otherwise.
+     * @throws IOException Thrown if the file cannot be read.
+     */
+    public static boolean canMap(Path path, Charset encoding) throws IOException {
+        return ParallelBookReader.supports(encoding) && !isGzip(path);
+    }
+
+    /**
+     * Hashes a file's size together with the bytes at its start and end. Hashing the
+     * whole file would take as long as reading it, so this only samples enough of the
+     * file to tell it apart from a replaced or edited version with the same size and
+     * modification time.
+     * @param path Path to the file.
+     * @return String hexadecimal SHA-256 hash of the file's size and sampled bytes.
+     * @throws IOException Thrown if the file cannot be read.
+     */
+    public static String fingerprint(Path path) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            digest.update(ByteBuffer.allocate(Long.BYTES).putLong(0, size));
+
+            ByteBuffer sample = ByteBuffer.allocate(FINGERPRINT_SAMPLE_SIZE);
+            hashRange(channel, 0, sample, digest);
+            if (size > FINGERPRINT_SAMPLE_SIZE) {
+                hashRange(channel, Math.max(FINGERPRINT_SAMPLE_SIZE, size - FINGERPRINT_SAMPLE_SIZE), sample, digest);
+            }
+        }
+
+        StringBuilder hash = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hash.append(String.format("%02x", b));
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Adds the bytes of a file from a position to the digest, up to the buffer's capacity.
+     * @param channel FileChannel of the file.
+     * @param position Long position of the first byte to hash.
+     * @param buffer ByteBuffer the bytes are read into.
+     * @param digest MessageDigest receiving the bytes.
+     * @throws IOException Thrown if the file cannot be read.
+     */
+    private static void hashRange(FileChannel channel, long position, ByteBuffer buffer, MessageDigest digest)
+            throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) > 0) {
+            // Keep reading until the buffer is full or the file ends
+        }
+
+        buffer.flip();
+        digest.update(buffer);
+    }
+
+    /**
+     * Opens a text file for reading line by line, decompressing it as it is read if it
+     * is gzip compressed. Files made of several concatenated gzip members are read
+     * to the end of the last member. Malformed input is reported as with
+     * Files.newBufferedReader.
+     * @param path Path to the file.
+     * @param encoding Charset of the text.
+     * @return BufferedReader over the text of the file.
+     * @throws IOException Thrown if the file cannot be opened or its gzip header is invalid.
+     */
+    public static BufferedReader newBufferedReader(Path path, Charset encoding) throws IOException {
+        if (!isGzip(path)) {
+            return Files.newBufferedReader(path, encoding);
+        }
+
+        InputStream input = Files.newInputStream(path);
+        try {
+            InputStream decompressed = new GZIPInputStream(input, GZIP_BUFFER_SIZE);
+            return new BufferedReader(new InputStreamReader(decompressed, encoding.newDecoder()), READER_BUFFER_SIZE);
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package controller;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * This class runs the controller's work with the library database and user-provided
+ * files off the JavaFX application thread, so queries and file reads never stall
+ * rendering or input. Reads, such as finding books or loading the collection, run on
+ * a small pool of threads. Changes to the library database run one at a time on a
+ * single writer thread in the order they were submitted, so two changes to the same
+ * book, such as a check out followed by a check in, are always applied in the order
+ * the user made them. Imports run on the writer too, so a change made during an import
+ * waits for it instead of racing it. Results are handed back on the JavaFX thread.
+ * @author Elise Kidroske
+ */
+public class BackgroundTasks implements AutoCloseable {
+    /** Number of threads running reads unless another number is provided.*/
+    public static final int DEFAULT_READ_THREADS = 2;
+
+    /** Runs reads, several at a time.*/
+    private final ExecutorService readExecutor;
+    /** Runs changes to the library database one at a time, in the order they were submitted.*/
+    private final ExecutorService writeExecutor;
+    /** Runs the results of tasks, normally on the JavaFX thread.*/
+    private final Executor resultExecutor;
+
+    public BackgroundTasks() {
+        this(DEFAULT_READ_THREADS, Platform::runLater);
+    }
+
+    public BackgroundTasks(int readThreads, Executor resultExecutor) {
+        this.readExecutor = Executors.newFixedThreadPool(Math.max(1, readThreads), threadFactory("library-read"));
+        this.writeExecutor = Executors.newSingleThreadExecutor(threadFactory("library-write"));
+        this.resultExecutor = resultExecutor;
+    }
+
+    /**
+     * Creates daemon threads, so running tasks never keep the application from exiting.
+     * @param name String prefix of the thread names.
+     * @return ThreadFactory naming each thread after the prefix and its number.
+     */
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger threadCount = new AtomicInteger();
+
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Runs a read in the background and hands its result to the result executor.
+     * Reads may run at the same time as each other and as changes.
+     * @param task Callable reading from the library database or a file.
+     * @param onResult Consumer of the result, run on the JavaFX thread. Not run if the task fails.
+     * @param <T> Type of the result.
+     */
+    public <T> void read(Callable<T> task, Consumer<T> onResult) {
+        readExecutor.execute(() -> {
+            try {
+                T result = task.call();
+                resultExecutor.execute(() -> onResult.accept(result));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Runs a read in the background whose results are sent to the controller by the task itself.
+     * @param task Runnable reading from the library database or a file.
+     */
+    public void read(Runnable task) {
+        readExecutor.execute(guard(task));
+    }
+
+    /**
+     * Runs a change to the library database in the background once every change
+     * submitted before it has finished. A lookup that the change depends on should run
+     * in the same task, so no earlier change can be missed by it.
+     * @param task Runnable changing the library database.
+     */
+    public void write(Runnable task) {
+        writeExecutor.execute(guard(task));
+    }
+
+    /**
+     * Wraps a task so a failure is printed instead of ending the thread running it.
+     * @param task Runnable to wrap.
+     * @return Runnable running the task.
+     */
+    private static Runnable guard(Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        };
+    }
+
+    /**
+     * Stops accepting tasks and waits briefly for changes already submitted to finish,
+     * so none is lost when the application closes.
+     */
+    @Override
+    public void close() {
+        readExecutor.shutdownNow();
+        writeExecutor.shutdown();
+
+        try {
+            if (!writeExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                writeExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            writeExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package controller;
+
+import domain.Book;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class describes a change to the library's collection so that the controller
+ * layer can patch the books it displays instead of reloading the whole collection.
+ * Removed books are identified by their barcode.
+ * @author Elise Kidroske
+ */
+public class BookChanges {
+    /** Books newly added to the library database.*/
+    private final List<Book> addedBooks;
+    /** Books whose information changed in the library database.*/
+    private final List<Book> updatedBooks;
+    /** Barcodes of books removed from the library database.*/
+    private final List<Integer> removedBarcodes;
+
+    public BookChanges(List<Book> addedBooks, List<Book> updatedBooks, List<Integer> removedBarcodes) {
+        this.addedBooks = addedBooks;
+        this.updatedBooks = updatedBooks;
+        this.removedBarcodes = removedBarcodes;
+    }
+
+    /**
+     * Creates a change containing only added books.
+     * @param books Book List of books added to the library database.
+     * @return BookChanges describing the additions.
+     */
+    public static BookChanges added(List<Book> books) {
+        return new BookChanges(books, Collections.emptyList(), Collections.emptyList());
+    }
+
+    /**
+     * Creates a change containing only updated books.
+     * @param books Book List of books updated in the library database.
+     * @return BookChanges describing the updates.
+     */
+    public static BookChanges updated(List<Book> books) {
+        return new BookChanges(Collections.emptyList(), books, Collections.emptyList());
+    }
+
+    /**
+     * Creates a change containing only removed books.
+     * @param barcodes Integer List of barcodes removed from the library database.
+     * @return BookChanges describing the removals.
+     */
+    public static BookChanges removed(List<Integer> barcodes) {
+        return new BookChanges(Collections.emptyList(), Collections.emptyList(), barcodes);
+    }
+
+    public List<Book> getAddedBooks() {
+        return addedBooks;
+    }
+
+    public List<Book> getUpdatedBooks() {
+        return updatedBooks;
+    }
+
+    public List<Integer> getRemovedBarcodes() {
+        return removedBarcodes;
+    }
+
+    /**
+     * Determines whether the change contains anything to apply.
+     * @return True if no books were added, updated, or removed, false otherwise.
+     */
+    public boolean isEmpty() {
+        return addedBooks.isEmpty() && updatedBooks.isEmpty() && removedBarcodes.isEmpty();
+    }
+}
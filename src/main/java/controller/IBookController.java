@@ -1,5 +1,8 @@
 package controller;
 
+import application.ImportPreview;
+import application.ImportProgress;
+import database.BookFilter;
 import domain.Book;
 import java.util.ArrayList;
 
@@ -29,11 +32,33 @@ public interface IBookController {
     void invokeDeleteConfirmation(String message, Book book);
 
     /**
-     * Used to update the controller's observable list.
+     * Used to get a single confirmation from the user before deleting every book
+     * selected by the provided filter.
+     * @param message String confirmation message.
+     * @param filter BookFilter selecting the books to be deleted.
+     */
+    void invokeBulkDeleteConfirmation(String message, BookFilter filter);
+
+    /**
+     * Used to replace the controller's observable list with a full reload of the
+     * library database.
      * @param updatedBooks Book ArrayList containing books from the library database.
      */
     void updateContent(ArrayList<Book> updatedBooks);
 
+    /**
+     * Used to patch the controller's observable list after books were added,
+     * updated, or removed.
+     * @param changes BookChanges describing what changed in the library database.
+     */
+    void applyChanges(BookChanges changes);
+
+    /**
+     * Used to read the displayed collection again after too many books changed for the
+     * controller's observable list to be patched one book at a time.
+     */
+    void reloadContent();
+
     /**
      * Used to display new books provided by the user before adding them to the
      * library database.
@@ -41,4 +66,18 @@ public interface IBookController {
      */
     void invokePreview(ArrayList<Book> newBooks);
 
+    /**
+     * Used to display the first books of a large text file and a summary of the
+     * whole file before importing it into the library database as a stream.
+     * @param preview ImportPreview describing the text file.
+     */
+    void invokeImportPreview(ImportPreview preview);
+
+    /**
+     * Used to display the progress of an import into the library database. Updates
+     * are limited to a few per second and may arrive on the thread running the import.
+     * @param progress ImportProgress describing how far the import has come.
+     */
+    void updateProgress(ImportProgress progress);
+
 }
@@ -13,6 +13,9 @@ import java.io.IOException;
  * @author Elise Kidroske
  */
 public class LibraryApplication extends Application {
+    /** Controller of the main window, shut down once the application closes.*/
+    private LibraryController controller;
+
     /**
      * Initializes the user interface and creates the application window.
      * @param stage Top-level container for the JavaFX application.
@@ -26,6 +29,7 @@ public class LibraryApplication extends Application {
         int preferredWindowHeight = 725;
 
         Scene scene = new Scene(fxmlLoader.load(), preferredWindowWidth, preferredWindowHeight);
+        controller = fxmlLoader.getController();
 
         try {
             scene.getStylesheets().add(getClass().getResource("/styles/library-management.css").toExternalForm());
@@ -38,6 +42,16 @@ public class LibraryApplication extends Application {
         stage.show();
     }
 
+    /**
+     * Stops the controller's background work.
+     */
+    @Override
+    public void stop() {
+        if (controller != null) {
+            controller.shutdown();
+        }
+    }
+
     /**
      * Launches the application.
      * @param args String array containing command line arguments
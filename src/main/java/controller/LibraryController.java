@@ -1,9 +1,17 @@
 package controller;
 
+import application.CancellationToken;
+import application.ImportPreview;
+import application.ImportProgress;
 import application.LibraryCore;
+import database.BookFilter;
+import database.DatabaseManager;
 import database.SQLForm;
 import domain.Book;
+import javafx.application.Platform;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.HBox;
 import presentation.*;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -11,17 +19,27 @@ import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.ListView;
+import javafx.scene.control.SelectionMode;
 import javafx.scene.control.TextField;
 import javafx.stage.FileChooser;
 
 import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * This class processes and responds to user interaction with the user interface.
  * This class manages the flow of information between the user and the application
- * layer.
+ * layer. Work with the library database and user-provided files runs in the
+ * background, and the user interface is only changed on the JavaFX thread.
  * @author Elise Kidroske
  */
 public class LibraryController implements IBookController {
@@ -56,16 +74,38 @@ public class LibraryController implements IBookController {
     /** Displays the due date of the selected book.*/
     @FXML
     public Label bookDueDateText;
+    /** Contains the progress of a running import. Hidden while no import runs.*/
+    @FXML
+    public HBox importProgressBox;
+    /** Displays how much of the source a running import has read.*/
+    @FXML
+    public ProgressBar importProgressBar;
+    /** Displays the number of rows a running import has read, rejected, and added.*/
+    @FXML
+    public Label importProgressText;
 
     /** Represents the application layer. Enforces business logic, processes
      * exchanges of external data, and communicates with the database layer.*/
     private LibraryCore libraryCore;
     /** Stores Book objects from the library database for display in the ListView.*/
     private ObservableList<Book> observableBooks;
+    /** Runs reads and changes of the library database off the JavaFX thread.*/
+    private final BackgroundTasks backgroundTasks = new BackgroundTasks();
+    /** Number of times the collection has been displayed. Pages of an older display are dropped.*/
+    private int displayGeneration;
+    /** Whether pages of the current display are still being read.*/
+    private boolean loadingBooks;
+    /** Barcode of the last book read by the current display, or BEFORE_FIRST_BARCODE before its first page.*/
+    private int lastLoadedBarcode = DatabaseManager.BEFORE_FIRST_BARCODE;
 
     /** Represents the selected book in the ListView.*/
     private Book selectedBook;
 
+    /** Stops the running import, or null if no import runs. Only used on the JavaFX thread.*/
+    private CancellationToken importToken;
+    /** Latest progress not yet displayed. Updates arriving before it is displayed replace it.*/
+    private final AtomicReference<ImportProgress> pendingProgress = new AtomicReference<>();
+
     /**
      * Initializes the application layer and the user interface components.
      */
@@ -77,6 +117,7 @@ public class LibraryController implements IBookController {
         observableBooks = FXCollections.observableList(books);
 
         bookList.setCellFactory(new BookCellFactory());
+        bookList.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
 
         bookList.getSelectionModel().selectedItemProperty().addListener((observableValue, oldBook, newBook) -> {
             if (newBook != null) {
@@ -142,24 +183,37 @@ public class LibraryController implements IBookController {
     /**
      * Evaluates a user's request to delete a book. Attempts retrieval of a book object
      * from the internal database. If the book exists, will seek user confirmation on the
-     * delete request.
+     * delete request. If several books are selected they are deleted together after a
+     * single confirmation.
      * @param event On click event triggered by user.
      */
     public void onRemoveBook(ActionEvent event) {
-        Book book;
+        if (bookList.getSelectionModel().getSelectedItems().size() > 1) {
+            List<Integer> barcodes = new ArrayList<>();
+            for (Book selected : bookList.getSelectionModel().getSelectedItems()) {
+                barcodes.add(selected.getBarcode());
+            }
+
+            BookFilter filter = new BookFilter(barcodes);
+            backgroundTasks.read(() -> libraryCore.requestBulkRemoval(filter, this));
+            return;
+        }
+
+        Callable<Book> findBook;
 
         if (selectedBook != null) {
-            book = selectedBook;
+            Book book = selectedBook;
+            findBook = () -> book;
         } else {
             String bookTitle = removeBookByTitle.getText().trim();
             String bookBarcode = removeBookByBarcode.getText().trim();
 
             if (!bookTitle.isEmpty()) {
-                book = libraryCore.findBookByTitle(bookTitle);
+                findBook = () -> libraryCore.findBookByTitle(bookTitle);
             } else if (!bookBarcode.isEmpty()) {
                 try {
                     int barcode = Integer.parseInt(bookBarcode);
-                    book = libraryCore.findBookByBarcode(barcode);
+                    findBook = () -> libraryCore.findBookByBarcode(barcode);
                 } catch (NumberFormatException e) {
                     this.invokeError("Barcode must be an numeric value.");
                     return;
@@ -169,91 +223,108 @@ public class LibraryController implements IBookController {
             }
         }
 
-        if (book == null) {
-            this.invokeError("This book does not match any books in the library's collection.");
-            return;
-        }
+        backgroundTasks.read(findBook, book -> {
+            if (book == null) {
+                this.invokeError("This book does not match any books in the library's collection.");
+                return;
+            }
 
-        this.invokeDeleteConfirmation("Are you sure you want to delete " +
-                book.getTitle() + "\nfrom the library", book);
+            this.invokeDeleteConfirmation("Are you sure you want to delete " +
+                    book.getTitle() + "\nfrom the library", book);
+        });
     }
 
     /**
      * Responds to the user's request to check out a book. If the proper information is
-     * given, instructs the application layer to process the request.
+     * given, instructs the application layer to process the request. If several books
+     * are selected they are checked out together.
      * @param event On click event triggered by user.
      */
     public void onCheckOutBooks(ActionEvent event) {
-        Book book;
-
-        if (selectedBook != null) {
-            book = selectedBook;
-        } else {
-            String bookTitle = checkBooksField.getText().trim();
-            if (bookTitle.isEmpty()) {
-                return;
-            }
-
-            book = libraryCore.findBookByTitle(bookTitle);
+        if (bookList.getSelectionModel().getSelectedItems().size() > 1) {
+            List<Book> books = new ArrayList<>(bookList.getSelectionModel().getSelectedItems());
+            backgroundTasks.write(() -> libraryCore.checkOutBooks(books, this));
+            return;
         }
 
-        if (book == null) {
-            this.invokeError("This book does not match any books in the library's collection.");
+        Book selected = selectedBook;
+        String bookTitle = checkBooksField.getText().trim();
+        if (selected == null && bookTitle.isEmpty()) {
             return;
         }
 
-        libraryCore.checkOutBook(book, this);
+        // The book is read again on the writer, so an earlier change to it is seen first
+        backgroundTasks.write(() -> {
+            Book book = selected != null ? libraryCore.findBookByBarcode(selected.getBarcode()) :
+                    libraryCore.findBookByTitle(bookTitle);
+
+            if (book == null) {
+                this.invokeError("This book does not match any books in the library's collection.");
+                return;
+            }
+
+            libraryCore.checkOutBook(book, this);
+        });
     }
 
     /**
      * Responds to the user's request to check in a book. If the proper information is
-     * given, instructs the application layer to process the request.
+     * given, instructs the application layer to process the request. If several books
+     * are selected they are checked in together.
      * @param event On click event triggered by user.
      */
     public void onCheckInBooks(ActionEvent event) {
-        Book book;
+        if (bookList.getSelectionModel().getSelectedItems().size() > 1) {
+            List<Book> books = new ArrayList<>(bookList.getSelectionModel().getSelectedItems());
+            backgroundTasks.write(() -> libraryCore.checkInBooks(books, this));
+            return;
+        }
 
-        if (selectedBook != null) {
-            book = selectedBook;
-        } else {
-            String bookTitle = checkBooksField.getText().trim();
-            if (bookTitle.isEmpty()) {
-                return;
-            }
+        Book selected = selectedBook;
+        String bookTitle = checkBooksField.getText().trim();
+        if (selected == null && bookTitle.isEmpty()) {
+            return;
+        }
 
-            book = libraryCore.findBookByTitle(bookTitle);
+        // The book is read again on the writer, so an earlier change to it is seen first
+        backgroundTasks.write(() -> {
+            Book book = selected != null ? libraryCore.findBookByBarcode(selected.getBarcode()) :
+                    libraryCore.findBookByTitle(bookTitle);
 
             if (book == null) {
                 this.invokeError("The title you entered does not match any books in the library's collection.");
                 return;
             }
-        }
 
-        libraryCore.checkInBook(book, this);
+            libraryCore.checkInBook(book, this);
+        });
     }
 
     /**
      * Prompts user to provide a text file using a FileChooser. Instructs the application layer
-     * to process the provided file for Book objects.
+     * to process the provided file for Book objects in the background.
      * @param event On click event triggered by user.
      */
     public void onAddBooksFromFileClick(ActionEvent event) {
         FileChooser fileChooser = new FileChooser();
 
         fileChooser.setTitle("Open Text File");
-        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Text Files", "*.txt"));
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Text Files", "*.txt", "*.txt.gz"));
 
         File selectedFile = fileChooser.showOpenDialog(null);
 
         if (selectedFile != null) {
-            libraryCore.getBooksFromTextFile(selectedFile.getAbsolutePath(), this);
+            String path = selectedFile.getAbsolutePath();
+            backgroundTasks.read(() -> libraryCore.getBooksFromTextFile(path, this));
         }
     }
 
     /**
      * Launches a dialog to obtain database connection information from the user
      * for an external database. Instructs the application layer to attempt connection
-     * with the provided database to process Book objects.
+     * with the provided database to process Book objects. The database is read in the
+     * background, and the books are previewed once the read completes. Forms naming a
+     * watermark column sync the rows changed since the last sync in the background instead.
      * @param event On click event triggered by user.
      */
     public void onAddBooksFromDatabaseClick(ActionEvent event) {
@@ -263,7 +334,12 @@ public class LibraryController implements IBookController {
         if (databaseForm.getResult() == ButtonType.OK) {
             try {
                 SQLForm form = (SQLForm) databaseForm.getDialogPane().getUserData();
-                libraryCore.getBooksFromDatabase(form, this);
+                if (form.getWatermarkColumn() != null) {
+                    runImport(token -> libraryCore.syncBooksFromDatabase(form, token, this));
+                    return;
+                }
+                runImport("Reading from database...",
+                        token -> libraryCore.getBooksFromDatabase(form, token, this));
             } catch (Exception e) {
                 this.invokeError("There was an issue processing your form. Please try again.");
             }
@@ -271,16 +347,119 @@ public class LibraryController implements IBookController {
     }
 
     /**
-     * Displays the library's collection to the Book ListView.
+     * Stops the running import or database read. Books committed before it stops remain in the library database.
+     * @param event On click event triggered by user.
+     */
+    public void onCancelImport(ActionEvent event) {
+        if (importToken != null) {
+            importToken.cancel();
+            importProgressText.setText("Cancelling...");
+        }
+    }
+
+    /**
+     * Runs an import in the background while its progress is displayed. Only one
+     * import runs at a time.
+     * @param importTask Consumer running the import with the token that stops it.
+     */
+    private void runImport(Consumer<CancellationToken> importTask) {
+        runImport("Starting import...", importTask);
+    }
+
+    /**
+     * Runs an import or read on the writer while its progress is displayed, starting with
+     * the provided text. Only one runs at a time. Running on the writer orders it with
+     * every other change to the library database, so changes made during an import wait
+     * for it to finish, and every book added while it runs is added by it.
+     * @param startText String displayed until the first progress arrives.
+     * @param importTask Consumer running the import with the token that stops it.
+     */
+    private void runImport(String startText, Consumer<CancellationToken> importTask) {
+        if (importToken != null) {
+            invokeError("Another import is still running.");
+            return;
+        }
+
+        CancellationToken token = new CancellationToken();
+        importToken = token;
+        importProgressBar.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
+        importProgressText.setText(startText);
+        importProgressBox.setVisible(true);
+        importProgressBox.setManaged(true);
+
+        backgroundTasks.write(() -> {
+            try {
+                importTask.accept(token);
+            } finally {
+                Platform.runLater(() -> {
+                    importToken = null;
+                    importProgressBox.setVisible(false);
+                    importProgressBox.setManaged(false);
+                });
+            }
+        });
+    }
+
+    /**
+     * Displays the library's collection to the Book ListView. Pages are read in the
+     * background and added to the ListView as each arrives.
      * @param event On click event triggered by user.
      */
     public void onDisplayBooks(ActionEvent event) {
-        ArrayList<Book> books = libraryCore.getLibraryBooks();
+        displayBooks();
+    }
 
+    /**
+     * Clears the Book ListView and reads the library's collection into it from the first page.
+     */
+    private void displayBooks() {
+        int generation = ++displayGeneration;
+        loadingBooks = true;
+        lastLoadedBarcode = DatabaseManager.BEFORE_FIRST_BARCODE;
         observableBooks.clear();
-        observableBooks.addAll(books);
-
         bookList.setItems(observableBooks);
+
+        loadBooksPage(generation, DatabaseManager.BEFORE_FIRST_BARCODE);
+    }
+
+    /**
+     * Reads the next page of the library's collection in the background and adds it to
+     * the ListView, then reads the page after it. Stops once the collection has been read,
+     * or the collection is displayed again.
+     * @param generation Int display the page belongs to.
+     * @param afterBarcode Int barcode the page starts after.
+     */
+    private void loadBooksPage(int generation, int afterBarcode) {
+        backgroundTasks.read(() -> libraryCore.getLibraryBooksPage(afterBarcode), page -> {
+            if (generation != displayGeneration) {
+                return;
+            }
+            if (page == null) {
+                loadingBooks = false;
+                this.invokeError("Unable to read every book from the library database.");
+                return;
+            }
+            if (page.isEmpty()) {
+                loadingBooks = false;
+                return;
+            }
+
+            observableBooks.addAll(page);
+            lastLoadedBarcode = page.get(page.size() - 1).getBarcode();
+            loadBooksPage(generation, lastLoadedBarcode);
+        });
+    }
+
+    /**
+     * Stops the background work once the application closes, letting changes already
+     * submitted finish first, then closes the application layer's database connections.
+     */
+    public void shutdown() {
+        if (importToken != null) {
+            importToken.cancel();
+        }
+        backgroundTasks.close();
+        libraryCore.close();
     }
 
     /**
@@ -322,6 +501,11 @@ public class LibraryController implements IBookController {
      */
     @Override
     public void invokeMessage(String message) {
+        if (!Platform.isFxApplicationThread()) {
+            Platform.runLater(() -> invokeMessage(message));
+            return;
+        }
+
         MessageDialog messageDialog = new MessageDialog(message, MessageType.INFORMATIVE);
         messageDialog.show();
     }
@@ -332,6 +516,11 @@ public class LibraryController implements IBookController {
      */
     @Override
     public void invokeError(String message) {
+        if (!Platform.isFxApplicationThread()) {
+            Platform.runLater(() -> invokeError(message));
+            return;
+        }
+
         MessageDialog errorDialog = new MessageDialog(message, MessageType.ERROR);
         errorDialog.show();
     }
@@ -343,13 +532,40 @@ public class LibraryController implements IBookController {
      */
     @Override
     public void invokeDeleteConfirmation(String message, Book book) {
+        if (!Platform.isFxApplicationThread()) {
+            Platform.runLater(() -> invokeDeleteConfirmation(message, book));
+            return;
+        }
+
+        ConfirmationDialog confirmationDialog = new ConfirmationDialog(message);
+        confirmationDialog.showAndWait();
+
+        ButtonType result = confirmationDialog.getResult();
+
+        if (result != null && result.equals(ButtonType.OK)) {
+            backgroundTasks.write(() -> libraryCore.removeBookFromCollection(book, this));
+        }
+    }
+
+    /**
+     * Asks the user for a single confirmation before deleting every book selected by a filter.
+     * @param message String confirmation message to display.
+     * @param filter BookFilter selecting the books to be deleted.
+     */
+    @Override
+    public void invokeBulkDeleteConfirmation(String message, BookFilter filter) {
+        if (!Platform.isFxApplicationThread()) {
+            Platform.runLater(() -> invokeBulkDeleteConfirmation(message, filter));
+            return;
+        }
+
         ConfirmationDialog confirmationDialog = new ConfirmationDialog(message);
         confirmationDialog.showAndWait();
 
         ButtonType result = confirmationDialog.getResult();
 
         if (result != null && result.equals(ButtonType.OK)) {
-            libraryCore.removeBookFromCollection(book, this);
+            backgroundTasks.write(() -> libraryCore.removeBooksFromCollection(filter, this));
         }
     }
 
@@ -360,6 +576,11 @@ public class LibraryController implements IBookController {
      */
     @Override
     public void updateContent(ArrayList<Book> updatedBooks) {
+        if (!Platform.isFxApplicationThread()) {
+            Platform.runLater(() -> updateContent(updatedBooks));
+            return;
+        }
+
         int selectedId = -1;
         if (selectedBook != null) {
             selectedId = selectedBook.getBarcode();
@@ -373,6 +594,75 @@ public class LibraryController implements IBookController {
         }
     }
 
+    /**
+     * Patches the ListView in place with books that were added, updated, or removed
+     * instead of reloading the library database. While the collection is still being
+     * displayed, added books after the last page read are left for their page to add.
+     * @param changes BookChanges describing what changed in the library database.
+     */
+    @Override
+    public void applyChanges(BookChanges changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        if (!Platform.isFxApplicationThread()) {
+            Platform.runLater(() -> applyChanges(changes));
+            return;
+        }
+
+        int selectedId = -1;
+        if (selectedBook != null) {
+            selectedId = selectedBook.getBarcode();
+        }
+
+        if (!changes.getRemovedBarcodes().isEmpty()) {
+            Set<Integer> removedBarcodes = new HashSet<>(changes.getRemovedBarcodes());
+            observableBooks.removeIf(book -> removedBarcodes.contains(book.getBarcode()));
+        }
+
+        if (!changes.getUpdatedBooks().isEmpty()) {
+            Map<Integer, Book> updatedBooks = new HashMap<>();
+            for (Book book : changes.getUpdatedBooks()) {
+                updatedBooks.put(book.getBarcode(), book);
+            }
+
+            for (int i = 0; i < observableBooks.size() && !updatedBooks.isEmpty(); i++) {
+                Book updatedBook = updatedBooks.remove(observableBooks.get(i).getBarcode());
+                if (updatedBook != null) {
+                    observableBooks.set(i, updatedBook);
+                }
+            }
+        }
+
+        for (Book book : changes.getAddedBooks()) {
+            // Books after the last page read are added by a later page of the display
+            if (!loadingBooks || book.getBarcode() <= lastLoadedBarcode) {
+                observableBooks.add(book);
+            }
+        }
+
+        if (selectedId > -1) {
+            setSelectedBook(selectedId);
+        }
+    }
+
+    /**
+     * Reads the library's collection into the ListView again from the first page, unless
+     * the collection has not been displayed yet.
+     */
+    @Override
+    public void reloadContent() {
+        if (!Platform.isFxApplicationThread()) {
+            Platform.runLater(this::reloadContent);
+            return;
+        }
+
+        if (displayGeneration > 0) {
+            displayBooks();
+        }
+    }
+
     /**
      * Displays new books provided by the user and asks the user
      * for confirmation before adding them to the library database.
@@ -380,12 +670,60 @@ public class LibraryController implements IBookController {
      */
     @Override
     public void invokePreview(ArrayList<Book> newBooks) {
+        if (!Platform.isFxApplicationThread()) {
+            Platform.runLater(() -> invokePreview(newBooks));
+            return;
+        }
+
         PreviewBooksDialog previewBooks = new PreviewBooksDialog(newBooks);
         previewBooks.showAndWait();
 
         ButtonType result = previewBooks.getResult();
         if (result != null && result.equals(ButtonType.OK)) {
-            libraryCore.addBooksToDatabase(newBooks, this);
+            runImport(token -> libraryCore.addBooksToDatabase(newBooks, token, this));
+        }
+    }
+
+    /**
+     * Displays the first books of a large text file or external table with a summary of
+     * the whole source and asks the user for confirmation before importing it into the
+     * library database.
+     * @param preview ImportPreview describing the text file or table.
+     */
+    @Override
+    public void invokeImportPreview(ImportPreview preview) {
+        if (!Platform.isFxApplicationThread()) {
+            Platform.runLater(() -> invokeImportPreview(preview));
+            return;
+        }
+
+        PreviewBooksDialog previewBooks = new PreviewBooksDialog(preview.getBooks(), preview.toString());
+        previewBooks.showAndWait();
+
+        ButtonType result = previewBooks.getResult();
+        if (result != null && result.equals(ButtonType.OK)) {
+            runImport(token -> libraryCore.importBooks(preview, token, this));
         }
     }
+
+    /**
+     * Displays the progress of the running import. Updates arriving from the import
+     * thread are coalesced so at most one is waiting for the JavaFX thread at a time.
+     * @param progress ImportProgress describing how far the import has come.
+     */
+    @Override
+    public void updateProgress(ImportProgress progress) {
+        if (pendingProgress.getAndSet(progress) != null) {
+            return;
+        }
+
+        Platform.runLater(() -> {
+            ImportProgress latest = pendingProgress.getAndSet(null);
+            double fraction = latest.getFraction();
+
+            importProgressBar.setProgress(fraction == ImportProgress.UNKNOWN_FRACTION ?
+                    ProgressBar.INDETERMINATE_PROGRESS : fraction);
+            importProgressText.setText(latest.toString());
+        });
+    }
 }
\ No newline at end of file
@@ -0,0 +1,304 @@
+package database;
+
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * This class imports the books of a table in an external SQLite database by attaching
+ * the database file to a library connection and copying its rows with INSERT ... SELECT,
+ * so no row is read into Java objects. Book statuses and due dates are validated by the
+ * same statement, and rows failing validation are counted as rejected. The table is
+ * copied in chunks of rows in rowid order, each committed on its own, so progress can be
+ * reported and the import cancelled between chunks. Each chunk starts after the last rowid
+ * copied, so gaps between rowids never produce empty or oversized chunks. Tables and views
+ * without rowids are copied by a single statement. Obtain an instance from DatabaseManager.openAttachedImport and close
+ * it when done.
+ * @author Elise Kidroske
+ */
+public class AttachedBookImporter implements AutoCloseable {
+    /** Number of rows copied per transaction unless another number is provided.*/
+    public static final int DEFAULT_CHUNK_ROWS = 100_000;
+    /** Name the external database is attached under.*/
+    private static final String SCHEMA = "import_source";
+    /** Name the rowid of each row of a chunk is selected under, as an INTEGER PRIMARY KEY would otherwise rename it.*/
+    private static final String CHUNK_ROWID = "import_rowid";
+    /**
+     * Condition a row of the external table must meet to be imported. Statuses must name a
+     * BookStatus exactly, and due dates must be empty or a valid date written as YYYY-MM-DD.
+     */
+    private static final String VALID_ROW =
+            "book_status IN ('CHECKED_IN', 'CHECKED_OUT') AND " +
+                    "(due_date IS NULL OR TRIM(due_date) = '' OR date(due_date) IS due_date)";
+
+    /** Connection held for the lifetime of the importer.*/
+    private final Connection connection;
+    /** Cache whose title lookups may change because of imported books.*/
+    private final BookCache bookCache;
+    /** Settings restored on the connection once the importer is closed.*/
+    private final SQLiteTuningProfile tuningProfile;
+    /** Number of rows copied per transaction.*/
+    private final int chunkRows;
+    /** Time in nanoseconds the importer was opened.*/
+    private final long startNanos = System.nanoTime();
+    /** Quoted name of the external table within the attached database.*/
+    private final String sourceTable;
+    /** Whether the external table has rowids to copy it in chunks by.*/
+    private final boolean chunked;
+
+    /** Statement copying the current chunk, kept so a running copy can be cancelled.*/
+    private volatile Statement runningStatement;
+    /** Rowid of the last row copied, or null before the first chunk.*/
+    private Long lastCopiedRowid;
+    /** Whether every row has been copied.*/
+    private boolean done;
+    /** Number of rows read from the external table.*/
+    private long rowsRead;
+    /** Number of books committed.*/
+    private long rowsInserted;
+    /** Number of transactions committed.*/
+    private int commits;
+    /** Whether the importer has been closed.*/
+    private boolean closed;
+
+    AttachedBookImporter(Connection connection, BookCache bookCache, SQLiteTuningProfile tuningProfile,
+                         String databaseFilePath, String tableName, int chunkRows) throws SQLException {
+        this.connection = connection;
+        this.bookCache = bookCache;
+        this.tuningProfile = tuningProfile;
+        this.chunkRows = Math.max(1, chunkRows);
+
+        // Large imports run without syncing to disk; the connection's usual settings are
+        // restored once the importer is closed. The profile is applied before attaching,
+        // as its journal mode would otherwise be applied to the read only database too
+        SQLiteTuningProfile.BULK_IMPORT.apply(connection);
+
+        // The external database is opened read only, so the import can never change it
+        try (PreparedStatement attach = connection.prepareStatement("ATTACH DATABASE ? AS " + SCHEMA)) {
+            attach.setString(1, Paths.get(databaseFilePath).toAbsolutePath().toUri() + "?mode=ro");
+            attach.execute();
+        }
+
+        try {
+            String quotedName = ExternalSQLHandler.quoteIdentifier(SQLSourceType.SQLITE, findTableName(tableName));
+            sourceTable = SCHEMA + "." + quotedName;
+
+            chunked = hasRowids();
+
+            connection.setAutoCommit(false);
+        } catch (SQLException e) {
+            detach();
+            throw e;
+        }
+    }
+
+    /**
+     * Finds the exact name of a table or view in the attached database, ignoring letter case as SQLite does.
+     * @param tableName String name of the table entered by the user.
+     * @return String name of the table as it was created.
+     * @throws SQLException Thrown if there is no such table or view.
+     */
+    private String findTableName(String tableName) throws SQLException {
+        String sql = "SELECT name FROM " + SCHEMA + ".sqlite_master " +
+                "WHERE type IN ('table', 'view') AND name = ? COLLATE NOCASE";
+
+        try (PreparedStatement selectName = connection.prepareStatement(sql)) {
+            selectName.setString(1, tableName);
+
+            try (ResultSet resultSet = selectName.executeQuery()) {
+                if (resultSet.next()) {
+                    return resultSet.getString(1);
+                }
+            }
+        }
+
+        throw new SQLException("No such table in the external database: " + tableName);
+    }
+
+    /**
+     * Determines whether the external table has rowids.
+     * @return True if rows can be selected by rowid, false otherwise.
+     */
+    private boolean hasRowids() {
+        try (Statement statement = connection.createStatement()) {
+            return statement.execute("SELECT rowid FROM " + sourceTable + " LIMIT 0");
+        } catch (SQLException e) {
+            // Views and WITHOUT ROWID tables have no rowid, so they are copied in one statement
+            return false;
+        }
+    }
+
+    /**
+     * Counts the rows of the external table.
+     * @return Long number of rows.
+     * @throws SQLException Thrown if the table cannot be read.
+     */
+    public long countRows() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM " + sourceTable)) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Copies the next chunk of rows into the library database and commits it.
+     * @return True if a chunk was copied, false if every row has already been copied.
+     * @throws SQLException Thrown if the chunk cannot be copied or committed, or the
+     * copy was cancelled. The chunk is rolled back.
+     */
+    public boolean copyNextChunk() throws SQLException {
+        if (done) {
+            return false;
+        }
+
+        // The first chunk has no rowid to start after, as rowids may be as small as Long.MIN_VALUE
+        boolean resuming = lastCopiedRowid != null;
+        String chunk = !chunked ? sourceTable : "(SELECT rowid AS " + CHUNK_ROWID + ", * FROM " + sourceTable +
+                (resuming ? " WHERE rowid > ?" : "") + " ORDER BY rowid LIMIT ?)";
+        String countSql = "SELECT COUNT(*)" + (chunked ? ", MAX(" + CHUNK_ROWID + ")" : "") + " FROM " + chunk;
+        String insertSql = "INSERT INTO main.books (title, author, genre, book_status, due_date) " +
+                "SELECT title, author, genre, book_status, " +
+                "CASE WHEN TRIM(due_date) = '' THEN NULL ELSE due_date END FROM " + chunk +
+                " WHERE " + VALID_ROW;
+
+        long chunkRead;
+        try (PreparedStatement countRows = connection.prepareStatement(countSql);
+             PreparedStatement insertBooks = connection.prepareStatement(insertSql)) {
+
+            if (chunked) {
+                int index = 1;
+                if (resuming) {
+                    countRows.setLong(index, lastCopiedRowid);
+                    insertBooks.setLong(index, lastCopiedRowid);
+                    index++;
+                }
+                countRows.setInt(index, chunkRows);
+                insertBooks.setInt(index, chunkRows);
+            }
+
+            Long chunkLastRowid = null;
+            try (ResultSet resultSet = countRows.executeQuery()) {
+                chunkRead = resultSet.next() ? resultSet.getLong(1) : 0;
+                if (chunked && chunkRead > 0) {
+                    chunkLastRowid = resultSet.getLong(2);
+                }
+            }
+
+            if (chunked && chunkRead == 0) {
+                done = true;
+                return false;
+            }
+
+            runningStatement = insertBooks;
+            int chunkInserted;
+            try {
+                chunkInserted = insertBooks.executeUpdate();
+            } finally {
+                runningStatement = null;
+            }
+
+            connection.commit();
+            commits++;
+            rowsRead += chunkRead;
+            rowsInserted += chunkInserted;
+            lastCopiedRowid = chunkLastRowid;
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        }
+
+        // A new book may now be the one returned for a title that is already cached
+        bookCache.clear();
+
+        // A chunk short of the chunk size reached the end of the table
+        done = !chunked || chunkRead < chunkRows;
+        return true;
+    }
+
+    /**
+     * Interrupts the chunk being copied, which is then rolled back. May be called from any thread.
+     */
+    public void cancel() {
+        Statement statement = runningStatement;
+        if (statement == null) {
+            return;
+        }
+
+        try {
+            statement.cancel();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Counts the rows read from the external table so far.
+     * @return Long number of rows read.
+     */
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    /**
+     * Counts the rows read so far that failed validation.
+     * @return Long number of rejected rows.
+     */
+    public long getRowsRejected() {
+        return rowsRead - rowsInserted;
+    }
+
+    /**
+     * Reports on the books committed so far.
+     * @return InsertStatistics describing the import so far.
+     */
+    public InsertStatistics getStatistics() {
+        return new InsertStatistics(rowsInserted, 0, commits, commits, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Detaches the external database from the connection.
+     */
+    private void detach() {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DETACH DATABASE " + SCHEMA);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Rolls back any chunk that was not committed, detaches the external database,
+     * restores the connection's settings, and returns the connection to the pool.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            connection.rollback();
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        detach();
+
+        try {
+            tuningProfile.apply(connection);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
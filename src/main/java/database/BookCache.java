@@ -0,0 +1,371 @@
+package database;
+
+import domain.Book;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class keeps recently used books in memory so that repeated lookups by barcode
+ * or title do not have to query the library database. Books are stored in an
+ * open-addressing table keyed by their int barcode, and a secondary index maps
+ * normalized titles to barcodes. When the cache is full the least recently used
+ * book is evicted.
+ * @author Elise Kidroske
+ */
+public class BookCache {
+    /** Number of books cached when no other capacity is configured.*/
+    public static final int DEFAULT_CAPACITY = 10_000;
+    /** Marks an empty slot in the hash table and the end of the usage list.*/
+    private static final int NONE = -1;
+
+    /** Maximum number of books held in the cache.*/
+    private final int capacity;
+    /** Hash table slots holding the index of a node, or NONE if the slot is empty.*/
+    private final int[] table;
+    /** Mask used to map a hash to a slot in the table.*/
+    private final int mask;
+    /** Barcode stored in each node.*/
+    private final int[] barcodes;
+    /** Book stored in each node.*/
+    private final Book[] books;
+    /** Node used more recently than each node, or NONE for the most recent node.*/
+    private final int[] previous;
+    /** Node used less recently than each node, or NONE for the least recent node.
+     * Also links unused nodes together.*/
+    private final int[] next;
+    /** Maps normalized titles to the barcode of the book returned for that title.*/
+    private final Map<String, Integer> titleIndex = new HashMap<>();
+
+    /** Most recently used node.*/
+    private int head = NONE;
+    /** Least recently used node.*/
+    private int tail = NONE;
+    /** First unused node.*/
+    private int free;
+    /** Number of books in the cache.*/
+    private int size;
+    /** Number of lookups answered from the cache.*/
+    private long hits;
+    /** Number of lookups that had to query the library database.*/
+    private long misses;
+    /** Number of books evicted to make room for others.*/
+    private long evictions;
+
+    public BookCache(int capacity) {
+        this.capacity = Math.max(0, capacity);
+
+        int tableSize = Integer.highestOneBit(Math.max(2, this.capacity * 2 - 1)) << 1;
+        table = new int[tableSize];
+        mask = tableSize - 1;
+
+        barcodes = new int[this.capacity];
+        books = new Book[this.capacity];
+        previous = new int[this.capacity];
+        next = new int[this.capacity];
+
+        clear();
+    }
+
+    /**
+     * Retrieves a cached book by its barcode.
+     * @param barcode Int barcode to look up.
+     * @return Book with the provided barcode, or null if it is not cached.
+     */
+    public synchronized Book getByBarcode(int barcode) {
+        int slot = findSlot(barcode);
+
+        if (table[slot] == NONE) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        int node = table[slot];
+        moveToFront(node);
+        return books[node];
+    }
+
+    /**
+     * Retrieves a cached book by its title. Titles are compared without regard to
+     * ASCII letter case, the same way the library database compares them.
+     * @param title String title to look up.
+     * @return Book with the provided title, or null if it is not cached.
+     */
+    public synchronized Book getByTitle(String title) {
+        String key = normalizeTitle(title);
+        Integer barcode = titleIndex.get(key);
+
+        if (barcode != null) {
+            int slot = findSlot(barcode);
+            if (table[slot] != NONE) {
+                hits++;
+                int node = table[slot];
+                moveToFront(node);
+                return books[node];
+            }
+            titleIndex.remove(key);
+        }
+
+        misses++;
+        return null;
+    }
+
+    /**
+     * Adds a book to the cache or replaces the cached copy of it.
+     * @param book Book to cache.
+     */
+    public synchronized void put(Book book) {
+        if (capacity == 0) {
+            return;
+        }
+
+        int slot = findSlot(book.getBarcode());
+
+        if (table[slot] != NONE) {
+            int node = table[slot];
+            books[node] = book;
+            moveToFront(node);
+            return;
+        }
+
+        if (size == capacity) {
+            evictions++;
+            removeNode(tail);
+            slot = findSlot(book.getBarcode());
+        }
+
+        int node = free;
+        free = next[node];
+
+        barcodes[node] = book.getBarcode();
+        books[node] = book;
+        table[slot] = node;
+        size++;
+
+        previous[node] = NONE;
+        next[node] = head;
+        if (head != NONE) {
+            previous[head] = node;
+        }
+        head = node;
+        if (tail == NONE) {
+            tail = node;
+        }
+    }
+
+    /**
+     * Adds a book to the cache and records it as the result of looking up its title.
+     * @param book Book to cache.
+     */
+    public synchronized void putWithTitle(Book book) {
+        if (capacity == 0) {
+            return;
+        }
+
+        put(book);
+        titleIndex.put(normalizeTitle(book.getTitle()), book.getBarcode());
+    }
+
+    /**
+     * Removes a book from the cache along with any title that maps to it.
+     * @param barcode Int barcode of the book to remove.
+     */
+    public synchronized void remove(int barcode) {
+        int slot = findSlot(barcode);
+
+        if (table[slot] != NONE) {
+            removeNode(table[slot]);
+        }
+    }
+
+    /**
+     * Forgets the book a title maps to so that the next lookup of the title queries
+     * the library database again.
+     * @param title String title to forget.
+     */
+    public synchronized void invalidateTitle(String title) {
+        titleIndex.remove(normalizeTitle(title));
+    }
+
+    /**
+     * Removes every book from the cache. The hit, miss, and eviction counts are kept.
+     */
+    public synchronized void clear() {
+        Arrays.fill(table, NONE);
+        Arrays.fill(books, null);
+        titleIndex.clear();
+
+        for (int node = 0; node < capacity; node++) {
+            next[node] = node + 1 < capacity ? node + 1 : NONE;
+        }
+
+        free = capacity > 0 ? 0 : NONE;
+        head = NONE;
+        tail = NONE;
+        size = 0;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized int getSize() {
+        return size;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "BookCache[size=" + size + "/" + capacity + ", hits=" + hits +
+                ", misses=" + misses + ", evictions=" + evictions + "]";
+    }
+
+    /**
+     * Converts a title into the key used by the title index. Only ASCII letters are
+     * folded to lower case to match SQLite's NOCASE collation.
+     * @param title String title to normalize.
+     * @return String normalized title.
+     */
+    static String normalizeTitle(String title) {
+        for (int i = 0; i < title.length(); i++) {
+            char c = title.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                char[] chars = title.toCharArray();
+                for (int j = i; j < chars.length; j++) {
+                    if (chars[j] >= 'A' && chars[j] <= 'Z') {
+                        chars[j] = (char) (chars[j] + ('a' - 'A'));
+                    }
+                }
+                return new String(chars);
+            }
+        }
+        return title;
+    }
+
+    /**
+     * Finds the slot holding a barcode, or the empty slot where it would be inserted.
+     * @param barcode Int barcode to find.
+     * @return Int index of the slot.
+     */
+    private int findSlot(int barcode) {
+        int slot = hash(barcode) & mask;
+
+        while (table[slot] != NONE && barcodes[table[slot]] != barcode) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    /**
+     * Spreads the bits of a barcode so that sequential barcodes do not cluster in the table.
+     * @param barcode Int barcode to hash.
+     * @return Int hash of the barcode.
+     */
+    private static int hash(int barcode) {
+        int h = barcode * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Removes a node from the hash table, the usage list, and the title index,
+     * and returns it to the free list.
+     * @param node Int index of the node to remove.
+     */
+    private void removeNode(int node) {
+        int barcode = barcodes[node];
+        Book book = books[node];
+
+        if (book != null && book.getTitle() != null) {
+            titleIndex.remove(normalizeTitle(book.getTitle()), barcode);
+        }
+
+        deleteSlot(findSlot(barcode));
+        unlink(node);
+
+        books[node] = null;
+        next[node] = free;
+        free = node;
+        size--;
+    }
+
+    /**
+     * Empties a slot and shifts later entries of the same probe sequence back so
+     * that lookups never stop early at the emptied slot.
+     * @param slot Int index of the slot to empty.
+     */
+    private void deleteSlot(int slot) {
+        table[slot] = NONE;
+
+        int current = (slot + 1) & mask;
+        while (table[current] != NONE) {
+            int home = hash(barcodes[table[current]]) & mask;
+
+            // Moves the entry back if its home slot does not lie between the gap and its position
+            boolean movable = slot <= current
+                    ? home <= slot || home > current
+                    : home <= slot && home > current;
+
+            if (movable) {
+                table[slot] = table[current];
+                table[current] = NONE;
+                slot = current;
+            }
+
+            current = (current + 1) & mask;
+        }
+    }
+
+    /**
+     * Moves a node to the front of the usage list.
+     * @param node Int index of the node that was used.
+     */
+    private void moveToFront(int node) {
+        if (node == head) {
+            return;
+        }
+
+        unlink(node);
+
+        previous[node] = NONE;
+        next[node] = head;
+        if (head != NONE) {
+            previous[head] = node;
+        }
+        head = node;
+        if (tail == NONE) {
+            tail = node;
+        }
+    }
+
+    /**
+     * Detaches a node from the usage list.
+     * @param node Int index of the node to detach.
+     */
+    private void unlink(int node) {
+        if (previous[node] != NONE) {
+            next[previous[node]] = next[node];
+        } else {
+            head = next[node];
+        }
+
+        if (next[node] != NONE) {
+            previous[next[node]] = previous[node];
+        } else {
+            tail = previous[node];
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package database;
+
+import domain.Book;
+import domain.BookStatus;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class describes a set of books for bulk operations. A filter either lists
+ * barcodes explicitly or matches books by genre, author, and checked status.
+ * Criteria left null match every book.
+ * @author Elise Kidroske
+ */
+public class BookFilter {
+    /** Barcodes of the books to select, or null if the filter matches by criteria.*/
+    private final List<Integer> barcodes;
+    /** Genre books must have, or null to match any genre.*/
+    private final String genre;
+    /** Author books must have, or null to match any author.*/
+    private final String author;
+    /** Checked status books must have, or null to match either status.*/
+    private final BookStatus bookStatus;
+
+    public BookFilter(List<Integer> barcodes) {
+        this.barcodes = barcodes;
+        this.genre = null;
+        this.author = null;
+        this.bookStatus = null;
+    }
+
+    public BookFilter(String genre, String author, BookStatus bookStatus) {
+        this.barcodes = null;
+        this.genre = genre;
+        this.author = author;
+        this.bookStatus = bookStatus;
+    }
+
+    /**
+     * Determines whether the filter lists barcodes explicitly.
+     * @return True if the filter was created from barcodes, false if it matches by criteria.
+     */
+    public boolean hasBarcodes() {
+        return barcodes != null;
+    }
+
+    public List<Integer> getBarcodes() {
+        return barcodes == null ? Collections.emptyList() : barcodes;
+    }
+
+    public String getGenre() {
+        return genre;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public BookStatus getBookStatus() {
+        return bookStatus;
+    }
+
+    /**
+     * Determines whether a book is selected by the filter.
+     * @param book Book to test.
+     * @return True if the book matches the filter, false otherwise.
+     */
+    public boolean matches(Book book) {
+        if (barcodes != null) {
+            return barcodes.contains(book.getBarcode());
+        }
+
+        return (genre == null || genre.equals(book.getGenre())) &&
+                (author == null || author.equals(book.getAuthor())) &&
+                (bookStatus == null || bookStatus == book.getBookStatus());
+    }
+
+    /**
+     * Builds the WHERE clause for a filter that matches by criteria.
+     * @return String SQL condition with one placeholder per criterion.
+     */
+    String toWhereClause() {
+        List<String> conditions = new ArrayList<>();
+
+        if (genre != null) {
+            conditions.add(BookColumns.GENRE + " = ?");
+        }
+        if (author != null) {
+            conditions.add(BookColumns.AUTHOR + " = ?");
+        }
+        if (bookStatus != null) {
+            conditions.add(BookColumns.BOOK_STATUS + " = ?");
+        }
+
+        return conditions.isEmpty() ? "1 = 1" : String.join(" AND ", conditions);
+    }
+
+    /**
+     * Binds the filter's criteria to the placeholders created by toWhereClause.
+     * @param statement PreparedStatement containing the WHERE clause.
+     * @param firstIndex Int index of the first placeholder of the clause.
+     * @throws SQLException Thrown if a parameter cannot be set.
+     */
+    void bindParameters(PreparedStatement statement, int firstIndex) throws SQLException {
+        int index = firstIndex;
+
+        if (genre != null) {
+            statement.setString(index++, genre);
+        }
+        if (author != null) {
+            statement.setString(index++, author);
+        }
+        if (bookStatus != null) {
+            statement.setString(index, bookStatus.toString());
+        }
+    }
+}
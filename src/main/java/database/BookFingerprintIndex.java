@@ -0,0 +1,244 @@
+package database;
+
+import domain.Book;
+
+/**
+ * This class remembers which books are already in the library by a 64 bit fingerprint
+ * of their normalized title and author, so duplicates can be found without querying
+ * the library database for each book. Titles and authors are compared without regard
+ * to letter case or to leading, trailing, and repeated whitespace.
+ * <p>
+ * Each lookup first checks a Bloom filter, which rules out most new books with a few
+ * bit tests, and only then the exact set of fingerprints. The set uses open addressing
+ * over a long array, costing about 16 bytes per book without creating any objects.
+ * Two different books share a fingerprint with a probability of about n^2 / 2^65
+ * for n books. An index must not be shared between threads.
+ * @author Elise Kidroske
+ */
+public class BookFingerprintIndex {
+    /** Number of Bloom filter bits per expected book, giving about a 1% false positive rate.*/
+    private static final int BITS_PER_BOOK = 10;
+    /** Number of bits tested per lookup.*/
+    private static final int HASH_COUNT = 7;
+    /** Largest number of bits in the Bloom filter, which takes 256 MB.*/
+    private static final long MAX_BLOOM_BITS = 1L << 31;
+    /** Smallest number of books an index is sized for.*/
+    private static final int MIN_EXPECTED_SIZE = 1024;
+    /** Character separating the title from the author in the fingerprint.*/
+    private static final int FIELD_SEPARATOR = 0x1F;
+    /** FNV-1a 64 bit offset basis.*/
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    /** FNV-1a 64 bit prime.*/
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /** Bits of the Bloom filter.*/
+    private final long[] bloomBits;
+    /** Number of bits in the Bloom filter, a power of two.*/
+    private final long bloomMask;
+    /** Fingerprints in open addressed slots. Empty slots hold 0.*/
+    private long[] slots;
+    /** Number of fingerprints in the set.*/
+    private int size;
+
+    /**
+     * Creates an empty index sized for an expected number of books. More books may
+     * be added, at the cost of more Bloom filter false positives.
+     * @param expectedSize Long number of books the index is expected to hold.
+     */
+    public BookFingerprintIndex(long expectedSize) {
+        long expected = Math.max(MIN_EXPECTED_SIZE, expectedSize);
+        long bits = Long.highestOneBit(Math.min(expected * BITS_PER_BOOK, MAX_BLOOM_BITS) - 1) << 1;
+
+        bloomBits = new long[(int) Math.max(1, bits >>> 6)];
+        bloomMask = bits - 1;
+        slots = new long[tableSize(expected)];
+    }
+
+    /**
+     * Calculates the fingerprint of a book's title and author.
+     * @param book Book to fingerprint.
+     * @return Long fingerprint of the normalized title and author.
+     */
+    public static long fingerprint(Book book) {
+        return fingerprint(book.getTitle(), book.getAuthor());
+    }
+
+    /**
+     * Calculates the fingerprint of a title and author. Both are lowercased and have
+     * whitespace trimmed and collapsed to a single space as they are hashed, without
+     * building normalized copies of either String.
+     * @param title String title of the book.
+     * @param author String author of the book.
+     * @return Long fingerprint of the normalized title and author.
+     */
+    public static long fingerprint(String title, String author) {
+        long hash = hashNormalized(FNV_OFFSET_BASIS, title);
+        hash = (hash ^ FIELD_SEPARATOR) * FNV_PRIME;
+        hash = hashNormalized(hash, author);
+
+        // Spread the bits so both halves are usable as independent Bloom filter hashes
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+
+        // 0 marks an empty slot in the set
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * Continues an FNV-1a hash over the normalized characters of a String.
+     * @param hash Long hash of the characters before the String.
+     * @param text String to hash. Null is hashed as an empty String.
+     * @return Long hash including the String.
+     */
+    private static long hashNormalized(long hash, String text) {
+        if (text == null) {
+            return hash;
+        }
+
+        boolean pendingSpace = false;
+        boolean started = false;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                pendingSpace = started;
+                continue;
+            }
+
+            if (pendingSpace) {
+                hash = (hash ^ ' ') * FNV_PRIME;
+                pendingSpace = false;
+            }
+            started = true;
+
+            char lower = Character.toLowerCase(c);
+            hash = (hash ^ (lower & 0xFF)) * FNV_PRIME;
+            hash = (hash ^ (lower >>> 8)) * FNV_PRIME;
+        }
+
+        return hash;
+    }
+
+    /**
+     * Adds a fingerprint to the index.
+     * @param fingerprint Long fingerprint from fingerprint.
+     * @return True if the fingerprint was not in the index, false if it is a duplicate.
+     */
+    public boolean add(long fingerprint) {
+        if (contains(fingerprint)) {
+            return false;
+        }
+
+        long h2 = (fingerprint >>> 32) | 1;
+        for (int i = 0; i < HASH_COUNT; i++) {
+            long bit = (fingerprint + i * h2) & bloomMask;
+            bloomBits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+
+        if ((size + 1) * 4L > slots.length * 3L) {
+            resize();
+        }
+        insert(slots, fingerprint);
+        size++;
+        return true;
+    }
+
+    /**
+     * Determines whether a fingerprint is in the index.
+     * @param fingerprint Long fingerprint from fingerprint.
+     * @return True if the fingerprint was added, false otherwise.
+     */
+    public boolean contains(long fingerprint) {
+        return mightContain(fingerprint) && setContains(fingerprint);
+    }
+
+    /**
+     * Checks the Bloom filter, which never misses an added fingerprint.
+     * @param fingerprint Long fingerprint from fingerprint.
+     * @return False if the fingerprint was certainly not added, true if it may have been.
+     */
+    private boolean mightContain(long fingerprint) {
+        long h2 = (fingerprint >>> 32) | 1;
+        for (int i = 0; i < HASH_COUNT; i++) {
+            long bit = (fingerprint + i * h2) & bloomMask;
+            if ((bloomBits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks the exact set of fingerprints.
+     * @param fingerprint Long fingerprint from fingerprint.
+     * @return True if the fingerprint was added, false otherwise.
+     */
+    private boolean setContains(long fingerprint) {
+        int mask = slots.length - 1;
+        int slot = (int) fingerprint & mask;
+
+        while (slots[slot] != 0) {
+            if (slots[slot] == fingerprint) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Doubles the number of slots in the set.
+     */
+    private void resize() {
+        long[] resized = new long[slots.length * 2];
+        for (long fingerprint : slots) {
+            if (fingerprint != 0) {
+                insert(resized, fingerprint);
+            }
+        }
+        slots = resized;
+    }
+
+    /**
+     * Stores a fingerprint in the first free slot at or after its home slot.
+     * @param table Long array of slots.
+     * @param fingerprint Long fingerprint, not already in the table.
+     */
+    private static void insert(long[] table, long fingerprint) {
+        int mask = table.length - 1;
+        int slot = (int) fingerprint & mask;
+
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = fingerprint;
+    }
+
+    /**
+     * Calculates the number of slots holding an expected number of fingerprints at most three quarters full.
+     * @param expected Long number of fingerprints.
+     * @return Int power of two number of slots.
+     */
+    private static int tableSize(long expected) {
+        long needed = Math.min(expected * 4 / 3 + 1, 1L << 30);
+        return (int) Long.highestOneBit(needed - 1) << 1;
+    }
+
+    /**
+     * Counts the books in the index.
+     * @return Int number of distinct fingerprints added.
+     */
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d books, %,d Bloom filter bits, %,d slots",
+                size, bloomMask + 1, slots.length);
+    }
+}
@@ -0,0 +1,388 @@
+package database;
+
+import domain.Book;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class inserts books into the library database in fixed-size JDBC batches
+ * and commits after a configurable number of batches, so memory use does not grow
+ * with the number of books inserted. Barcodes assigned by the database are written
+ * back to the inserted Book objects. Obtain an instance from
+ * DatabaseManager.openBookInserter and close it when done.
+ * <p>
+ * An inserter opened with an ImportCheckpoint only commits at positions marked with
+ * markPosition, and saves the position in the same transaction as the books before
+ * it. A later import of the same file can then resume exactly after the last commit.
+ * <p>
+ * An inserter opened with a BookFingerprintIndex skips books whose title and author
+ * are already in the index, adding each inserted book to it. As a safety net for rows
+ * written by others since the index was loaded, each insert is also skipped by the
+ * database if a book with the same title and author exists.
+ * @author Elise Kidroske
+ */
+public class BookInserter implements AutoCloseable {
+    /** SQL statement inserting a single book.*/
+    private static final String INSERT_SQL =
+            "INSERT INTO books (title, author, genre, book_status, due_date) VALUES ( ?, ?, ?, ?, ?)";
+    /**
+     * SQL statement inserting a single book unless a book with the same title and author
+     * exists. There is no unique constraint to upsert against, as a library may hold
+     * several copies of a book, so the title index finds any existing copy instead.
+     */
+    private static final String INSERT_UNLESS_DUPLICATE_SQL =
+            "INSERT INTO books (title, author, genre, book_status, due_date) SELECT ?, ?, ?, ?, ? " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM books " +
+                    "WHERE title = ? COLLATE NOCASE AND author = ? COLLATE NOCASE)";
+
+    /** SQL statement saving the position of an import, replacing any earlier position for the file.*/
+    private static final String SAVE_CHECKPOINT_SQL =
+            "INSERT INTO import_checkpoints (source_path, source_size, source_modified, source_hash, " +
+                    "byte_offset, line_number, rows_inserted, updated_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP) " +
+                    "ON CONFLICT (source_path) DO UPDATE SET source_size = excluded.source_size, " +
+                    "source_modified = excluded.source_modified, source_hash = excluded.source_hash, " +
+                    "byte_offset = excluded.byte_offset, line_number = excluded.line_number, " +
+                    "rows_inserted = excluded.rows_inserted, updated_at = excluded.updated_at";
+    /** SQL statement removing the position of a finished import.*/
+    private static final String DELETE_CHECKPOINT_SQL = "DELETE FROM import_checkpoints WHERE source_path = ?";
+
+    /** Connection held for the lifetime of the inserter.*/
+    private final Connection connection;
+    /** Statement the books are batched on.*/
+    private final PreparedStatement insertBook;
+    /** Cache whose title lookups may change because of inserted books.*/
+    private final BookCache bookCache;
+    /** Settings restored on the connection once the inserter is closed.*/
+    private final SQLiteTuningProfile tuningProfile;
+    /** Number of books sent to the database per JDBC batch.*/
+    private final int chunkSize;
+    /** Number of batches sent per transaction.*/
+    private final int commitInterval;
+    /** Books added to the current batch.*/
+    private final List<Book> chunk;
+    /** Books written since the last commit. Their barcodes are reset if the transaction is rolled back.*/
+    private final List<Book> uncommittedBooks = new ArrayList<>();
+    /** Time in nanoseconds the inserter was opened.*/
+    private final long startNanos = System.nanoTime();
+    /** Position of the import saved with each commit, or null if the import is not checkpointed.*/
+    private final ImportCheckpoint checkpoint;
+    /** Books already in the library, or null if duplicates are inserted.*/
+    private final BookFingerprintIndex duplicates;
+
+    /** Number of books committed.*/
+    private long rowsInserted;
+    /** Number of books skipped as duplicates of books in the library or added before them.*/
+    private long duplicatesSkipped;
+    /** Number of batches written.*/
+    private int chunksWritten;
+    /** Number of batches written since the last commit.*/
+    private int chunksSinceCommit;
+    /** Number of transactions committed.*/
+    private int commits;
+    /** Whether the inserter has been closed.*/
+    private boolean closed;
+    /** Byte offset of the last marked position.*/
+    private long markedOffset;
+    /** Line number of the last marked position.*/
+    private long markedLine;
+    /** Whether the checkpoint must be saved with the next commit.*/
+    private boolean checkpointChanged;
+    /** Whether the import finished, so the checkpoint is removed with the next commit.*/
+    private boolean finished;
+
+    BookInserter(Connection connection, BookCache bookCache, SQLiteTuningProfile tuningProfile,
+                 int chunkSize, int commitInterval, ImportCheckpoint checkpoint,
+                 BookFingerprintIndex duplicates) throws SQLException {
+        this.connection = connection;
+        this.checkpoint = checkpoint;
+        this.duplicates = duplicates;
+        this.bookCache = bookCache;
+        this.tuningProfile = tuningProfile;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.commitInterval = Math.max(1, commitInterval);
+        this.chunk = new ArrayList<>(this.chunkSize);
+
+        if (checkpoint != null) {
+            markedOffset = checkpoint.getByteOffset();
+            markedLine = checkpoint.getLineNumber();
+        }
+
+        // Large imports run without syncing to disk; the connection's usual
+        // settings are restored once the inserter is closed
+        SQLiteTuningProfile.BULK_IMPORT.apply(connection);
+        connection.setAutoCommit(false);
+        insertBook = connection.prepareStatement(duplicates == null ? INSERT_SQL : INSERT_UNLESS_DUPLICATE_SQL);
+    }
+
+    /**
+     * Adds a book to the current batch, writing the batch once it is full. Duplicates
+     * are skipped if the inserter was opened with a BookFingerprintIndex.
+     * @param book Book to insert. Its barcode is set once its batch is written, and stays
+     * unchanged if it is skipped as a duplicate.
+     * @throws SQLException Thrown if a batch cannot be written or committed.
+     */
+    public void add(Book book) throws SQLException {
+        if (duplicates != null && !duplicates.add(BookFingerprintIndex.fingerprint(book))) {
+            duplicatesSkipped++;
+            return;
+        }
+
+        chunk.add(book);
+
+        if (chunk.size() >= chunkSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Marks the position in the source file reached by the books added so far, and
+     * commits if the commit interval is reached. Does nothing if the inserter was
+     * opened without a checkpoint.
+     * @param byteOffset Long position in bytes after the last line read, or ImportCheckpoint.UNKNOWN_OFFSET.
+     * @param lineNumber Long number of lines read, counted from the start of the file.
+     * @throws SQLException Thrown if the books or the checkpoint cannot be written or committed.
+     */
+    public void markPosition(long byteOffset, long lineNumber) throws SQLException {
+        if (checkpoint == null) {
+            return;
+        }
+
+        markedOffset = byteOffset;
+        markedLine = lineNumber;
+        checkpointChanged = true;
+
+        if (chunksSinceCommit >= commitInterval) {
+            commit();
+        }
+    }
+
+    /**
+     * Adds several books, writing batches as they fill up.
+     * @param books List of Book objects to insert.
+     * @throws SQLException Thrown if a batch cannot be written or committed.
+     */
+    public void addAll(List<Book> books) throws SQLException {
+        for (Book book : books) {
+            add(book);
+        }
+    }
+
+    /**
+     * Writes the current batch to the database and commits if the commit interval is
+     * reached. A checkpointed inserter waits for the next marked position to commit.
+     * @throws SQLException Thrown if the batch cannot be written or committed.
+     */
+    public void flush() throws SQLException {
+        writeChunk();
+
+        if (checkpoint == null && chunksSinceCommit >= commitInterval) {
+            commit();
+        }
+    }
+
+    /**
+     * Writes any partial batch and commits every book written so far. A checkpointed
+     * inserter saves the last marked position in the same transaction, so books added
+     * after that position must not be committed until the next one is marked.
+     * @throws SQLException Thrown if the books or the checkpoint cannot be written or committed.
+     */
+    public void commit() throws SQLException {
+        writeChunk();
+
+        if (uncommittedBooks.isEmpty() && !checkpointChanged) {
+            return;
+        }
+
+        long checkpointRows = 0;
+        if (checkpoint != null) {
+            checkpointRows = checkpoint.getRowsInserted() + uncommittedBooks.size();
+            saveCheckpoint(checkpointRows);
+        }
+
+        connection.commit();
+        commits++;
+        rowsInserted += uncommittedBooks.size();
+        uncommittedBooks.clear();
+        chunksSinceCommit = 0;
+
+        if (checkpoint != null) {
+            checkpoint.setPosition(markedOffset, markedLine, checkpointRows);
+            checkpointChanged = false;
+        }
+    }
+
+    /**
+     * Saves the last marked position in the current transaction, or removes the
+     * checkpoint once the import has finished.
+     * @param checkpointRows Long number of books committed by every run of the import.
+     * @throws SQLException Thrown if the checkpoint cannot be written.
+     */
+    private void saveCheckpoint(long checkpointRows) throws SQLException {
+        if (finished) {
+            try (PreparedStatement deleteCheckpoint = connection.prepareStatement(DELETE_CHECKPOINT_SQL)) {
+                deleteCheckpoint.setString(1, checkpoint.getSourcePath());
+                deleteCheckpoint.executeUpdate();
+            }
+            return;
+        }
+
+        try (PreparedStatement saveCheckpoint = connection.prepareStatement(SAVE_CHECKPOINT_SQL)) {
+            saveCheckpoint.setString(1, checkpoint.getSourcePath());
+            saveCheckpoint.setLong(2, checkpoint.getSourceSize());
+            saveCheckpoint.setLong(3, checkpoint.getSourceModified());
+            saveCheckpoint.setString(4, checkpoint.getSourceHash());
+            saveCheckpoint.setLong(5, markedOffset);
+            saveCheckpoint.setLong(6, markedLine);
+            saveCheckpoint.setLong(7, checkpointRows);
+            saveCheckpoint.executeUpdate();
+        }
+    }
+
+    /**
+     * Sends the current batch to the database without committing it.
+     * @throws SQLException Thrown if the batch cannot be written.
+     */
+    private void writeChunk() throws SQLException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        for (Book book : chunk) {
+            insertBook.setString(1, book.getTitle());
+            insertBook.setString(2, book.getAuthor());
+            insertBook.setString(3, book.getGenre());
+            insertBook.setString(4, book.getBookStatus().toString());
+            if (book.getDueDate().isEmpty()) {
+                insertBook.setNull(5, Types.DATE);
+            } else {
+                insertBook.setString(5, book.getDueDate());
+            }
+            if (duplicates != null) {
+                insertBook.setString(6, book.getTitle());
+                insertBook.setString(7, book.getAuthor());
+            }
+
+            insertBook.addBatch();
+
+            // A new book may now be the one returned for a title that is already cached
+            bookCache.invalidateTitle(book.getTitle());
+        }
+
+        int[] batchResults = insertBook.executeBatch();
+        assignBarcodes(batchResults);
+
+        for (int i = 0; i < chunk.size(); i++) {
+            if (wasInserted(batchResults[i])) {
+                uncommittedBooks.add(chunk.get(i));
+            } else {
+                duplicatesSkipped++;
+            }
+        }
+        chunk.clear();
+        chunksWritten++;
+        chunksSinceCommit++;
+    }
+
+    /**
+     * Commits every remaining book and reports on the insert. A checkpointed inserter
+     * removes its checkpoint in the same transaction, as the whole file was imported.
+     * @return InsertStatistics describing the insert.
+     * @throws SQLException Thrown if the remaining books cannot be written or committed.
+     */
+    public InsertStatistics finish() throws SQLException {
+        if (checkpoint != null) {
+            finished = true;
+            checkpointChanged = true;
+        }
+        commit();
+        return getStatistics();
+    }
+
+    /**
+     * Reports on the books committed so far.
+     * @return InsertStatistics describing the insert so far.
+     */
+    public InsertStatistics getStatistics() {
+        return new InsertStatistics(rowsInserted, duplicatesSkipped, chunksWritten, commits,
+                System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Rolls back any books that were not committed, restores the connection's settings,
+     * and returns the connection to the pool.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        for (Book book : uncommittedBooks) {
+            book.setBarcode(-1);
+        }
+        uncommittedBooks.clear();
+        chunk.clear();
+
+        try {
+            insertBook.close();
+            connection.setAutoCommit(true);
+            tuningProfile.apply(connection);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes the barcodes SQLite assigned to the current batch back to its books.
+     * The inserter's transaction holds the database's write lock and the barcode column
+     * is a plain INTEGER PRIMARY KEY, so each inserted row receives the next barcode
+     * after the previous one. The batch therefore occupies the consecutive barcodes
+     * ending at last_insert_rowid().
+     * @param batchResults Int array of rows affected by each statement in the batch.
+     * @throws SQLException Thrown if the last inserted barcode cannot be read.
+     */
+    private void assignBarcodes(int[] batchResults) throws SQLException {
+        long barcode;
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT last_insert_rowid()")) {
+            resultSet.next();
+            barcode = resultSet.getLong(1);
+        }
+
+        for (int i = chunk.size() - 1; i >= 0; i--) {
+            if (wasInserted(batchResults[i])) {
+                chunk.get(i).setBarcode((int) barcode--);
+            }
+        }
+    }
+
+    /**
+     * Determines whether a statement of a batch inserted its book.
+     * @param batchResult Int rows affected by the statement.
+     * @return True if the book was inserted, false if it was skipped as a duplicate.
+     */
+    private static boolean wasInserted(int batchResult) {
+        return batchResult > 0 || batchResult == Statement.SUCCESS_NO_INFO;
+    }
+}
@@ -0,0 +1,266 @@
+package database;
+
+import domain.Book;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class brings the library database up to date with the changed rows of an
+ * external table. Each row is identified by its source and row key, so a row synced
+ * before is updated in place instead of being added as another copy. Every batch is
+ * committed together with the watermark of its last row, so a later sync continues
+ * after the last committed batch, even if this one failed. The books added and updated
+ * by the last batch are read back once it is committed, so they can be shown without
+ * reloading the collection. Obtain an instance from DatabaseManager.openBookSynchronizer
+ * and close it when done.
+ * @author Elise Kidroske
+ */
+public class BookSynchronizer implements AutoCloseable {
+    /** SQL statement adding a synced book, or updating the book synced from the same row before.*/
+    private static final String UPSERT_SQL =
+            "INSERT INTO books (title, author, genre, book_status, due_date, source_key, source_row) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+                    "ON CONFLICT (source_key, source_row) WHERE source_key IS NOT NULL DO UPDATE SET " +
+                    "title = excluded.title, author = excluded.author, genre = excluded.genre, " +
+                    "book_status = excluded.book_status, due_date = excluded.due_date";
+    /** SQL statement saving the last synced watermark of a source, adding to its number of synced rows.*/
+    private static final String SAVE_WATERMARK_SQL =
+            "INSERT INTO sync_watermarks (source_key, watermark, watermark_row, rows_synced, updated_at) " +
+                    "VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP) " +
+                    "ON CONFLICT (source_key) DO UPDATE SET watermark = excluded.watermark, " +
+                    "watermark_row = excluded.watermark_row, " +
+                    "rows_synced = sync_watermarks.rows_synced + excluded.rows_synced, " +
+                    "updated_at = excluded.updated_at";
+    /** Number of row keys looked up per query when reading back the synced books.*/
+    private static final int LOOKUP_CHUNK_SIZE = 500;
+
+    /** Connection held for the lifetime of the synchronizer.*/
+    private final Connection connection;
+    /** Statement the books are batched on.*/
+    private final PreparedStatement upsertBook;
+    /** Cache that may hold updated books under their old values.*/
+    private final BookCache bookCache;
+    /** Settings restored on the connection once the synchronizer is closed.*/
+    private final SQLiteTuningProfile tuningProfile;
+    /** Identifies the external table being synced.*/
+    private final String sourceKey;
+    /** Time in nanoseconds the synchronizer was opened.*/
+    private final long startNanos = System.nanoTime();
+
+    /** Number of books added or updated and committed.*/
+    private long rowsSynced;
+    /** Number of transactions committed.*/
+    private int commits;
+    /** Whether the synchronizer has been closed.*/
+    private boolean closed;
+    /** Books added by the last committed batch.*/
+    private List<Book> lastAddedBooks = Collections.emptyList();
+    /** Books updated by the last committed batch.*/
+    private List<Book> lastUpdatedBooks = Collections.emptyList();
+
+    BookSynchronizer(Connection connection, BookCache bookCache, SQLiteTuningProfile tuningProfile,
+                     String sourceKey) throws SQLException {
+        this.connection = connection;
+        this.bookCache = bookCache;
+        this.tuningProfile = tuningProfile;
+        this.sourceKey = sourceKey;
+
+        // Syncs run without syncing to disk, like imports; the connection's usual
+        // settings are restored once the synchronizer is closed
+        SQLiteTuningProfile.BULK_IMPORT.apply(connection);
+        connection.setAutoCommit(false);
+        upsertBook = connection.prepareStatement(UPSERT_SQL);
+    }
+
+    /**
+     * Adds or updates a batch of books and commits them with the batch's watermark.
+     * @param books Book List of changed rows.
+     * @param sourceRows String List of the row key of each book, in the same order.
+     * @param watermark SyncWatermark of the last row of the batch, or null or without a value
+     * to keep the saved watermark.
+     * @throws SQLException Thrown if the books or the watermark cannot be written or committed.
+     * The batch is rolled back.
+     */
+    public void sync(List<Book> books, List<String> sourceRows, SyncWatermark watermark) throws SQLException {
+        List<Book> addedBooks = new ArrayList<>();
+        List<Book> updatedBooks = new ArrayList<>();
+
+        try {
+            // Books added by the batch are given barcodes above the last one
+            int lastBarcode = findLastBarcode();
+
+            for (int i = 0; i < books.size(); i++) {
+                Book book = books.get(i);
+
+                upsertBook.setString(1, book.getTitle());
+                upsertBook.setString(2, book.getAuthor());
+                upsertBook.setString(3, book.getGenre());
+                upsertBook.setString(4, book.getBookStatus().toString());
+                if (book.getDueDate().isEmpty()) {
+                    upsertBook.setNull(5, Types.DATE);
+                } else {
+                    upsertBook.setString(5, book.getDueDate());
+                }
+                upsertBook.setString(6, sourceKey);
+                upsertBook.setString(7, sourceRows.get(i));
+                upsertBook.addBatch();
+            }
+
+            if (!books.isEmpty()) {
+                upsertBook.executeBatch();
+
+                for (Book book : findSyncedBooks(sourceRows)) {
+                    if (book.getBarcode() > lastBarcode) {
+                        addedBooks.add(book);
+                    } else {
+                        updatedBooks.add(book);
+                    }
+                }
+            }
+
+            if (watermark != null && watermark.getValue() != null) {
+                try (PreparedStatement saveWatermark = connection.prepareStatement(SAVE_WATERMARK_SQL)) {
+                    saveWatermark.setString(1, sourceKey);
+                    saveWatermark.setObject(2, watermark.getValue());
+                    saveWatermark.setObject(3, watermark.getRowKey());
+                    saveWatermark.setLong(4, books.size());
+                    saveWatermark.executeUpdate();
+                }
+            }
+
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        }
+
+        commits++;
+        rowsSynced += books.size();
+        lastAddedBooks = addedBooks;
+        lastUpdatedBooks = updatedBooks;
+
+        // Updated books may be cached under their old values, and added books may share a cached title
+        for (Book book : updatedBooks) {
+            bookCache.remove(book.getBarcode());
+        }
+        for (Book book : addedBooks) {
+            bookCache.invalidateTitle(book.getTitle());
+        }
+    }
+
+    /**
+     * Finds the largest barcode in the library database within the batch's transaction.
+     * @return Int largest barcode, or 0 if the library is empty.
+     * @throws SQLException Thrown if the books cannot be read.
+     */
+    private int findLastBarcode() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT MAX(barcode) FROM books")) {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Reads back the books synced from the given rows of the source.
+     * @param sourceRows String List of row keys.
+     * @return Book List of the books synced from the rows, in no particular order.
+     * @throws SQLException Thrown if the books cannot be read.
+     */
+    private List<Book> findSyncedBooks(List<String> sourceRows) throws SQLException {
+        List<Book> syncedBooks = new ArrayList<>(sourceRows.size());
+
+        for (int start = 0; start < sourceRows.size(); start += LOOKUP_CHUNK_SIZE) {
+            List<String> chunk = sourceRows.subList(start, Math.min(start + LOOKUP_CHUNK_SIZE, sourceRows.size()));
+            String sql = "SELECT * FROM books WHERE source_key = ? AND source_row IN (" +
+                    String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+
+            try (PreparedStatement selectBooks = connection.prepareStatement(sql)) {
+                selectBooks.setString(1, sourceKey);
+                for (int i = 0; i < chunk.size(); i++) {
+                    selectBooks.setString(i + 2, chunk.get(i));
+                }
+
+                try (ResultSet resultSet = selectBooks.executeQuery()) {
+                    while (resultSet.next()) {
+                        syncedBooks.add(DatabaseManager.createBookFromResultSet(resultSet));
+                    }
+                }
+            }
+        }
+
+        return syncedBooks;
+    }
+
+    /**
+     * Lists the books added by the last committed batch.
+     * @return Book List with the barcodes they were given, empty before the first batch.
+     */
+    public List<Book> getLastAddedBooks() {
+        return lastAddedBooks;
+    }
+
+    /**
+     * Lists the books updated by the last committed batch.
+     * @return Book List with their new values, empty before the first batch.
+     */
+    public List<Book> getLastUpdatedBooks() {
+        return lastUpdatedBooks;
+    }
+
+    /**
+     * Counts the books committed so far.
+     * @return Long number of books added or updated.
+     */
+    public long getRowsSynced() {
+        return rowsSynced;
+    }
+
+    /**
+     * Reports on the books committed so far. Every synced book counts as inserted,
+     * whether it was added or updated.
+     * @return InsertStatistics describing the sync so far.
+     */
+    public InsertStatistics getStatistics() {
+        return new InsertStatistics(rowsSynced, 0, commits, commits, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Rolls back any books that were not committed, restores the connection's settings,
+     * and returns the connection to the pool.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        try {
+            upsertBook.close();
+            connection.setAutoCommit(true);
+            tuningProfile.apply(connection);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class keeps a bounded set of long-lived JDBC connections open so that
+ * callers do not pay for opening a new connection on every query. Connections
+ * handed out by the pool are returned to it when they are closed, and cannot be
+ * unwrapped to the physical connection underneath.
+ * @author Elise Kidroske
+ */
+public class ConnectionPool implements AutoCloseable {
+    /** Default number of connections the pool may keep open at once.*/
+    public static final int DEFAULT_MAX_SIZE = 4;
+    /** Default time in milliseconds an idle connection is kept before it is closed.*/
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    /** Default time in milliseconds a caller waits for a free connection.*/
+    public static final long DEFAULT_ACQUIRE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    /** Number of seconds a validation check may take before the connection is discarded.*/
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    /** JDBC connection string used to open new connections.*/
+    private final String connectionString;
+    /** Connection properties such as username and password.*/
+    private final Properties connectionProperties;
+    /** Maximum number of connections open at once.*/
+    private final int maxSize;
+    /** Time in milliseconds an idle connection is kept before it is evicted.*/
+    private final long idleTimeoutMillis;
+    /** Time in milliseconds a caller waits for a free connection.*/
+    private final long acquireTimeoutMillis;
+    /** Idle connections ready to be handed out, most recently used first.*/
+    private final Deque<IdleConnection> idleConnections = new ArrayDeque<>();
+    /** Closes connections that have been idle for longer than the idle timeout.*/
+    private final ScheduledExecutorService evictionExecutor;
+
+    /** Number of connections currently open, whether idle or in use.*/
+    private int openConnections;
+    /** Whether the pool has been closed.*/
+    private boolean closed;
+
+    public ConnectionPool(String connectionString) {
+        this(connectionString, new Properties(), DEFAULT_MAX_SIZE, DEFAULT_IDLE_TIMEOUT_MILLIS);
+    }
+
+    public ConnectionPool(String connectionString, Properties connectionProperties,
+                          int maxSize, long idleTimeoutMillis) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1.");
+        }
+
+        this.connectionString = connectionString;
+        this.connectionProperties = connectionProperties;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.acquireTimeoutMillis = DEFAULT_ACQUIRE_TIMEOUT_MILLIS;
+
+        evictionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-eviction");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long evictionPeriod = Math.max(1000, idleTimeoutMillis / 2);
+        evictionExecutor.scheduleWithFixedDelay(this::evictIdleConnections,
+                evictionPeriod, evictionPeriod, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new one if none are idle and the
+     * pool is not full. Closing the returned connection hands it back to the pool.
+     * @return Connection to the database.
+     * @throws SQLException Thrown if a connection cannot be opened or none become free in time.
+     */
+    public Connection getConnection() throws SQLException {
+        long deadline = System.currentTimeMillis() + acquireTimeoutMillis;
+
+        while (true) {
+            IdleConnection idle = null;
+            boolean mayOpen = false;
+
+            synchronized (this) {
+                if (closed) {
+                    throw new SQLException("Connection pool is closed.");
+                }
+
+                if (!idleConnections.isEmpty()) {
+                    idle = idleConnections.pollFirst();
+                } else if (openConnections < maxSize) {
+                    openConnections++;
+                    mayOpen = true;
+                } else {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        throw new SQLException("Timed out waiting for a database connection.");
+                    }
+
+                    try {
+                        wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection.", e);
+                    }
+                    continue;
+                }
+            }
+
+            if (mayOpen) {
+                try {
+                    return wrap(openConnection());
+                } catch (SQLException | RuntimeException e) {
+                    connectionDiscarded();
+                    throw e;
+                }
+            }
+
+            if (isUsable(idle)) {
+                return wrap(idle.connection);
+            }
+
+            closeQuietly(idle.connection);
+            connectionDiscarded();
+        }
+    }
+
+    /**
+     * Gets the maximum number of connections the pool keeps open.
+     * @return Int maximum pool size.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Gets the number of connections currently open.
+     * @return Int number of open connections.
+     */
+    public synchronized int getOpenConnections() {
+        return openConnections;
+    }
+
+    /**
+     * Closes every idle connection and prevents new connections from being borrowed.
+     * Connections still in use are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            for (IdleConnection idle : idleConnections) {
+                closeQuietly(idle.connection);
+                openConnections--;
+            }
+            idleConnections.clear();
+            notifyAll();
+        }
+
+        evictionExecutor.shutdownNow();
+    }
+
+    /**
+     * Opens a new physical connection to the database.
+     * @return Connection to the database.
+     * @throws SQLException Thrown if the connection cannot be opened.
+     */
+    protected Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(connectionString, connectionProperties);
+    }
+
+    /**
+     * Determines whether an idle connection can be handed out again.
+     * @param idle IdleConnection to check.
+     * @return True if the connection is still open and valid, false otherwise.
+     */
+    private boolean isUsable(IdleConnection idle) {
+        if (System.currentTimeMillis() - idle.idleSince > idleTimeoutMillis) {
+            return false;
+        }
+
+        try {
+            return idle.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns a connection to the pool once the caller has closed it.
+     * @param connection Physical connection to return.
+     */
+    private void release(Connection connection) {
+        boolean reusable;
+        try {
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            reusable = !connection.isClosed();
+        } catch (SQLException e) {
+            reusable = false;
+        }
+
+        synchronized (this) {
+            if (reusable && !closed) {
+                idleConnections.addFirst(new IdleConnection(connection, System.currentTimeMillis()));
+                notifyAll();
+                return;
+            }
+        }
+
+        closeQuietly(connection);
+        connectionDiscarded();
+    }
+
+    /**
+     * Records that a connection slot is free after a connection was closed or failed to open.
+     */
+    private synchronized void connectionDiscarded() {
+        openConnections--;
+        notifyAll();
+    }
+
+    /**
+     * Closes idle connections that have not been used within the idle timeout.
+     */
+    private void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+
+        synchronized (this) {
+            Iterator<IdleConnection> iterator = idleConnections.iterator();
+            while (iterator.hasNext()) {
+                IdleConnection idle = iterator.next();
+                if (now - idle.idleSince > idleTimeoutMillis) {
+                    iterator.remove();
+                    closeQuietly(idle.connection);
+                    openConnections--;
+                }
+            }
+            notifyAll();
+        }
+    }
+
+    /**
+     * Wraps a physical connection so that closing it returns it to the pool.
+     * @param connection Physical connection to wrap.
+     * @return Connection proxy handed to callers.
+     */
+    private Connection wrap(Connection connection) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean returned;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+
+                if (name.equals("close")) {
+                    if (!returned) {
+                        returned = true;
+                        release(connection);
+                    }
+                    return null;
+                }
+
+                if (name.equals("isClosed")) {
+                    return returned || connection.isClosed();
+                }
+
+                if (returned) {
+                    throw new SQLException("Connection has already been returned to the pool.");
+                }
+
+                // The physical connection is never handed out, so it cannot be closed behind the pool's back
+                if (name.equals("unwrap")) {
+                    Class<?> iface = (Class<?>) args[0];
+                    if (iface.isInstance(proxy)) {
+                        return proxy;
+                    }
+                    throw new SQLException("Pooled connections cannot be unwrapped to " + iface.getName() + ".");
+                }
+
+                if (name.equals("isWrapperFor")) {
+                    return ((Class<?>) args[0]).isInstance(proxy);
+                }
+
+                try {
+                    return method.invoke(connection, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        };
+
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, handler);
+    }
+
+    /**
+     * Closes a connection and ignores any errors.
+     * @param connection Connection to close.
+     */
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    /**
+     * Represents a connection waiting in the pool along with the time it became idle.
+     */
+    private static class IdleConnection {
+        /** Physical connection to the database.*/
+        private final Connection connection;
+        /** Time in milliseconds the connection was returned to the pool.*/
+        private final long idleSince;
+
+        private IdleConnection(Connection connection, long idleSince) {
+            this.connection = connection;
+            this.idleSince = idleSince;
+        }
+    }
+}
@@ -5,7 +5,16 @@ import domain.BookStatus;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This class represents the database layer of the library management system.
@@ -13,42 +22,270 @@ import java.util.List;
  * information to and from the application layer and the database.
  * @author Elise Kidroske
  */
-public class DatabaseManager {
-    /** Contains the connection information needed to connect to the library database.*/
-    private final String CONNECTION_STRING = "jdbc:sqlite:data/library_database.db";
+public class DatabaseManager implements AutoCloseable {
+    /** Number of books fetched per query when reading the whole catalog.*/
+    public static final int DEFAULT_PAGE_SIZE = 500;
+    /** Barcode to page after in order to retrieve the first page of books.*/
+    public static final int BEFORE_FIRST_BARCODE = Integer.MIN_VALUE;
+    /** Number of books sent per JDBC batch when inserting, unless configured otherwise.*/
+    public static final int DEFAULT_INSERT_CHUNK_SIZE = 1_000;
+    /** Number of batches written per transaction when inserting, unless configured otherwise.*/
+    public static final int DEFAULT_COMMIT_INTERVAL = 50;
+    /** Largest number of barcodes bound to a single IN clause.*/
+    private static final int MAX_BARCODES_PER_STATEMENT = 500;
+    /** Path to the library database used when no other path is configured.*/
+    public static final String DEFAULT_DATABASE_PATH = "data/library_database.db";
+    /** System property that overrides the path to the library database.*/
+    public static final String DATABASE_PATH_PROPERTY = "library.database.path";
+    /** System property that overrides the number of pooled connections.*/
+    public static final String POOL_SIZE_PROPERTY = "library.database.poolSize";
+    /** System property that selects the SQLite tuning profile by name.*/
+    public static final String TUNING_PROFILE_PROPERTY = "library.database.profile";
+    /** System property that overrides the number of books kept in the book cache.*/
+    public static final String CACHE_SIZE_PROPERTY = "library.cache.size";
+
+    /** Path to the library database file.*/
+    private final String databasePath;
+    /** SQLite settings applied to every connection when it is opened.*/
+    private final SQLiteTuningProfile tuningProfile;
+    /** Keeps connections to the library database open between calls.*/
+    private final ConnectionPool connectionPool;
+    /** Number of books sent to the database per JDBC batch when inserting.*/
+    private int insertChunkSize = DEFAULT_INSERT_CHUNK_SIZE;
+    /** Number of batches written per transaction when inserting.*/
+    private int commitInterval = DEFAULT_COMMIT_INTERVAL;
+    /** Number of rows copied per transaction when importing an attached database.*/
+    private int attachedChunkRows = AttachedBookImporter.DEFAULT_CHUNK_ROWS;
+    /** Keeps recently used books in memory. Updated whenever books are written.*/
+    private final BookCache bookCache =
+            new BookCache(Integer.getInteger(CACHE_SIZE_PROPERTY, BookCache.DEFAULT_CAPACITY));
+
+    public DatabaseManager() {
+        this(System.getProperty(DATABASE_PATH_PROPERTY, DEFAULT_DATABASE_PATH),
+                Integer.getInteger(POOL_SIZE_PROPERTY, ConnectionPool.DEFAULT_MAX_SIZE),
+                SQLiteTuningProfile.fromName(System.getProperty(TUNING_PROFILE_PROPERTY,
+                        SQLiteTuningProfile.BALANCED.getProfileName())));
+    }
+
+    public DatabaseManager(String databasePath) {
+        this(databasePath, ConnectionPool.DEFAULT_MAX_SIZE, SQLiteTuningProfile.BALANCED);
+    }
+
+    public DatabaseManager(String databasePath, int poolSize, SQLiteTuningProfile tuningProfile) {
+        this.databasePath = databasePath;
+        this.tuningProfile = tuningProfile;
+        connectionPool = new ConnectionPool("jdbc:sqlite:" + databasePath, new Properties(),
+                poolSize, ConnectionPool.DEFAULT_IDLE_TIMEOUT_MILLIS) {
+            @Override
+            protected Connection openConnection() throws SQLException {
+                Connection connection = super.openConnection();
+                try {
+                    tuningProfile.apply(connection);
+                } catch (SQLException e) {
+                    connection.close();
+                    throw e;
+                }
+                return connection;
+            }
+        };
+
+        migrateSchema();
+    }
+
+    /**
+     * Gets the path to the library database file.
+     * @return String path to the library database.
+     */
+    public String getDatabasePath() {
+        return databasePath;
+    }
+
+    /**
+     * Creates or upgrades the library database schema to the current version.
+     */
+    private void migrateSchema() {
+        try (Connection connection = connectionPool.getConnection()) {
+            new SchemaMigrator().migrate(connection);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
 
     /**
-     * Retrieves all books from the library database.
-     * @return Book ArrayList representing all books from the library database.
+     * Gets the SQLite tuning profile applied to connections when they are opened.
+     * @return SQLiteTuningProfile in use.
+     */
+    public SQLiteTuningProfile getTuningProfile() {
+        return tuningProfile;
+    }
+
+    /**
+     * Gets the cache of recently used books, including its hit, miss, and eviction counts.
+     * @return BookCache used by this manager.
+     */
+    public BookCache getBookCache() {
+        return bookCache;
+    }
+
+    /**
+     * Closes all pooled connections to the library database.
+     */
+    @Override
+    public void close() {
+        connectionPool.close();
+    }
+
+    /**
+     * Retrieves all books from the library database. Rows are read one page at a time,
+     * so only the returned list grows with the size of the catalog.
+     * @return Book ArrayList representing all books from the library database, or null
+     * if any page could not be read.
      */
     public ArrayList<Book> getAllBooks() {
-        ArrayList<Book> books = new ArrayList<>();
+        try (Stream<Book> books = streamBooks(DEFAULT_PAGE_SIZE)) {
+            return books.collect(Collectors.toCollection(ArrayList::new));
+        } catch (IllegalStateException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
 
-        try(Connection connection = DriverManager.getConnection(CONNECTION_STRING);
-            Statement statement = connection.createStatement()){
+    /**
+     * Retrieves one page of books ordered by barcode, starting after the provided barcode.
+     * Pass BEFORE_FIRST_BARCODE to retrieve the first page and the barcode of the last
+     * book on a page to retrieve the page after it.
+     * @param afterBarcode Int barcode the page starts after.
+     * @param pageSize Int maximum number of books in the page.
+     * @return Book ArrayList containing the page, empty if there are no more books.
+     * @throws SQLException Thrown if the page cannot be read, so a failed query is never
+     * mistaken for the end of the collection.
+     */
+    public ArrayList<Book> getBooksPage(int afterBarcode, int pageSize) throws SQLException {
+        ArrayList<Book> books = new ArrayList<>(Math.min(pageSize, DEFAULT_PAGE_SIZE));
 
-            ResultSet resultSet = statement.executeQuery("SELECT * FROM books");
+        String sql = "SELECT * FROM books WHERE barcode > ? ORDER BY barcode LIMIT ?";
 
-            while (resultSet.next()) {
-                int barcode = resultSet.getInt(BookColumns.BARCODE);
-                String title = resultSet.getString(BookColumns.TITLE);
-                String author = resultSet.getString(BookColumns.AUTHOR);
-                String genre = resultSet.getString(BookColumns.GENRE);
-                String bookStatusString = resultSet.getString(BookColumns.BOOK_STATUS);
-                BookStatus bookStatus = BookStatus.valueOf(bookStatusString);
-                String dueDate = resultSet.getString(BookColumns.DUE_DATE);
-
-                if (dueDate != null) {
-                    books.add(new Book(barcode, title, author, genre, bookStatus, dueDate));
-                } else {
-                    books.add(new Book(barcode, title, author, genre, bookStatus));
+        try (Connection connection = connectionPool.getConnection();
+             PreparedStatement selectPage = connection.prepareStatement(sql)) {
+
+            selectPage.setInt(1, afterBarcode);
+            selectPage.setInt(2, pageSize);
+            selectPage.setFetchSize(pageSize);
+
+            try (ResultSet resultSet = selectPage.executeQuery()) {
+                while (resultSet.next()) {
+                    books.add(createBookFromResultSet(resultSet));
                 }
             }
+        } catch (IllegalArgumentException e) {
+            throw new SQLException("The library database holds a book with an invalid book status.", e);
+        }
+
+        return books;
+    }
+
+    /**
+     * Streams every book in the library database ordered by barcode. Books are fetched
+     * lazily one page at a time and no connection is held between pages.
+     * @param pageSize Int number of books fetched per query.
+     * @return Book Stream over the library's collection.
+     * @throws IllegalStateException Thrown while the stream is consumed if a page cannot be read,
+     * wrapping the SQLException.
+     */
+    public Stream<Book> streamBooks(int pageSize) {
+        Iterator<Book> iterator = new Iterator<>() {
+            /** Books from the current page that have not been returned yet.*/
+            private Iterator<Book> page = Collections.emptyIterator();
+            /** Barcode of the last book fetched.*/
+            private int lastBarcode = BEFORE_FIRST_BARCODE;
+            /** Whether the last page fetched was the final page.*/
+            private boolean exhausted;
+
+            @Override
+            public boolean hasNext() {
+                if (!page.hasNext() && !exhausted) {
+                    ArrayList<Book> books;
+                    try {
+                        books = getBooksPage(lastBarcode, pageSize);
+                    } catch (SQLException e) {
+                        throw new IllegalStateException("Unable to read books from the library database.", e);
+                    }
+                    exhausted = books.size() < pageSize;
+                    if (!books.isEmpty()) {
+                        lastBarcode = books.get(books.size() - 1).getBarcode();
+                    }
+                    page = books.iterator();
+                }
+                return page.hasNext();
+            }
+
+            @Override
+            public Book next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.next();
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Finds the largest barcode in the library database. Books added afterwards are given
+     * larger barcodes, so they can be read back with getBooksPage once an import finishes.
+     * @return Int largest barcode, or BEFORE_FIRST_BARCODE if the library is empty.
+     * @throws SQLException Thrown if the barcode cannot be read.
+     */
+    public int findLastBarcode() throws SQLException {
+        try (Connection connection = connectionPool.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT MAX(barcode) FROM books")) {
+
+            int lastBarcode = resultSet.next() ? resultSet.getInt(1) : 0;
+            return resultSet.wasNull() ? BEFORE_FIRST_BARCODE : lastBarcode;
+        }
+    }
+
+    /**
+     * Counts the books in the library database.
+     * @return Int number of books, or -1 if the count could not be retrieved.
+     */
+    public int countBooks() {
+        try (Connection connection = connectionPool.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM books")) {
+
+            if (resultSet.next()) {
+                return resultSet.getInt(1);
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
 
-        return books;
+        return -1;
+    }
+
+    /**
+     * Converts the current row of a result set into a Book object.
+     * @param resultSet ResultSet positioned on a row of the books table.
+     * @return Book object representing the row.
+     * @throws SQLException Thrown if a column cannot be read.
+     */
+    static Book createBookFromResultSet(ResultSet resultSet) throws SQLException {
+        int barcode = resultSet.getInt(BookColumns.BARCODE);
+        String title = resultSet.getString(BookColumns.TITLE);
+        String author = resultSet.getString(BookColumns.AUTHOR);
+        String genre = resultSet.getString(BookColumns.GENRE);
+        String bookStatusString = resultSet.getString(BookColumns.BOOK_STATUS);
+        BookStatus bookStatus = BookStatus.valueOf(bookStatusString);
+        String dueDate = resultSet.getString(BookColumns.DUE_DATE);
+
+        if (dueDate != null) {
+            return new Book(barcode, title, author, genre, bookStatus, dueDate);
+        }
+        return new Book(barcode, title, author, genre, bookStatus);
     }
 
     /**
@@ -59,7 +296,7 @@ public class DatabaseManager {
     public boolean updateBook(Book book) {
         String sql = "UPDATE books SET book_status = ?, due_date = ? WHERE barcode = ?";
 
-        try (Connection connection = DriverManager.getConnection(CONNECTION_STRING);
+        try (Connection connection = connectionPool.getConnection();
              PreparedStatement checkBook = connection.prepareStatement(sql)) {
 
             checkBook.setString(1, book.getBookStatus().toString());
@@ -74,15 +311,72 @@ public class DatabaseManager {
 
             int rowsAffected = checkBook.executeUpdate();
             if (rowsAffected > 0) {
+                bookCache.put(book);
                 return true;
             }
 
         } catch (Exception e) {
             e.printStackTrace();
         }
+
+        // The caller may have already changed the cached book, so it can no longer be trusted
+        bookCache.remove(book.getBarcode());
         return false;
     }
 
+    /**
+     * Updates the status and due date of several existing books in one transaction.
+     * Either every update is saved or none are.
+     * @param books List of Book objects to be updated.
+     * @return Boolean array stating for each book whether a row was updated, or null if
+     * the transaction failed and nothing was saved.
+     */
+    public boolean[] updateBooks(List<Book> books) {
+        String sql = "UPDATE books SET book_status = ?, due_date = ? WHERE barcode = ?";
+
+        try (Connection connection = connectionPool.getConnection();
+             PreparedStatement checkBook = connection.prepareStatement(sql)) {
+
+            connection.setAutoCommit(false);
+
+            for (Book book : books) {
+                checkBook.setString(1, book.getBookStatus().toString());
+
+                if (book.getDueDate().isEmpty()) {
+                    checkBook.setNull(2, Types.DATE);
+                } else {
+                    checkBook.setString(2, book.getDueDate());
+                }
+
+                checkBook.setInt(3, book.getBarcode());
+                checkBook.addBatch();
+            }
+
+            int[] batchResults = checkBook.executeBatch();
+            connection.commit();
+
+            boolean[] updated = new boolean[books.size()];
+            for (int i = 0; i < updated.length; i++) {
+                updated[i] = batchResults[i] > 0 || batchResults[i] == Statement.SUCCESS_NO_INFO;
+
+                if (updated[i]) {
+                    bookCache.put(books.get(i));
+                } else {
+                    bookCache.remove(books.get(i).getBarcode());
+                }
+            }
+
+            return updated;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        for (Book book : books) {
+            bookCache.remove(book.getBarcode());
+        }
+        return null;
+    }
+
     /**
      * Deletes an existing book from the database.
      * @param book Book object to be deleted.
@@ -91,7 +385,9 @@ public class DatabaseManager {
     public boolean deleteBook(Book book) {
         String sql = "DELETE FROM books WHERE barcode = ?";
 
-        try (Connection connection = DriverManager.getConnection(CONNECTION_STRING);
+        bookCache.remove(book.getBarcode());
+
+        try (Connection connection = connectionPool.getConnection();
              PreparedStatement deleteBook = connection.prepareStatement(sql)) {
 
             deleteBook.setInt(1, book.getBarcode());
@@ -108,63 +404,466 @@ public class DatabaseManager {
     }
 
     /**
-     * Inserts a list of books into the database.
-     * @param books List of Book objects to be added to the library database.
-     * @return True if successful, false otherwise.
+     * Counts the books selected by a filter.
+     * @param filter BookFilter selecting the books to count.
+     * @return Int number of matching books, or -1 if the count could not be retrieved.
+     */
+    public int countBooks(BookFilter filter) {
+        try (Connection connection = connectionPool.getConnection()) {
+            return findBarcodes(connection, filter).size();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        return -1;
+    }
+
+    /**
+     * Deletes every book selected by a filter in one transaction.
+     * @param filter BookFilter selecting the books to delete.
+     * @return Integer List of the deleted barcodes, or null if nothing could be deleted.
+     */
+    public List<Integer> deleteBooks(BookFilter filter) {
+        return runBulkStatement(filter, "DELETE FROM books");
+    }
+
+    /**
+     * Changes the genre of every book selected by a filter in one transaction.
+     * @param filter BookFilter selecting the books to change.
+     * @param genre String new genre.
+     * @return Integer List of the changed barcodes, or null if nothing could be changed.
+     */
+    public List<Integer> updateGenre(BookFilter filter, String genre) {
+        return runBulkStatement(filter, "UPDATE books SET genre = ?", genre);
+    }
+
+    /**
+     * Changes the checked status and due date of every book selected by a filter
+     * in one transaction.
+     * @param filter BookFilter selecting the books to change.
+     * @param bookStatus BookStatus new checked status.
+     * @param dueDate String new due date, or an empty String for no due date.
+     * @return Integer List of the changed barcodes, or null if nothing could be changed.
      */
-    public boolean insertBooks(List<Book> books) {
-        String sql = "INSERT INTO books (title, author, genre, book_status, due_date) VALUES ( ?, ?, ?, ?, ?)";
+    public List<Integer> updateStatus(BookFilter filter, BookStatus bookStatus, String dueDate) {
+        return runBulkStatement(filter, "UPDATE books SET book_status = ?, due_date = ?",
+                bookStatus.toString(), dueDate.isEmpty() ? null : dueDate);
+    }
+
+    /**
+     * Retrieves the books with the provided barcodes.
+     * @param barcodes Integer List of barcodes to query.
+     * @return Book ArrayList of the books found, ordered by barcode.
+     */
+    public ArrayList<Book> searchByBarcodes(List<Integer> barcodes) {
+        ArrayList<Book> books = new ArrayList<>(barcodes.size());
+
+        try (Connection connection = connectionPool.getConnection()) {
+            for (int start = 0; start < barcodes.size(); start += MAX_BARCODES_PER_STATEMENT) {
+                List<Integer> chunk = barcodes.subList(start,
+                        Math.min(barcodes.size(), start + MAX_BARCODES_PER_STATEMENT));
 
-        try (Connection connection = DriverManager.getConnection(CONNECTION_STRING);
-             PreparedStatement insertBook = connection.prepareStatement(sql)) {
+                String sql = "SELECT * FROM books WHERE barcode IN (" + placeholders(chunk.size()) +
+                        ") ORDER BY barcode";
 
-            // Allows multiple statements to be grouped together as one transaction
+                try (PreparedStatement selectBooks = connection.prepareStatement(sql)) {
+                    bindBarcodes(selectBooks, 1, chunk);
+
+                    try (ResultSet resultSet = selectBooks.executeQuery()) {
+                        while (resultSet.next()) {
+                            books.add(createBookFromResultSet(resultSet));
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        return books;
+    }
+
+    /**
+     * Runs a set-based DELETE or UPDATE against every book selected by a filter.
+     * The matching barcodes are collected and the statement is executed inside the
+     * same transaction, so the returned barcodes are exactly the rows affected.
+     * @param filter BookFilter selecting the books.
+     * @param statementPrefix String DELETE or UPDATE ... SET statement without a WHERE clause.
+     * @param values Object values bound to the placeholders of the statement prefix.
+     * @return Integer List of the affected barcodes, or null if the transaction failed.
+     */
+    private List<Integer> runBulkStatement(BookFilter filter, String statementPrefix, Object... values) {
+        try (Connection connection = connectionPool.getConnection()) {
             connection.setAutoCommit(false);
 
-            for (Book book : books) {
-                insertBook.setString(1, book.getTitle());
-                insertBook.setString(2, book.getAuthor());
-                insertBook.setString(3, book.getGenre());
-                insertBook.setString(4, book.getBookStatus().toString());
-                if (book.getDueDate().isEmpty()) {
-                    insertBook.setNull(5, Types.DATE);
-                } else {
-                    insertBook.setString(5, book.getDueDate());
+            List<Integer> barcodes = findBarcodes(connection, filter);
+
+            if (filter.hasBarcodes()) {
+                for (int start = 0; start < barcodes.size(); start += MAX_BARCODES_PER_STATEMENT) {
+                    List<Integer> chunk = barcodes.subList(start,
+                            Math.min(barcodes.size(), start + MAX_BARCODES_PER_STATEMENT));
+
+                    String sql = statementPrefix + " WHERE barcode IN (" + placeholders(chunk.size()) + ")";
+                    try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                        bindValues(statement, values);
+                        bindBarcodes(statement, values.length + 1, chunk);
+                        statement.executeUpdate();
+                    }
                 }
+            } else if (!barcodes.isEmpty()) {
+                String sql = statementPrefix + " WHERE " + filter.toWhereClause();
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    bindValues(statement, values);
+                    filter.bindParameters(statement, values.length + 1);
+                    statement.executeUpdate();
+                }
+            }
+
+            connection.commit();
 
-                insertBook.addBatch();
+            for (int barcode : barcodes) {
+                bookCache.remove(barcode);
             }
 
-            int [] batchResults = insertBook.executeBatch();
+            return barcodes;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
 
-            connection.commit();
+        return null;
+    }
+
+    /**
+     * Finds the barcodes of the books selected by a filter.
+     * @param connection Connection to the library database.
+     * @param filter BookFilter selecting the books.
+     * @return Integer List of matching barcodes that exist in the library database.
+     * @throws SQLException Thrown if the query fails.
+     */
+    private List<Integer> findBarcodes(Connection connection, BookFilter filter) throws SQLException {
+        List<Integer> barcodes = new ArrayList<>();
+
+        if (filter.hasBarcodes()) {
+            List<Integer> requested = filter.getBarcodes();
 
-            int totalRowsAffected = 0;
-            for (int rowsAffected : batchResults) {
-                totalRowsAffected += rowsAffected;
+            for (int start = 0; start < requested.size(); start += MAX_BARCODES_PER_STATEMENT) {
+                List<Integer> chunk = requested.subList(start,
+                        Math.min(requested.size(), start + MAX_BARCODES_PER_STATEMENT));
+
+                String sql = "SELECT barcode FROM books WHERE barcode IN (" + placeholders(chunk.size()) + ")";
+                try (PreparedStatement selectBarcodes = connection.prepareStatement(sql)) {
+                    bindBarcodes(selectBarcodes, 1, chunk);
+                    readBarcodes(selectBarcodes, barcodes);
+                }
             }
 
-            if (totalRowsAffected > 0) {
-                return true;
+            return barcodes;
+        }
+
+        String sql = "SELECT barcode FROM books WHERE " + filter.toWhereClause();
+        try (PreparedStatement selectBarcodes = connection.prepareStatement(sql)) {
+            filter.bindParameters(selectBarcodes, 1);
+            readBarcodes(selectBarcodes, barcodes);
+        }
+
+        return barcodes;
+    }
+
+    /**
+     * Runs a query returning barcodes and adds them to a list.
+     * @param statement PreparedStatement selecting barcodes.
+     * @param barcodes Integer List the barcodes are added to.
+     * @throws SQLException Thrown if the query fails.
+     */
+    private static void readBarcodes(PreparedStatement statement, List<Integer> barcodes) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                barcodes.add(resultSet.getInt(1));
             }
+        }
+    }
+
+    /**
+     * Creates a comma separated list of placeholders for an IN clause.
+     * @param count Int number of placeholders.
+     * @return String such as "?, ?, ?".
+     */
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    /**
+     * Binds barcodes to consecutive placeholders.
+     * @param statement PreparedStatement to bind.
+     * @param firstIndex Int index of the first placeholder.
+     * @param barcodes Integer List of barcodes to bind.
+     * @throws SQLException Thrown if a parameter cannot be set.
+     */
+    private static void bindBarcodes(PreparedStatement statement, int firstIndex,
+                                     List<Integer> barcodes) throws SQLException {
+        for (int i = 0; i < barcodes.size(); i++) {
+            statement.setInt(firstIndex + i, barcodes.get(i));
+        }
+    }
+
+    /**
+     * Binds values to the first placeholders of a statement. Null values are bound as SQL NULL.
+     * @param statement PreparedStatement to bind.
+     * @param values Object values to bind.
+     * @throws SQLException Thrown if a parameter cannot be set.
+     */
+    private static void bindValues(PreparedStatement statement, Object... values) throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                statement.setNull(i + 1, Types.VARCHAR);
+            } else {
+                statement.setObject(i + 1, values[i]);
+            }
+        }
+    }
+
+    /**
+     * Inserts a list of books into the database in batches of the configured chunk size,
+     * committing after the configured number of batches. The barcode assigned to each
+     * book is written back to the Book object.
+     * @param books List of Book objects to be added to the library database.
+     * @return InsertStatistics describing the insert, or null if it failed. Books committed
+     * before a failure remain in the library database.
+     */
+    public InsertStatistics insertBooks(List<Book> books) {
+        try (BookInserter inserter = openBookInserter()) {
+            inserter.addAll(books);
+            return inserter.finish();
         } catch (Exception e) {
             e.printStackTrace();
         }
 
-        return false;
+        return null;
+    }
+
+    /**
+     * Opens an inserter for adding books to the library database in batches. The
+     * inserter holds a connection until it is closed.
+     * @return BookInserter using the configured chunk size and commit interval.
+     * @throws SQLException Thrown if a connection cannot be obtained or prepared.
+     */
+    public BookInserter openBookInserter() throws SQLException {
+        return openBookInserter(null);
+    }
+
+    /**
+     * Opens an inserter for importing a text file into the library database, saving
+     * the position reached in the file with every commit so an unfinished import can
+     * be resumed. The inserter holds a connection until it is closed.
+     * @param checkpoint ImportCheckpoint of the file, or null to insert without saving positions.
+     * @return BookInserter using the configured chunk size and commit interval.
+     * @throws SQLException Thrown if a connection cannot be obtained or prepared.
+     */
+    public BookInserter openBookInserter(ImportCheckpoint checkpoint) throws SQLException {
+        return openBookInserter(checkpoint, null);
     }
 
     /**
-     * Retrieves a book from the database based on its title.
+     * Opens an inserter for importing books into the library database, optionally saving
+     * the position reached in a text file and skipping books already in the library.
+     * The inserter holds a connection until it is closed.
+     * @param checkpoint ImportCheckpoint of the file, or null to insert without saving positions.
+     * @param duplicates BookFingerprintIndex of books in the library, such as one from
+     * loadFingerprintIndex, or null to insert duplicates.
+     * @return BookInserter using the configured chunk size and commit interval.
+     * @throws SQLException Thrown if a connection cannot be obtained or prepared.
+     */
+    public BookInserter openBookInserter(ImportCheckpoint checkpoint, BookFingerprintIndex duplicates)
+            throws SQLException {
+        Connection connection = connectionPool.getConnection();
+
+        try {
+            return new BookInserter(connection, bookCache, tuningProfile,
+                    insertChunkSize, commitInterval, checkpoint, duplicates);
+        } catch (SQLException e) {
+            try {
+                tuningProfile.apply(connection);
+            } catch (SQLException ignored) {
+            }
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Fingerprints the title and author of every book in the library database in one
+     * pass over the books table, for finding duplicates without a query per book.
+     * @param expectedAdditions Long number of books expected to be added to the index while importing.
+     * @return BookFingerprintIndex holding every book in the library database.
+     * @throws SQLException Thrown if the books cannot be read.
+     */
+    public BookFingerprintIndex loadFingerprintIndex(long expectedAdditions) throws SQLException {
+        try (Connection connection = connectionPool.getConnection();
+             Statement statement = connection.createStatement()) {
+
+            long bookCount;
+            try (ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM books")) {
+                bookCount = resultSet.next() ? resultSet.getLong(1) : 0;
+            }
+
+            BookFingerprintIndex index = new BookFingerprintIndex(bookCount + Math.max(0, expectedAdditions));
+            try (ResultSet resultSet = statement.executeQuery("SELECT title, author FROM books")) {
+                while (resultSet.next()) {
+                    index.add(BookFingerprintIndex.fingerprint(resultSet.getString(1), resultSet.getString(2)));
+                }
+            }
+
+            return index;
+        }
+    }
+
+    /**
+     * Looks up the position an unfinished import of a text file reached. The checkpoint
+     * is only returned if the file still has the size, modification time, and hash it
+     * had when the checkpoint was saved.
+     * @param source ImportCheckpoint identifying the file as it is now.
+     * @return ImportCheckpoint holding the saved position, or null if there is none or it cannot be read.
+     */
+    public ImportCheckpoint findImportCheckpoint(ImportCheckpoint source) {
+        String sql = "SELECT byte_offset, line_number, rows_inserted FROM import_checkpoints " +
+                "WHERE source_path = ? AND source_size = ? AND source_modified = ? AND source_hash = ?";
+
+        try (Connection connection = connectionPool.getConnection();
+             PreparedStatement selectCheckpoint = connection.prepareStatement(sql)) {
+
+            selectCheckpoint.setString(1, source.getSourcePath());
+            selectCheckpoint.setLong(2, source.getSourceSize());
+            selectCheckpoint.setLong(3, source.getSourceModified());
+            selectCheckpoint.setString(4, source.getSourceHash());
+
+            try (ResultSet resultSet = selectCheckpoint.executeQuery()) {
+                if (resultSet.next()) {
+                    return new ImportCheckpoint(source.getSourcePath(), source.getSourceSize(),
+                            source.getSourceModified(), source.getSourceHash(),
+                            resultSet.getLong(1), resultSet.getLong(2), resultSet.getLong(3));
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+
+    /**
+     * Attaches an external SQLite database to a library connection for importing the books
+     * of one of its tables without reading them into memory. The importer holds the
+     * connection until it is closed.
+     * @param databaseFilePath String path to the external SQLite database file.
+     * @param tableName String name of the table holding the books.
+     * @return AttachedBookImporter copying the table in chunks of rows.
+     * @throws SQLException Thrown if a connection cannot be obtained, or the database
+     * cannot be attached or has no such table.
+     */
+    public AttachedBookImporter openAttachedImport(String databaseFilePath, String tableName) throws SQLException {
+        Connection connection = connectionPool.getConnection();
+
+        try {
+            return new AttachedBookImporter(connection, bookCache, tuningProfile, databaseFilePath, tableName,
+                    attachedChunkRows);
+        } catch (SQLException e) {
+            try {
+                tuningProfile.apply(connection);
+            } catch (SQLException ignored) {
+            }
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a synchronizer for adding or updating the changed rows of an external table.
+     * The synchronizer holds a connection until it is closed.
+     * @param sourceKey String identifying the external table, such as from SQLForm.getSourceKey.
+     * @return BookSynchronizer for the table.
+     * @throws SQLException Thrown if a connection cannot be obtained or prepared.
+     */
+    public BookSynchronizer openBookSynchronizer(String sourceKey) throws SQLException {
+        Connection connection = connectionPool.getConnection();
+
+        try {
+            return new BookSynchronizer(connection, bookCache, tuningProfile, sourceKey);
+        } catch (SQLException e) {
+            try {
+                tuningProfile.apply(connection);
+            } catch (SQLException ignored) {
+            }
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Looks up the watermark and row key of the last row synced from an external table.
+     * @param sourceKey String identifying the external table, such as from SQLForm.getSourceKey.
+     * @return SyncWatermark as it was saved, or null if the table has not been synced
+     * or the watermark cannot be read.
+     */
+    public SyncWatermark findSyncWatermark(String sourceKey) {
+        String sql = "SELECT watermark, watermark_row FROM sync_watermarks WHERE source_key = ?";
+
+        try (Connection connection = connectionPool.getConnection();
+             PreparedStatement selectWatermark = connection.prepareStatement(sql)) {
+
+            selectWatermark.setString(1, sourceKey);
+
+            try (ResultSet resultSet = selectWatermark.executeQuery()) {
+                if (resultSet.next()) {
+                    return new SyncWatermark(resultSet.getObject(1), resultSet.getObject(2));
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+
+    /**
+     * Sets how many books are sent to the database per JDBC batch when inserting.
+     * @param insertChunkSize Int number of books per batch.
+     */
+    public void setInsertChunkSize(int insertChunkSize) {
+        this.insertChunkSize = Math.max(1, insertChunkSize);
+    }
+
+    /**
+     * Sets how many batches are written per transaction when inserting.
+     * @param commitInterval Int number of batches per commit.
+     */
+    public void setCommitInterval(int commitInterval) {
+        this.commitInterval = Math.max(1, commitInterval);
+    }
+
+    /**
+     * Sets how many rows are copied per transaction when importing an attached database.
+     * @param attachedChunkRows Int number of rows per commit.
+     */
+    public void setAttachedChunkRows(int attachedChunkRows) {
+        this.attachedChunkRows = Math.max(1, attachedChunkRows);
+    }
+
+    /**
+     * Retrieves a book from the database based on its title. Titles are
+     * matched without regard to ASCII letter case.
      * @param title String title to query.
      * @return Book object that matches the provided title.
      */
     public Book searchByTitle(String title) {
-        Book book = null;
+        Book book = bookCache.getByTitle(title);
 
-        String sql = "SELECT * FROM books WHERE title = ?";
+        if (book != null) {
+            return book;
+        }
+
+        String sql = "SELECT * FROM books WHERE title = ? COLLATE NOCASE";
 
-        try (Connection connection = DriverManager.getConnection(CONNECTION_STRING);
+        try (Connection connection = connectionPool.getConnection();
              PreparedStatement selectBook = connection.prepareStatement(sql)) {
 
             selectBook.setString(1, title);
@@ -172,18 +871,11 @@ public class DatabaseManager {
             ResultSet resultSet = selectBook.executeQuery();
 
             while (resultSet.next()) {
-                int barcode = resultSet.getInt(BookColumns.BARCODE);
-                String author = resultSet.getString(BookColumns.AUTHOR);
-                String genre = resultSet.getString(BookColumns.GENRE);
-                String bookStatusString = resultSet.getString(BookColumns.BOOK_STATUS);
-                BookStatus bookStatus = BookStatus.valueOf(bookStatusString);
-                String dueDate = resultSet.getString(BookColumns.DUE_DATE);
-
-                if (dueDate != null) {
-                    book = new Book(barcode, title, author, genre, bookStatus, dueDate);
-                } else {
-                    book = new Book(barcode, title, author, genre, bookStatus);
-                }
+                book = createBookFromResultSet(resultSet);
+            }
+
+            if (book != null) {
+                bookCache.putWithTitle(book);
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -198,11 +890,15 @@ public class DatabaseManager {
      * @return Book object that matches the provided barcode.
      */
     public Book searchByBarcode(int barcode) {
-        Book book = null;
+        Book book = bookCache.getByBarcode(barcode);
+
+        if (book != null) {
+            return book;
+        }
 
         String sql = "SELECT * FROM books WHERE barcode = ?";
 
-        try (Connection connection = DriverManager.getConnection(CONNECTION_STRING);
+        try (Connection connection = connectionPool.getConnection();
              PreparedStatement selectBook = connection.prepareStatement(sql)) {
 
             selectBook.setInt(1, barcode);
@@ -210,18 +906,11 @@ public class DatabaseManager {
             ResultSet resultSet = selectBook.executeQuery();
 
             while (resultSet.next()) {
-                String title = resultSet.getString(BookColumns.TITLE);
-                String author = resultSet.getString(BookColumns.AUTHOR);
-                String genre = resultSet.getString(BookColumns.GENRE);
-                String bookStatusString = resultSet.getString(BookColumns.BOOK_STATUS);
-                BookStatus bookStatus = BookStatus.valueOf(bookStatusString);
-                String dueDate = resultSet.getString(BookColumns.DUE_DATE);
-
-                if (dueDate != null) {
-                    book = new Book(barcode, title, author, genre, bookStatus, dueDate);
-                } else {
-                    book = new Book(barcode, title, author, genre, bookStatus);
-                }
+                book = createBookFromResultSet(resultSet);
+            }
+
+            if (book != null) {
+                bookCache.put(book);
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -0,0 +1,215 @@
+package database;
+
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class keeps connections to external databases open between previews and imports,
+ * so repeated reads from the same source skip opening a connection, which for MySQL
+ * includes the TCP handshake and authentication. Each source has its own ConnectionPool,
+ * which closes connections idle for longer than the idle timeout, checks idle connections
+ * are still valid before handing them out, and never opens more than a fixed number of
+ * connections at once. Sources are identified by their type, server, database, and user,
+ * or by their file for SQLite. Only a fixed number of sources are kept, and the least
+ * recently used source is closed to make room for another. A cache is safe to use from
+ * several threads.
+ * @author Elise Kidroske
+ */
+public class ExternalConnectionCache implements AutoCloseable {
+    /** Number of sources kept unless another number is provided.*/
+    public static final int DEFAULT_MAX_SOURCES = 4;
+    /** Time in milliseconds an idle connection to an external database is kept unless another time is provided.*/
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    /** Largest number of sources kept at once.*/
+    private final int maxSources;
+    /** Largest number of connections open to each source at once.*/
+    private final int maxConnectionsPerSource;
+    /** Time in milliseconds an idle connection is kept before it is closed.*/
+    private final long idleTimeoutMillis;
+    /** Pools of each source, least recently used first.*/
+    private final LinkedHashMap<String, SourcePool> pools = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Whether the cache has been closed.*/
+    private boolean closed;
+
+    public ExternalConnectionCache() {
+        this(DEFAULT_MAX_SOURCES, ConnectionPool.DEFAULT_MAX_SIZE, DEFAULT_IDLE_TIMEOUT_MILLIS);
+    }
+
+    public ExternalConnectionCache(int maxSources, int maxConnectionsPerSource, long idleTimeoutMillis) {
+        if (maxSources < 1 || maxConnectionsPerSource < 1) {
+            throw new IllegalArgumentException("A cache must keep at least one connection to one source.");
+        }
+
+        this.maxSources = maxSources;
+        this.maxConnectionsPerSource = maxConnectionsPerSource;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Borrows a connection to the external database described by a form, reusing an idle
+     * connection to the same source if there is one. Closing the returned connection hands
+     * it back to the cache. A source whose password has changed is reconnected, so an old
+     * connection never stands in for a failed login.
+     * @param form SQLForm with external database connection information.
+     * @return Connection to the external database.
+     * @throws SQLException Thrown if a connection cannot be opened, or none become free in time
+     * because the source's connections are all in use.
+     */
+    public Connection getConnection(SQLForm form) throws SQLException {
+        String key = sourceKey(form);
+
+        while (true) {
+            SourcePool pool = findPool(key, form);
+
+            try {
+                return pool.connectionPool.getConnection();
+            } catch (SQLException e) {
+                synchronized (this) {
+                    // Another thread may have replaced or evicted the pool since it was found
+                    if (closed || pools.get(key) == pool) {
+                        throw e;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the pool of a source, creating it if it is not cached or its password has
+     * changed, and closing the least recently used source if the cache is full.
+     * @param key String identifying the source.
+     * @param form SQLForm with external database connection information.
+     * @return SourcePool of the source.
+     * @throws SQLException Thrown if the cache is closed.
+     */
+    private SourcePool findPool(String key, SQLForm form) throws SQLException {
+        SourcePool pool;
+        ConnectionPool replacedPool = null;
+        ConnectionPool evictedPool = null;
+
+        synchronized (this) {
+            if (closed) {
+                throw new SQLException("External connection cache is closed.");
+            }
+
+            pool = pools.get(key);
+            if (pool != null && !Objects.equals(pool.password, form.getPassword())) {
+                pools.remove(key);
+                replacedPool = pool.connectionPool;
+                pool = null;
+            }
+
+            if (pool == null) {
+                pool = new SourcePool(createPool(form), form.getPassword());
+                pools.put(key, pool);
+
+                if (pools.size() > maxSources) {
+                    Iterator<SourcePool> leastRecentlyUsed = pools.values().iterator();
+                    evictedPool = leastRecentlyUsed.next().connectionPool;
+                    leastRecentlyUsed.remove();
+                }
+            }
+        }
+
+        // Connections still in use by an import are closed once they are returned
+        if (replacedPool != null) {
+            replacedPool.close();
+        }
+        if (evictedPool != null) {
+            evictedPool.close();
+        }
+
+        return pool;
+    }
+
+    /**
+     * Creates the pool of connections to the source described by a form.
+     * @param form SQLForm with external database connection information.
+     * @return ConnectionPool opening connections to the source.
+     */
+    private ConnectionPool createPool(SQLForm form) {
+        Properties properties = new Properties();
+
+        if (form.getSourceType().equals(SQLSourceType.MYSQL)) {
+            properties.setProperty("user", form.getUsername());
+            properties.setProperty("password", form.getPassword());
+            return new ConnectionPool("jdbc:mysql://" + form.getDataSource() + "/" + form.getDatabaseName(),
+                    properties, maxConnectionsPerSource, idleTimeoutMillis);
+        }
+
+        return new ConnectionPool("jdbc:sqlite:" + form.getDatabaseFilePath(),
+                properties, maxConnectionsPerSource, idleTimeoutMillis);
+    }
+
+    /**
+     * Identifies the source described by a form, whatever table is read from it.
+     * @param form SQLForm with external database connection information.
+     * @return String naming the source type, server, database, and user, or the database file.
+     */
+    private static String sourceKey(SQLForm form) {
+        if (form.getSourceType().equals(SQLSourceType.MYSQL)) {
+            return "mysql://" + form.getUsername() + "@" + form.getDataSource() + "/" + form.getDatabaseName();
+        }
+        return "sqlite:" + Paths.get(form.getDatabaseFilePath()).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Counts the connections open to the source described by a form.
+     * @param form SQLForm with external database connection information.
+     * @return Int number of connections open to the source, whether idle or in use.
+     */
+    public synchronized int getOpenConnections(SQLForm form) {
+        SourcePool pool = pools.get(sourceKey(form));
+        return pool == null ? 0 : pool.connectionPool.getOpenConnections();
+    }
+
+    /**
+     * Counts the sources with a pool in the cache.
+     * @return Int number of sources.
+     */
+    public synchronized int getSourceCount() {
+        return pools.size();
+    }
+
+    /**
+     * Closes the pool of every source. Connections still in use are closed once they are returned.
+     */
+    @Override
+    public void close() {
+        Map<String, SourcePool> closedPools;
+
+        synchronized (this) {
+            closed = true;
+            closedPools = new LinkedHashMap<>(pools);
+            pools.clear();
+        }
+
+        for (SourcePool pool : closedPools.values()) {
+            pool.connectionPool.close();
+        }
+    }
+
+    /**
+     * Represents the pool of a source along with the password its connections were opened with.
+     */
+    private static class SourcePool {
+        /** Pool of connections to the source.*/
+        private final ConnectionPool connectionPool;
+        /** Password the connections were opened with, or null for SQLite.*/
+        private final String password;
+
+        private SourcePool(ConnectionPool connectionPool, String password) {
+            this.connectionPool = connectionPool;
+            this.password = password;
+        }
+    }
+}
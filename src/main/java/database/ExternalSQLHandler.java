@@ -5,89 +5,629 @@ import domain.BookStatus;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * This class is responsible for handling data retrieval operations
- * from external user-provided databases.
+ * from external user-provided databases. Books are read as a stream, so
+ * a table of any size can be imported without holding every row in memory.
+ * Tables with an integer key column can also be read as several key ranges
+ * at once, each on its own connection, and tables with a watermark column can
+ * be read from the last synced watermark onward. Every query is limited by a
+ * timeout, and a handler's running queries can be cancelled from another thread.
  * @author Elise Kidroske
  */
 public class ExternalSQLHandler {
+    /** Number of rows SQLite is asked to fetch at a time.*/
+    public static final int STREAMING_FETCH_SIZE = 1000;
+    /** Fetch size that makes MySQL Connector/J stream rows instead of buffering the whole result.*/
+    private static final int MYSQL_STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+    /** Number of connections a partitioned read opens at once unless another limit is provided.*/
+    public static final int DEFAULT_MAX_CONNECTIONS = 4;
+    /** Number of batches partitions may read ahead of the handler.*/
+    private static final int PARTITION_QUEUE_CAPACITY = 8;
+    /** Number of seconds a query may run before the driver cancels it unless another timeout is provided.*/
+    public static final int DEFAULT_QUERY_TIMEOUT_SECONDS = 60;
+    /** Batch marking that a partition has been read. Compared by identity.*/
+    private static final List<Book> PARTITION_END = new ArrayList<>();
+
+    /** Number of rows read by the last stream.*/
+    private final AtomicLong rowsRead = new AtomicLong();
+    /** Number of rows of the last stream that could not be converted into books.*/
+    private final AtomicLong rowsRejected = new AtomicLong();
+    /** Keeps connections open between reads, or null to open a new connection for every read.*/
+    private final ExternalConnectionCache connectionCache;
+    /** Statements prepared by the handler that may still be running.*/
+    private final Set<Statement> runningStatements = ConcurrentHashMap.newKeySet();
+
+    /** Number of seconds a query may run before the driver cancels it, or 0 for no limit.*/
+    private int queryTimeoutSeconds = DEFAULT_QUERY_TIMEOUT_SECONDS;
+    /** Whether cancel was called, stopping every read of the handler.*/
+    private volatile boolean cancelled;
+
+    public ExternalSQLHandler() {
+        this(null);
+    }
+
+    public ExternalSQLHandler(ExternalConnectionCache connectionCache) {
+        this.connectionCache = connectionCache;
+    }
+
     /**
-     * Retrieves all books from a user-provided MySQL database.
-     * @param server String name of SQL server.
-     * @param database String database name.
-     * @param username String username.
-     * @param password String password.
-     * @param tableName String table name.
-     * @return Book ArrayList containing all books from the database.
+     * Receives the books read from an external database in batches.
      */
-    private ArrayList<Book> getBooksMySQL(String server, String database,
-                                         String username, String password,
-                                         String tableName) {
+    public interface BatchHandler {
+        /**
+         * Handles one batch of books.
+         * @param books Book List in the order they were read. The list is not reused.
+         * @throws SQLException Thrown if the books cannot be stored.
+         */
+        void accept(List<Book> books) throws SQLException;
+    }
 
-        ArrayList<Book> books = new ArrayList<>();
+    /**
+     * Receives the rows of an external table changed since a watermark, in batches.
+     */
+    public interface ChangeHandler {
+        /**
+         * Handles one batch of changed rows. Every row up to the batch's watermark, and
+         * its row key if it has one, has been read by the end of the batch.
+         * @param books Book List in watermark order. May be empty if every row of the batch was rejected.
+         * @param sourceRows String List of the row key of each book, in the same order.
+         * @param watermark SyncWatermark of the last row of the batch, whose value is null if its rows
+         * have no watermark.
+         * @throws SQLException Thrown if the books cannot be stored.
+         */
+        void accept(List<Book> books, List<String> sourceRows, SyncWatermark watermark) throws SQLException;
+    }
 
-        String connectionString = "jdbc:mysql://" + server + "/" + database;
+    /**
+     * Receives batches of books as they are read, on the thread reading them.
+     */
+    private interface BatchSink {
+        /**
+         * Handles one batch of books.
+         * @param books Book List in the order they were read.
+         * @throws SQLException Thrown if the books cannot be stored.
+         * @throws InterruptedException Thrown if the reading thread is interrupted while waiting.
+         */
+        void accept(List<Book> books) throws SQLException, InterruptedException;
+    }
 
-        String selectString = "SELECT * FROM " + tableName;
+    /**
+     * Opens a connection to the external database described by a form, or borrows one
+     * from the connection cache. Closing a borrowed connection returns it to the cache.
+     * @param form SQLForm with external database connection information.
+     * @return Connection to the external database.
+     * @throws SQLException Thrown if the connection cannot be opened.
+     */
+    private Connection openConnection(SQLForm form) throws SQLException {
+        if (connectionCache != null) {
+            return connectionCache.getConnection(form);
+        }
+        if (form.getSourceType().equals(SQLSourceType.MYSQL)) {
+            String connectionString = "jdbc:mysql://" + form.getDataSource() + "/" + form.getDatabaseName();
+            return DriverManager.getConnection(connectionString, form.getUsername(), form.getPassword());
+        }
+        return DriverManager.getConnection("jdbc:sqlite:" + form.getDatabaseFilePath());
+    }
 
-        try(Connection connection = DriverManager.getConnection(connectionString, username, password);
-            PreparedStatement selectStatement = connection.prepareStatement(selectString)) {
+    /**
+     * Quotes an identifier for a database type, so it is read as a name whatever characters it holds.
+     * @param sourceType SQLSourceType of the database the identifier is used with.
+     * @param identifier String name of a table or column.
+     * @return String identifier in backticks for MySQL or double quotes for SQLite, with any
+     * quote characters within it doubled.
+     */
+    static String quoteIdentifier(SQLSourceType sourceType, String identifier) {
+        String quote = sourceType.equals(SQLSourceType.MYSQL) ? "`" : "\"";
+        return quote + identifier.replace(quote, quote + quote) + quote;
+    }
 
-            ResultSet resultSet = selectStatement.executeQuery();
+    /**
+     * Quotes the name of the table a form reads from.
+     * @param form SQLForm with external database connection information.
+     * @return String quoted table name.
+     */
+    private static String quoteTable(SQLForm form) {
+        return quoteIdentifier(form.getSourceType(), form.getTableName());
+    }
 
-            while (resultSet.next()) {
-                String title = resultSet.getString(BookColumns.TITLE);
-                String author = resultSet.getString(BookColumns.AUTHOR);
-                String genre = resultSet.getString(BookColumns.GENRE);
-                String bookStatusString = resultSet.getString(BookColumns.BOOK_STATUS);
-                BookStatus bookStatus = BookStatus.valueOf(bookStatusString);
-                String dueDate = resultSet.getString(BookColumns.DUE_DATE);
-
-                if (dueDate != null) {
-                    books.add(new Book(-1, title, author, genre, bookStatus, dueDate));
+    /**
+     * Prepares a forward only, read only query limited by the query timeout, which cancel
+     * can stop while it runs.
+     * @param connection Connection to the external database.
+     * @param sql String query to prepare.
+     * @return PreparedStatement for the query.
+     * @throws SQLException Thrown if the statement cannot be prepared, or the handler was cancelled.
+     */
+    private PreparedStatement prepareQuery(Connection connection, String sql) throws SQLException {
+        throwIfCancelled();
+        runningStatements.removeIf(ExternalSQLHandler::isClosed);
+
+        PreparedStatement statement = connection.prepareStatement(sql,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setQueryTimeout(queryTimeoutSeconds);
+        runningStatements.add(statement);
+
+        // cancel may have run before the statement could be found by it
+        if (cancelled) {
+            statement.close();
+            throwIfCancelled();
+        }
+        return statement;
+    }
+
+    /**
+     * Stops the calling read if the handler was cancelled.
+     * @throws SQLException Thrown if cancel was called.
+     */
+    private void throwIfCancelled() throws SQLException {
+        if (cancelled) {
+            throw new SQLException("The read was cancelled.");
+        }
+    }
+
+    /**
+     * Stops the calling read between batches if it was cancelled or its thread was interrupted.
+     * @throws SQLException Thrown if cancel was called.
+     * @throws InterruptedException Thrown if the reading thread was interrupted.
+     */
+    private void throwIfStopped() throws SQLException, InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        throwIfCancelled();
+    }
+
+    /**
+     * Cancels every query of the handler that is running, and stops reads between batches.
+     * Reads started afterwards fail at once. May be called from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+
+        for (Statement statement : runningStatements) {
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                // The statement has already finished
+            }
+        }
+    }
+
+    /**
+     * Determines whether a statement has been closed.
+     * @param statement Statement to check.
+     * @return True if the statement is closed or cannot be checked, false otherwise.
+     */
+    private static boolean isClosed(Statement statement) {
+        try {
+            return statement.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Sets the number of seconds each query may run before the driver cancels it. For
+     * MySQL this covers the time until the first rows arrive, and for SQLite the time
+     * spent waiting on a locked database.
+     * @param queryTimeoutSeconds Int number of seconds, or 0 for no limit.
+     */
+    public void setQueryTimeout(int queryTimeoutSeconds) {
+        this.queryTimeoutSeconds = Math.max(0, queryTimeoutSeconds);
+    }
+
+    /**
+     * Prepares a query whose rows are read one batch at a time. MySQL Connector/J
+     * otherwise buffers the whole result set before the first row is returned.
+     * @param connection Connection to the external database.
+     * @param form SQLForm with external database connection information.
+     * @param sql String query to prepare.
+     * @return PreparedStatement streaming its results.
+     * @throws SQLException Thrown if the statement cannot be prepared.
+     */
+    private PreparedStatement prepareStreamingQuery(Connection connection, SQLForm form, String sql)
+            throws SQLException {
+        PreparedStatement statement = prepareQuery(connection, sql);
+
+        if (form.getSourceType().equals(SQLSourceType.MYSQL)) {
+            statement.setFetchSize(MYSQL_STREAMING_FETCH_SIZE);
+        } else {
+            statement.setFetchSize(STREAMING_FETCH_SIZE);
+        }
+        return statement;
+    }
+
+    /**
+     * Reads every book from the table of an external database, handing them to a handler
+     * in batches as they arrive. Only the batch being filled is held in memory. Rows
+     * whose book status is missing or invalid are skipped and counted as rejected.
+     * @param form SQLForm with external database connection information.
+     * @param batchSize Int number of books per batch.
+     * @param handler BatchHandler receiving each batch on the calling thread.
+     * @throws SQLException Thrown if the table cannot be read or the handler fails.
+     * @throws InterruptedException Thrown if the calling thread is interrupted.
+     */
+    public void streamBooks(SQLForm form, int batchSize, BatchHandler handler)
+            throws SQLException, InterruptedException {
+        rowsRead.set(0);
+        rowsRejected.set(0);
+
+        String selectString = "SELECT * FROM " + quoteTable(form);
+
+        try (Connection connection = openConnection(form);
+             PreparedStatement selectStatement = prepareStreamingQuery(connection, form, selectString);
+             ResultSet resultSet = selectStatement.executeQuery()) {
+
+            readBooks(resultSet, batchSize, handler::accept);
+        }
+    }
+
+    /**
+     * Reads the rows of an external table after a watermark, in order of their watermark
+     * and then their key column, handing them to a handler in batches. With a key column,
+     * ties between rows sharing a watermark are broken by their key, so batches end after
+     * the batch size whatever the watermarks, and the next read continues after the last
+     * row's watermark and key. Without a key column each row is identified by its watermark,
+     * and batches only end between rows with different watermarks, so saving a batch's
+     * watermark never skips rows that share it. Rows without a valid book status or a row
+     * key are rejected.
+     * @param form SQLForm with external database connection information and a watermark column.
+     * @param watermark SyncWatermark of the last synced row, or null to read every row.
+     * @param batchSize Int number of rows per batch. Without a key column, exceeded by rows sharing
+     * a watermark, and with one, by rows without a key sharing a watermark.
+     * @param handler ChangeHandler receiving each batch on the calling thread.
+     * @throws SQLException Thrown if the form has no watermark column, the table cannot be read,
+     * or the handler fails.
+     * @throws InterruptedException Thrown if the calling thread is interrupted.
+     */
+    public void streamChanges(SQLForm form, SyncWatermark watermark, int batchSize, ChangeHandler handler)
+            throws SQLException, InterruptedException {
+        String watermarkColumn = form.getWatermarkColumn();
+        if (watermarkColumn == null) {
+            throw new SQLException("No watermark column was provided.");
+        }
+        boolean keyed = form.getKeyColumn() != null && !form.getKeyColumn().equals(watermarkColumn);
+        String rowColumn = keyed ? form.getKeyColumn() : watermarkColumn;
+        String quotedWatermark = quoteIdentifier(form.getSourceType(), watermarkColumn);
+        String quotedRow = quoteIdentifier(form.getSourceType(), rowColumn);
+        boolean resumeAfterRow = keyed && watermark != null && watermark.getRowKey() != null;
+
+        rowsRead.set(0);
+        rowsRejected.set(0);
+
+        String condition = "";
+        if (resumeAfterRow) {
+            condition = " WHERE " + quotedWatermark + " > ? OR (" + quotedWatermark + " = ? AND " + quotedRow + " > ?)";
+        } else if (watermark != null) {
+            condition = " WHERE " + quotedWatermark + " > ?";
+        }
+        String selectString = "SELECT * FROM " + quoteTable(form) + condition +
+                " ORDER BY " + quotedWatermark + (keyed ? ", " + quotedRow : "");
+        int size = Math.max(1, batchSize);
+
+        try (Connection connection = openConnection(form);
+             PreparedStatement selectStatement = prepareStreamingQuery(connection, form, selectString)) {
+
+            if (watermark != null) {
+                selectStatement.setObject(1, watermark.getValue());
+            }
+            if (resumeAfterRow) {
+                selectStatement.setObject(2, watermark.getValue());
+                selectStatement.setObject(3, watermark.getRowKey());
+            }
+
+            try (ResultSet resultSet = selectStatement.executeQuery()) {
+                BookColumnIndexes columns = new BookColumnIndexes(resultSet);
+                int watermarkIndex = resultSet.findColumn(watermarkColumn);
+                int rowIndex = resultSet.findColumn(rowColumn);
+
+                List<Book> books = new ArrayList<>(size);
+                List<String> sourceRows = new ArrayList<>(size);
+                Object batchWatermark = null;
+                Object batchRowKey = null;
+                int batchRows = 0;
+
+                while (resultSet.next()) {
+                    Object rowWatermark = toWatermark(resultSet.getObject(watermarkIndex));
+
+                    // A batch may end between rows sharing a watermark once its last row has a key to resume after
+                    if (batchRows >= size && (!Objects.equals(rowWatermark, batchWatermark) || batchRowKey != null)) {
+                        throwIfStopped();
+                        handler.accept(books, sourceRows, new SyncWatermark(batchWatermark, batchRowKey));
+                        books = new ArrayList<>(size);
+                        sourceRows = new ArrayList<>(size);
+                        batchRows = 0;
+                    }
+
+                    rowsRead.incrementAndGet();
+                    batchRows++;
+                    batchWatermark = rowWatermark;
+                    batchRowKey = keyed ? toWatermark(resultSet.getObject(rowIndex)) : null;
+
+                    Book book = createBook(resultSet, columns);
+                    String sourceRow = resultSet.getString(rowIndex);
+                    if (book == null || sourceRow == null) {
+                        rowsRejected.incrementAndGet();
+                        continue;
+                    }
+
+                    books.add(book);
+                    sourceRows.add(sourceRow);
+                }
+
+                // Rejected rows still move the watermark past them
+                if (batchRows > 0) {
+                    handler.accept(books, sourceRows, new SyncWatermark(batchWatermark, batchRowKey));
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts a watermark read from an external table into a value that can be saved in
+     * the library database and bound to a later query. Integer watermarks stay numbers so
+     * they are compared as numbers, and other values, such as timestamps, are kept as text.
+     * @param value Object read from the watermark column.
+     * @return Long or String watermark, or null if the value is null.
+     */
+    private static Object toWatermark(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (isIntegral(value)) {
+            return ((Number) value).longValue();
+        }
+        return value.toString();
+    }
+
+    /**
+     * Determines whether a value read from an external table is an integer that fits in a long.
+     * @param value Object read from a column.
+     * @return True if the value is a Long, Integer, Short, or Byte, false otherwise.
+     */
+    private static boolean isIntegral(Object value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+    }
+
+    /**
+     * Reads every book from the table of an external database as several ranges of its
+     * key column, each on its own connection, handing the books to a handler in batches
+     * as they arrive. The range between the smallest and largest key is split into
+     * partitions of equal width, and rows whose key is null are read with the last
+     * partition. Books from different partitions are interleaved, while the handler is
+     * only ever called on the calling thread. Tables without a key column, with one
+     * partition, or whose key column holds anything but integers, such as text or
+     * decimal keys that ranges of integers would skip, are read with streamBooks.
+     * @param form SQLForm with external database connection information and an integer key column.
+     * @param partitions Int number of key ranges to split the table into.
+     * @param maxConnections Int largest number of partitions read at once.
+     * @param batchSize Int number of books per batch.
+     * @param handler BatchHandler receiving each batch on the calling thread.
+     * @throws SQLException Thrown if the key column cannot be read, a partition cannot be read,
+     * or the handler fails. Partitions still being read are stopped.
+     * @throws InterruptedException Thrown if the calling thread is interrupted.
+     */
+    public void streamBooksPartitioned(SQLForm form, int partitions, int maxConnections, int batchSize,
+                                       BatchHandler handler) throws SQLException, InterruptedException {
+        String keyColumn = form.getKeyColumn();
+        if (keyColumn == null || partitions <= 1) {
+            streamBooks(form, batchSize, handler);
+            return;
+        }
+
+        long[] keyRange = findKeyRange(form, keyColumn);
+        if (keyRange == null) {
+            // There are no integer keys to split, so the table is read whole
+            streamBooks(form, batchSize, handler);
+            return;
+        }
+
+        rowsRead.set(0);
+        rowsRejected.set(0);
+
+        List<long[]> ranges = splitRange(keyRange[0], keyRange[1], partitions);
+        BlockingQueue<List<Book>> queue = new ArrayBlockingQueue<>(PARTITION_QUEUE_CAPACITY);
+        AtomicReference<SQLException> readFailure = new AtomicReference<>();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(ranges.size(), maxConnections)),
+                new PartitionThreadFactory());
+
+        try {
+            for (int i = 0; i < ranges.size(); i++) {
+                long[] range = ranges.get(i);
+                boolean last = i == ranges.size() - 1;
+                pool.execute(() -> readPartition(form, keyColumn, range, last, batchSize, queue, readFailure));
+            }
+
+            int partitionsRead = 0;
+            while (partitionsRead < ranges.size()) {
+                List<Book> batch = queue.take();
+
+                if (batch == PARTITION_END) {
+                    partitionsRead++;
                 } else {
-                    books.add(new Book(-1, title, author, genre, bookStatus));
+                    handler.accept(batch);
+                }
+
+                if (readFailure.get() != null) {
+                    throw readFailure.get();
                 }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+        } finally {
+            // Stops partitions that are still reading if the import failed or was cancelled
+            pool.shutdownNow();
         }
+    }
 
-        return books;
+    /**
+     * Reads one key range of the table on its own connection, handing its batches to the
+     * queue and marking the end of the range once it has been read or has failed.
+     * @param form SQLForm with external database connection information.
+     * @param keyColumn String name of the key column.
+     * @param range Long array of the smallest and largest key of the range.
+     * @param includeNullKeys True if rows whose key is null are read with this range.
+     * @param batchSize Int number of books per batch.
+     * @param queue BlockingQueue shared with the thread handling the batches.
+     * @param readFailure AtomicReference receiving the first error of any partition.
+     */
+    private void readPartition(SQLForm form, String keyColumn, long[] range, boolean includeNullKeys, int batchSize,
+                               BlockingQueue<List<Book>> queue, AtomicReference<SQLException> readFailure) {
+        String quotedKey = quoteIdentifier(form.getSourceType(), keyColumn);
+        String selectString = "SELECT * FROM " + quoteTable(form) +
+                " WHERE " + quotedKey + " BETWEEN ? AND ?" +
+                (includeNullKeys ? " OR " + quotedKey + " IS NULL" : "");
+
+        try {
+            try (Connection connection = openConnection(form);
+                 PreparedStatement selectStatement = prepareStreamingQuery(connection, form, selectString)) {
+
+                selectStatement.setLong(1, range[0]);
+                selectStatement.setLong(2, range[1]);
+
+                try (ResultSet resultSet = selectStatement.executeQuery()) {
+                    readBooks(resultSet, batchSize, queue::put);
+                }
+            } catch (SQLException e) {
+                readFailure.compareAndSet(null, e);
+            }
+
+            queue.put(PARTITION_END);
+        } catch (InterruptedException ignored) {
+            // The handling thread stopped and no longer reads from the queue
+        }
     }
 
     /**
-     * Retrieves all books from a user-provided SQLite database.
-     * @param path String absolute path to *.db file.
-     * @param tableName String table name.
-     * @return Book ArrayList containing all books from the database.
+     * Finds the smallest and largest value of the key column, provided every key is an
+     * integer. MySQL columns have a single type, so the type of the smallest and largest
+     * key is checked. SQLite columns may hold values of any type in any row, so the rows
+     * whose key is not an integer are counted as well.
+     * @param form SQLForm with external database connection information.
+     * @param keyColumn String name of the key column.
+     * @return Long array of the smallest and largest key, or null if every key is null
+     * or any key is not an integer.
+     * @throws SQLException Thrown if the key range cannot be read.
      */
-    private ArrayList<Book> getBooksSQLite(String path, String tableName) {
+    private long[] findKeyRange(SQLForm form, String keyColumn) throws SQLException {
+        String quotedKey = quoteIdentifier(form.getSourceType(), keyColumn);
+        boolean sqlite = form.getSourceType().equals(SQLSourceType.SQLITE);
+        String rangeString = "SELECT MIN(" + quotedKey + "), MAX(" + quotedKey + ")" +
+                (sqlite ? ", COUNT(*) FILTER (WHERE typeof(" + quotedKey + ") NOT IN ('integer', 'null'))" : "") +
+                " FROM " + quoteTable(form);
 
-        ArrayList<Book> books = new ArrayList<>();
+        try (Connection connection = openConnection(form);
+             PreparedStatement rangeStatement = prepareQuery(connection, rangeString);
+             ResultSet resultSet = rangeStatement.executeQuery()) {
+
+            if (!resultSet.next()) {
+                return null;
+            }
+
+            Object min = resultSet.getObject(1);
+            Object max = resultSet.getObject(2);
+            if (!isIntegral(min) || !isIntegral(max) || sqlite && resultSet.getLong(3) > 0) {
+                return null;
+            }
+            return new long[]{((Number) min).longValue(), ((Number) max).longValue()};
+        }
+    }
+
+    /**
+     * Splits a range of keys into ranges of nearly equal width.
+     * @param min Long smallest key.
+     * @param max Long largest key.
+     * @param partitions Int largest number of ranges.
+     * @return List of long arrays holding the smallest and largest key of each range, in order.
+     */
+    static List<long[]> splitRange(long min, long max, int partitions) {
+        List<long[]> ranges = new ArrayList<>();
+        // Unsigned, as the width of the whole range may exceed Long.MAX_VALUE
+        long span = max - min;
+        long width = Long.divideUnsigned(span, partitions) + 1;
 
-        String connectionString = "jdbc:sqlite:" + path;
+        long start = min;
+        for (int i = 0; i < partitions; i++) {
+            long remaining = max - start;
+            if (Long.compareUnsigned(remaining, width - 1) <= 0 || i == partitions - 1) {
+                ranges.add(new long[]{start, max});
+                break;
+            }
+
+            ranges.add(new long[]{start, start + width - 1});
+            start += width;
+        }
+        return ranges;
+    }
+
+    /**
+     * Converts every row of a result set into books, handing them to a sink in batches.
+     * Rows that cannot be converted are counted as rejected.
+     * @param resultSet ResultSet of rows of the external table.
+     * @param batchSize Int number of books per batch.
+     * @param sink BatchSink receiving each batch.
+     * @throws SQLException Thrown if a row cannot be read or the sink fails.
+     * @throws InterruptedException Thrown if the reading thread is interrupted.
+     */
+    private void readBooks(ResultSet resultSet, int batchSize, BatchSink sink)
+            throws SQLException, InterruptedException {
+        int size = Math.max(1, batchSize);
+        BookColumnIndexes columns = new BookColumnIndexes(resultSet);
+        List<Book> batch = new ArrayList<>(size);
+
+        while (resultSet.next()) {
+            rowsRead.incrementAndGet();
+
+            Book book = createBook(resultSet, columns);
+            if (book == null) {
+                rowsRejected.incrementAndGet();
+                continue;
+            }
+
+            batch.add(book);
+            if (batch.size() >= size) {
+                throwIfStopped();
+                sink.accept(batch);
+                batch = new ArrayList<>(size);
+            }
+        }
 
-        String selectString = "SELECT * FROM " + tableName;
+        if (!batch.isEmpty()) {
+            sink.accept(batch);
+        }
+    }
 
-        try(Connection connection = DriverManager.getConnection(connectionString);
-            PreparedStatement selectStatement = connection.prepareStatement(selectString)) {
+    /**
+     * Reads the first books from the table of an external database for display.
+     * @param form SQLForm with external database connection information.
+     * @param limit Int largest number of rows to read.
+     * @return Book ArrayList containing up to the limit of books, or an empty list if
+     * the table cannot be read.
+     */
+    public ArrayList<Book> previewBooks(SQLForm form, int limit) {
+        ArrayList<Book> books = new ArrayList<>();
+        String selectString = "SELECT * FROM " + quoteTable(form) + " LIMIT " + Math.max(0, limit);
 
-            ResultSet resultSet = selectStatement.executeQuery();
+        try (Connection connection = openConnection(form);
+             PreparedStatement selectStatement = prepareQuery(connection, selectString);
+             ResultSet resultSet = selectStatement.executeQuery()) {
 
+            BookColumnIndexes columns = new BookColumnIndexes(resultSet);
             while (resultSet.next()) {
-                String title = resultSet.getString(BookColumns.TITLE);
-                String author = resultSet.getString(BookColumns.AUTHOR);
-                String genre = resultSet.getString(BookColumns.GENRE);
-                String bookStatusString = resultSet.getString(BookColumns.BOOK_STATUS);
-                BookStatus bookStatus = BookStatus.valueOf(bookStatusString);
-                String dueDate = resultSet.getString(BookColumns.DUE_DATE);
-
-                if (dueDate != null) {
-                    books.add(new Book(-1, title, author, genre, bookStatus, dueDate));
-                } else {
-                    books.add(new Book(-1, title, author, genre, bookStatus));
+                Book book = createBook(resultSet, columns);
+                if (book != null) {
+                    books.add(book);
                 }
             }
         } catch (Exception e) {
@@ -97,6 +637,56 @@ public class ExternalSQLHandler {
         return books;
     }
 
+    /**
+     * Counts the rows in the table of an external database.
+     * @param form SQLForm with external database connection information.
+     * @return Long number of rows, or -1 if the table cannot be read.
+     */
+    public long countBooks(SQLForm form) {
+        String countString = "SELECT COUNT(*) FROM " + quoteTable(form);
+
+        try (Connection connection = openConnection(form);
+             PreparedStatement countStatement = prepareQuery(connection, countString);
+             ResultSet resultSet = countStatement.executeQuery()) {
+
+            if (resultSet.next()) {
+                return resultSet.getLong(1);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        return -1;
+    }
+
+    /**
+     * Converts the current row of a result set into a Book object.
+     * @param resultSet ResultSet positioned on a row of the external table.
+     * @param columns BookColumnIndexes of the result set.
+     * @return Book object representing the row, or null if its book status is missing or invalid.
+     * @throws SQLException Thrown if a column cannot be read.
+     */
+    private Book createBook(ResultSet resultSet, BookColumnIndexes columns) throws SQLException {
+        String bookStatusString = resultSet.getString(columns.bookStatus);
+        BookStatus bookStatus;
+
+        try {
+            bookStatus = BookStatus.valueOf(bookStatusString);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return null;
+        }
+
+        String title = resultSet.getString(columns.title);
+        String author = resultSet.getString(columns.author);
+        String genre = resultSet.getString(columns.genre);
+        String dueDate = resultSet.getString(columns.dueDate);
+
+        if (dueDate != null) {
+            return new Book(-1, title, author, genre, bookStatus, dueDate);
+        }
+        return new Book(-1, title, author, genre, bookStatus);
+    }
+
     /**
      * Processes an SQLForm object and returns books from either an MySQL or SQLite database
      * based on the information provided by the form.
@@ -104,10 +694,69 @@ public class ExternalSQLHandler {
      * @return Book ArrayList representing all books from an external database.
      */
     public ArrayList<Book> getBooksFromDatabase(SQLForm form) {
-        if (form.getSourceType().equals(SQLSourceType.MYSQL)) {
-            return getBooksMySQL(form.getDataSource(), form.getDatabaseName(),
-                    form.getUsername(), form.getPassword(), form.getTableName());
+        ArrayList<Book> books = new ArrayList<>();
+
+        try {
+            streamBooks(form, STREAMING_FETCH_SIZE, books::addAll);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        return books;
+    }
+
+    /**
+     * Counts the rows read by the last stream.
+     * @return Long number of rows read.
+     */
+    public long getRowsRead() {
+        return rowsRead.get();
+    }
+
+    /**
+     * Counts the rows of the last stream that could not be converted into books.
+     * @return Long number of rejected rows.
+     */
+    public long getRowsRejected() {
+        return rowsRejected.get();
+    }
+
+    /**
+     * Creates daemon threads for reading partitions, so a stalled source cannot keep the application open.
+     */
+    private static class PartitionThreadFactory implements java.util.concurrent.ThreadFactory {
+        /** Number of threads created, used to name them.*/
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "external-partition-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Positions of the book columns in a result set, looked up once instead of by name for every row.
+     */
+    private static class BookColumnIndexes {
+        /** Index of the title column.*/
+        private final int title;
+        /** Index of the author column.*/
+        private final int author;
+        /** Index of the genre column.*/
+        private final int genre;
+        /** Index of the book_status column.*/
+        private final int bookStatus;
+        /** Index of the due_date column.*/
+        private final int dueDate;
+
+        private BookColumnIndexes(ResultSet resultSet) throws SQLException {
+            title = resultSet.findColumn(BookColumns.TITLE);
+            author = resultSet.findColumn(BookColumns.AUTHOR);
+            genre = resultSet.findColumn(BookColumns.GENRE);
+            bookStatus = resultSet.findColumn(BookColumns.BOOK_STATUS);
+            dueDate = resultSet.findColumn(BookColumns.DUE_DATE);
         }
-        return getBooksSQLite(form.getDatabaseFilePath(), form.getTableName());
     }
 }
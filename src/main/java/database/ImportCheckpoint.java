@@ -0,0 +1,93 @@
+package database;
+
+/**
+ * This class records how far an import of a text file has been committed to the
+ * library database. The file is identified by its path, size, modification time,
+ * and a hash of its contents, so a checkpoint is only used to resume the same file.
+ * The position is the byte offset and line number just after the last line whose
+ * book was committed.
+ * @author Elise Kidroske
+ */
+public class ImportCheckpoint {
+    /** Byte offset stored when the position within the file is only known as a line number.*/
+    public static final long UNKNOWN_OFFSET = -1;
+
+    /** String absolute path to the text file.*/
+    private final String sourcePath;
+    /** Size in bytes of the text file.*/
+    private final long sourceSize;
+    /** Time in milliseconds since the epoch the text file was last modified.*/
+    private final long sourceModified;
+    /** Hash of the text file's contents.*/
+    private final String sourceHash;
+
+    /** Position in bytes after the last committed line, or UNKNOWN_OFFSET.*/
+    private long byteOffset;
+    /** Number of lines up to and including the last committed line.*/
+    private long lineNumber;
+    /** Number of books committed by every run of the import.*/
+    private long rowsInserted;
+
+    public ImportCheckpoint(String sourcePath, long sourceSize, long sourceModified, String sourceHash) {
+        this(sourcePath, sourceSize, sourceModified, sourceHash, 0, 0, 0);
+    }
+
+    public ImportCheckpoint(String sourcePath, long sourceSize, long sourceModified, String sourceHash,
+                            long byteOffset, long lineNumber, long rowsInserted) {
+        this.sourcePath = sourcePath;
+        this.sourceSize = sourceSize;
+        this.sourceModified = sourceModified;
+        this.sourceHash = sourceHash;
+        this.byteOffset = byteOffset;
+        this.lineNumber = lineNumber;
+        this.rowsInserted = rowsInserted;
+    }
+
+    public String getSourcePath() {
+        return sourcePath;
+    }
+
+    public long getSourceSize() {
+        return sourceSize;
+    }
+
+    public long getSourceModified() {
+        return sourceModified;
+    }
+
+    public String getSourceHash() {
+        return sourceHash;
+    }
+
+    public long getByteOffset() {
+        return byteOffset;
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    public long getRowsInserted() {
+        return rowsInserted;
+    }
+
+    /**
+     * Determines whether an earlier import of the file committed part of it.
+     * @return True if the import resumes after the start of the file, false otherwise.
+     */
+    public boolean isResumed() {
+        return lineNumber > 0;
+    }
+
+    /**
+     * Moves the checkpoint once a transaction has been committed.
+     * @param byteOffset Long position in bytes after the last committed line, or UNKNOWN_OFFSET.
+     * @param lineNumber Long number of lines up to and including the last committed line.
+     * @param rowsInserted Long number of books committed by every run of the import.
+     */
+    void setPosition(long byteOffset, long lineNumber, long rowsInserted) {
+        this.byteOffset = byteOffset;
+        this.lineNumber = lineNumber;
+        this.rowsInserted = rowsInserted;
+    }
+}
@@ -0,0 +1,68 @@
+package database;
+
+/**
+ * This class reports how an insert of books into the library database went.
+ * @author Elise Kidroske
+ */
+public class InsertStatistics {
+    /** Number of books inserted.*/
+    private final long rowsInserted;
+    /** Number of books skipped as duplicates.*/
+    private final long duplicatesSkipped;
+    /** Number of JDBC batches the books were sent in.*/
+    private final int chunks;
+    /** Number of transactions committed.*/
+    private final int commits;
+    /** Time in nanoseconds the insert took.*/
+    private final long elapsedNanos;
+
+    public InsertStatistics(long rowsInserted, int chunks, int commits, long elapsedNanos) {
+        this(rowsInserted, 0, chunks, commits, elapsedNanos);
+    }
+
+    public InsertStatistics(long rowsInserted, long duplicatesSkipped, int chunks, int commits, long elapsedNanos) {
+        this.rowsInserted = rowsInserted;
+        this.duplicatesSkipped = duplicatesSkipped;
+        this.chunks = chunks;
+        this.commits = commits;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getRowsInserted() {
+        return rowsInserted;
+    }
+
+    public long getDuplicatesSkipped() {
+        return duplicatesSkipped;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    public int getCommits() {
+        return commits;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Calculates the insert rate.
+     * @return Double number of books inserted per second.
+     */
+    public double getRowsPerSecond() {
+        if (elapsedNanos <= 0) {
+            return 0;
+        }
+        return rowsInserted / (elapsedNanos / 1_000_000_000.0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d books in %,d chunks and %,d commits (%,.0f books/sec)",
+                rowsInserted, chunks, commits, getRowsPerSecond()) +
+                (duplicatesSkipped > 0 ? String.format(", %,d duplicates skipped", duplicatesSkipped) : "");
+    }
+}
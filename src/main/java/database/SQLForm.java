@@ -1,5 +1,7 @@
 package database;
 
+import java.nio.file.Paths;
+
 /**
  * This class represents a data object used for transporting external database connection
  * information from the user to the application layer where it can be processed.
@@ -20,6 +22,10 @@ public class SQLForm {
     private String password;
     /** An absolute path to a database file to open.*/
     private String databaseFilePath;
+    /** An integer column whose range splits the table into partitions read in parallel, if any.*/
+    private String keyColumn;
+    /** A column whose value grows whenever a row is added or changed, used to sync only newer rows, if any.*/
+    private String watermarkColumn;
 
     public SQLForm(SQLSourceType sourceType, String tableName,
                    String dataSource, String databaseName,
@@ -65,4 +71,31 @@ public class SQLForm {
     public String getDatabaseFilePath() {
         return databaseFilePath;
     }
+
+    public String getKeyColumn() {
+        return keyColumn;
+    }
+
+    public void setKeyColumn(String keyColumn) {
+        this.keyColumn = keyColumn;
+    }
+
+    public String getWatermarkColumn() {
+        return watermarkColumn;
+    }
+
+    public void setWatermarkColumn(String watermarkColumn) {
+        this.watermarkColumn = watermarkColumn;
+    }
+
+    /**
+     * Identifies the table this form reads from, whatever credentials are used to reach it.
+     * @return String naming the database server or file and the table.
+     */
+    public String getSourceKey() {
+        if (sourceType.equals(SQLSourceType.MYSQL)) {
+            return "mysql://" + dataSource + "/" + databaseName + "#" + tableName;
+        }
+        return "sqlite:" + Paths.get(databaseFilePath).toAbsolutePath().normalize() + "#" + tableName;
+    }
 }
@@ -0,0 +1,80 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * This enum represents named sets of SQLite settings applied to connections
+ * to the library database when they are opened.
+ * @author Elise Kidroske
+ */
+public enum SQLiteTuningProfile {
+    /** Syncs every commit to disk. Safest choice if power loss is a concern.*/
+    DURABLE("durable", "WAL", "FULL", 64L * 1024 * 1024, -16_000, "DEFAULT", 5_000),
+    /** Syncs at WAL checkpoints only. Commits survive application crashes but not power loss.*/
+    BALANCED("balanced", "WAL", "NORMAL", 256L * 1024 * 1024, -64_000, "MEMORY", 5_000),
+    /** Skips syncing and uses a large cache. Meant only for the duration of large imports.*/
+    BULK_IMPORT("bulk-import", "WAL", "OFF", 256L * 1024 * 1024, -256_000, "MEMORY", 30_000);
+
+    /** Name used to select the profile from configuration.*/
+    private final String profileName;
+    /** Value for PRAGMA journal_mode.*/
+    private final String journalMode;
+    /** Value for PRAGMA synchronous.*/
+    private final String synchronous;
+    /** Value for PRAGMA mmap_size in bytes.*/
+    private final long mmapSize;
+    /** Value for PRAGMA cache_size. Negative values are in KiB, positive values in pages.*/
+    private final int cacheSize;
+    /** Value for PRAGMA temp_store.*/
+    private final String tempStore;
+    /** Value for PRAGMA busy_timeout in milliseconds.*/
+    private final int busyTimeout;
+
+    SQLiteTuningProfile(String profileName, String journalMode, String synchronous,
+                        long mmapSize, int cacheSize, String tempStore, int busyTimeout) {
+        this.profileName = profileName;
+        this.journalMode = journalMode;
+        this.synchronous = synchronous;
+        this.mmapSize = mmapSize;
+        this.cacheSize = cacheSize;
+        this.tempStore = tempStore;
+        this.busyTimeout = busyTimeout;
+    }
+
+    /**
+     * Finds the profile matching a configuration name such as "balanced" or "bulk-import".
+     * @param name String name of the profile.
+     * @return SQLiteTuningProfile with the provided name, or BALANCED if no profile matches.
+     */
+    public static SQLiteTuningProfile fromName(String name) {
+        for (SQLiteTuningProfile profile : values()) {
+            if (profile.profileName.equalsIgnoreCase(name) || profile.name().equalsIgnoreCase(name)) {
+                return profile;
+            }
+        }
+        return BALANCED;
+    }
+
+    /**
+     * Applies the profile's settings to an open connection. Must not be called
+     * while the connection is inside a transaction.
+     * @param connection Connection to the library database.
+     * @throws SQLException Thrown if a setting cannot be applied.
+     */
+    public void apply(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA busy_timeout = " + busyTimeout);
+            statement.execute("PRAGMA journal_mode = " + journalMode);
+            statement.execute("PRAGMA synchronous = " + synchronous);
+            statement.execute("PRAGMA mmap_size = " + mmapSize);
+            statement.execute("PRAGMA cache_size = " + cacheSize);
+            statement.execute("PRAGMA temp_store = " + tempStore);
+        }
+    }
+
+    public String getProfileName() {
+        return profileName;
+    }
+}
@@ -0,0 +1,124 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * This class creates and upgrades the schema of the library database. The schema
+ * version is stored in SQLite's user_version header field, so each migration runs
+ * exactly once and running the migrator again on an up-to-date database does nothing.
+ * @author Elise Kidroske
+ */
+public class SchemaMigrator {
+    /**
+     * Statements for each schema version. Migration n upgrades the database from
+     * version n to version n + 1. New migrations must only ever be appended.
+     */
+    private static final String[][] MIGRATIONS = {
+            // Version 1: the books table as shipped with the original application
+            {
+                    "CREATE TABLE IF NOT EXISTS books (" +
+                            "barcode INTEGER PRIMARY KEY, " +
+                            "title VARCHAR(100), " +
+                            "author VARCHAR(50), " +
+                            "genre VARCHAR(50), " +
+                            "book_status VARCHAR(20), " +
+                            "due_date DATE, " +
+                            "CONSTRAINT CHK_Book_Status CHECK (" +
+                            "book_status = 'CHECKED_OUT' OR book_status = 'CHECKED_IN'))"
+            },
+            // Version 2: secondary indexes for lookups by title, author, genre and due date
+            {
+                    "CREATE INDEX IF NOT EXISTS idx_books_title_nocase ON books (title COLLATE NOCASE)",
+                    "CREATE INDEX IF NOT EXISTS idx_books_author ON books (author)",
+                    "CREATE INDEX IF NOT EXISTS idx_books_genre ON books (genre)",
+                    "CREATE INDEX IF NOT EXISTS idx_books_due_date ON books (due_date) WHERE due_date IS NOT NULL"
+            },
+            // Version 3: the position reached by unfinished text file imports, so they can be resumed
+            {
+                    "CREATE TABLE IF NOT EXISTS import_checkpoints (" +
+                            "source_path TEXT PRIMARY KEY, " +
+                            "source_size INTEGER NOT NULL, " +
+                            "source_modified INTEGER NOT NULL, " +
+                            "source_hash TEXT NOT NULL, " +
+                            "byte_offset INTEGER NOT NULL, " +
+                            "line_number INTEGER NOT NULL, " +
+                            "rows_inserted INTEGER NOT NULL, " +
+                            "updated_at TEXT NOT NULL DEFAULT CURRENT_TIMESTAMP)"
+            },
+            // Version 4: the external row each synced book came from, and the last watermark synced per source
+            {
+                    "ALTER TABLE books ADD COLUMN source_key TEXT",
+                    "ALTER TABLE books ADD COLUMN source_row TEXT",
+                    "CREATE UNIQUE INDEX IF NOT EXISTS idx_books_source ON books (source_key, source_row) " +
+                            "WHERE source_key IS NOT NULL",
+                    "CREATE TABLE IF NOT EXISTS sync_watermarks (" +
+                            "source_key TEXT PRIMARY KEY, " +
+                            "watermark NOT NULL, " +
+                            "rows_synced INTEGER NOT NULL, " +
+                            "updated_at TEXT NOT NULL DEFAULT CURRENT_TIMESTAMP)"
+            },
+            // Version 5: the row key of the last synced row, breaking ties between rows sharing its watermark
+            {
+                    "ALTER TABLE sync_watermarks ADD COLUMN watermark_row"
+            }
+    };
+
+    /** Schema version the library database is upgraded to.*/
+    public static final int CURRENT_VERSION = MIGRATIONS.length;
+
+    /**
+     * Brings the library database up to the current schema version. Each migration
+     * runs in its own transaction together with the version update.
+     * @param connection Connection to the library database.
+     * @return Int schema version of the database after migrating.
+     * @throws SQLException Thrown if a migration fails. The failed migration is rolled back.
+     */
+    public int migrate(Connection connection) throws SQLException {
+        int version = getVersion(connection);
+
+        if (version >= CURRENT_VERSION) {
+            return version;
+        }
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+
+        try (Statement statement = connection.createStatement()) {
+            while (version < CURRENT_VERSION) {
+                for (String sql : MIGRATIONS[version]) {
+                    statement.execute(sql);
+                }
+
+                version++;
+                statement.execute("PRAGMA user_version = " + version);
+                connection.commit();
+            }
+
+            // Refreshes the query planner's statistics for the new indexes
+            statement.execute("PRAGMA optimize");
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+
+        return version;
+    }
+
+    /**
+     * Reads the schema version recorded in the library database.
+     * @param connection Connection to the library database.
+     * @return Int schema version, 0 for a database that has never been migrated.
+     * @throws SQLException Thrown if the version cannot be read.
+     */
+    public int getVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("PRAGMA user_version")) {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+    }
+}
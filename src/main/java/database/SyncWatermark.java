@@ -0,0 +1,28 @@
+package database;
+
+/**
+ * This class records the last row of an external table synced into the library
+ * database. Rows are synced in order of their watermark and then their row key, so
+ * the next sync reads the rows with a larger watermark, or the same watermark and a
+ * larger row key. Without a row key, every row sharing the watermark has been synced.
+ * @author Elise Kidroske
+ */
+public class SyncWatermark {
+    /** Watermark of the last synced row, a Long or String.*/
+    private final Object value;
+    /** Row key of the last synced row, a Long or String, or null if every row with the watermark was synced.*/
+    private final Object rowKey;
+
+    public SyncWatermark(Object value, Object rowKey) {
+        this.value = value;
+        this.rowKey = rowKey;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public Object getRowKey() {
+        return rowKey;
+    }
+}
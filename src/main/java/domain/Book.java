@@ -1,7 +1,9 @@
 package domain;
 
 /**
- * This class represents an instance of a book in the library database.
+ * This class represents an instance of a book in the library database. Authors and
+ * genres are stored through the shared StringDictionary instances, so books with the
+ * same author or genre share one String.
  * @author Elise Kidroske
  */
 public class Book {
@@ -25,8 +27,8 @@ public class Book {
     public Book(int barcode, String title, String author, String genre, BookStatus bookStatus, String dueDate) {
         this.barcode = barcode;
         this.title = title;
-        this.author = author;
-        this.genre = genre;
+        this.author = StringDictionary.AUTHORS.intern(author);
+        this.genre = StringDictionary.GENRES.intern(genre);
         this.bookStatus = bookStatus;
         this.dueDate = dueDate;
     }
@@ -52,7 +54,7 @@ public class Book {
     }
 
     public void setAuthor(String author) {
-        this.author = author;
+        this.author = StringDictionary.AUTHORS.intern(author);
     }
 
     public String getGenre() {
@@ -60,7 +62,7 @@ public class Book {
     }
 
     public void setGenre(String genre) {
-        this.genre = genre;
+        this.genre = StringDictionary.GENRES.intern(genre);
     }
 
     public BookStatus getBookStatus() {
@@ -0,0 +1,62 @@
+package domain;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class makes equal Strings share one instance, for values such as authors and
+ * genres that repeat across many books. Every Book stores its author and genre through
+ * the shared dictionaries, so a catalog of millions of books holds each distinct author
+ * and genre once instead of once per book. Unlike String.intern, the entries stay on
+ * the ordinary heap and each dictionary stops growing at a fixed number of values,
+ * after which new values are kept as they are. Dictionaries are safe to use from
+ * several threads.
+ * @author Elise Kidroske
+ */
+public class StringDictionary {
+    /** Distinct authors shared by every Book.*/
+    public static final StringDictionary AUTHORS = new StringDictionary(500_000);
+    /** Distinct genres shared by every Book.*/
+    public static final StringDictionary GENRES = new StringDictionary(10_000);
+
+    /** Canonical instance of each value, keyed by itself.*/
+    private final ConcurrentHashMap<String, String> values = new ConcurrentHashMap<>();
+    /** Number of values after which new values are no longer added.*/
+    private final int capacity;
+
+    public StringDictionary(int capacity) {
+        this.capacity = Math.max(0, capacity);
+    }
+
+    /**
+     * Finds the shared instance of a value, adding the value if it is new and the
+     * dictionary is not full.
+     * @param value String to look up. May be null.
+     * @return String equal to the value, shared with every other caller that passed an
+     * equal value, or the value itself if it is null or the dictionary is full.
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        String shared = values.get(value);
+        if (shared != null) {
+            return shared;
+        }
+
+        if (values.size() >= capacity) {
+            return value;
+        }
+
+        shared = values.putIfAbsent(value, value);
+        return shared == null ? value : shared;
+    }
+
+    /**
+     * Counts the distinct values in the dictionary.
+     * @return Int number of shared values.
+     */
+    public int size() {
+        return values.size();
+    }
+}
@@ -32,6 +32,10 @@ public class DatabaseFormDialog extends Dialog<ButtonType> {
     private RadioButton sqlite;
     /** Obtains the name of the table to access in the database.*/
     private TextField tableNameField;
+    /** Obtains the optional integer column used to read the table in parallel partitions.*/
+    private TextField keyColumnField;
+    /** Obtains the optional column used to sync only the rows changed since the last sync.*/
+    private TextField watermarkColumnField;
 
     /** Container for storing form components for accessing a MySQL database.*/
     private VBox mySQLGroup;
@@ -124,6 +128,20 @@ public class DatabaseFormDialog extends Dialog<ButtonType> {
         this.tableNameField.setMinHeight(30);
         this.tableNameField.setMaxHeight(30);
 
+        Label keyColumn = new Label("Key Column (Optional)");
+        this.keyColumnField = new TextField();
+        this.keyColumnField.setPromptText("id");
+        this.keyColumnField.setPrefHeight(30);
+        this.keyColumnField.setMinHeight(30);
+        this.keyColumnField.setMaxHeight(30);
+
+        Label watermarkColumn = new Label("Sync Watermark Column (Optional)");
+        this.watermarkColumnField = new TextField();
+        this.watermarkColumnField.setPromptText("updated_at");
+        this.watermarkColumnField.setPrefHeight(30);
+        this.watermarkColumnField.setMinHeight(30);
+        this.watermarkColumnField.setMaxHeight(30);
+
         Label databaseTypeLabel = new Label("Database Type");
         HBox radioHBox = new HBox();
         radioHBox.setAlignment(Pos.CENTER);
@@ -269,6 +287,10 @@ public class DatabaseFormDialog extends Dialog<ButtonType> {
         mainPane.getChildren().add(radioHBox);
         mainPane.getChildren().add(tableName);
         mainPane.getChildren().add(tableNameField);
+        mainPane.getChildren().add(keyColumn);
+        mainPane.getChildren().add(keyColumnField);
+        mainPane.getChildren().add(watermarkColumn);
+        mainPane.getChildren().add(watermarkColumnField);
 
         mainPane.getChildren().add(groupPane);
         mainPane.getChildren().add(buttonHBox);
@@ -293,6 +315,27 @@ public class DatabaseFormDialog extends Dialog<ButtonType> {
             return null;
         }
 
+        SQLForm form = createSQLForm(sourceType, tableName);
+        String keyColumn = keyColumnField.getText().trim();
+        if (form != null && !keyColumn.isEmpty()) {
+            form.setKeyColumn(keyColumn);
+        }
+        String watermarkColumn = watermarkColumnField.getText().trim();
+        if (form != null && !watermarkColumn.isEmpty()) {
+            form.setWatermarkColumn(watermarkColumn);
+        }
+        return form;
+    }
+
+    /**
+     * Creates a database form from the connection fields of the selected database type.
+     * @param sourceType SQLSourceType selected by the user.
+     * @param tableName String name of the table to access.
+     * @return SQLForm filled with external database connection information, or null
+     * if a connection field is empty.
+     */
+    private SQLForm createSQLForm(SQLSourceType sourceType, String tableName) {
+
         if (sourceType.equals(SQLSourceType.MYSQL)) {
             String dataSource = dbSourceField.getText().trim();
             String databaseName = dbNameField.getText().trim();
@@ -28,11 +28,18 @@ public class PreviewBooksDialog extends Dialog<ButtonType> {
     private ListView<Book> booksList;
     /** Stores Book objects to display in ListView.*/
     private final ObservableList<Book> observableBooks;
+    /** Describes the books when only some of them are displayed, or null.*/
+    private final String summary;
 
     public PreviewBooksDialog(ArrayList<Book> books) {
+        this(books, null);
+    }
+
+    public PreviewBooksDialog(ArrayList<Book> books, String summary) {
         super();
         this.setTitle("Confirm Books");
         observableBooks = FXCollections.observableList(books);
+        this.summary = summary;
         buildUI();
     }
 
@@ -121,6 +128,11 @@ public class PreviewBooksDialog extends Dialog<ButtonType> {
 
         pane.getChildren().add(iconView);
         pane.getChildren().add(confirmLabel);
+        if (summary != null) {
+            Label summaryLabel = new Label(summary);
+            summaryLabel.setTextAlignment(TextAlignment.CENTER);
+            pane.getChildren().add(summaryLabel);
+        }
         pane.getChildren().add(booksList);
         pane.getChildren().add(buttonsBox);
 
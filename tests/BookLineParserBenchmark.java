@@ -0,0 +1,182 @@
+import application.BookLineParser;
+import domain.Book;
+import domain.BookStatus;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the single-pass BookLineParser against the previous regular expression
+ * and String.split based parsing on a large file built by repeating tests/test-books.txt.
+ * Prints lines per second for both and checks that both produce the same books.
+ * Run from the project root with the project classes on the classpath. The number
+ * of lines can be passed as the first argument.
+ * @author Elise Kidroske
+ */
+public class BookLineParserBenchmark {
+    /** Number of lines written to the generated file unless another number is provided.*/
+    private static final int DEFAULT_LINES = 5_000_000;
+    /** Number of times each parser reads the file. The first round is a warm up.*/
+    private static final int ROUNDS = 3;
+
+    /**
+     * Runs the benchmark.
+     * @param args String array of arguments from the command line.
+     * @throws IOException Thrown if the generated file cannot be written or read.
+     */
+    public static void main(String[] args) throws IOException {
+        int lineCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_LINES;
+        Path file = createFile(lineCount);
+
+        try {
+            verify(file);
+
+            BookLineParser parser = new BookLineParser();
+            for (int round = 1; round <= ROUNDS; round++) {
+                double legacy = run(file, BookLineParserBenchmark::parseLegacy);
+                double singlePass = run(file, parser::parse);
+
+                System.out.printf("Round %d: regex and split %,.0f lines/sec, single pass %,.0f lines/sec (%.1fx)%n",
+                        round, legacy, singlePass, singlePass / legacy);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Writes a file by repeating the sample books, adding a few lines that must be rejected.
+     * @param lineCount Int number of lines to write.
+     * @return Path to the generated file.
+     * @throws IOException Thrown if the file cannot be written.
+     */
+    private static Path createFile(int lineCount) throws IOException {
+        List<String> samples = Files.readAllLines(Paths.get("tests", "test-books.txt"), StandardCharsets.UTF_8);
+        samples.add("Missing Status,Author,Genre,,2024-01-01");
+        samples.add("Bad Date,Author,Genre,checked_out,2024-02-30");
+        samples.add("Too Few Fields,Author,Genre,CHECKED_IN");
+        samples.add("Part One;Part Two,Author,Genre,CHECKED_IN,");
+        samples.add("Trailing Semicolon;,Author,Genre,CHECKED_IN,");
+        samples.add("Semicolon Author,Last; First,Genre,CHECKED_IN,");
+
+        Path file = Files.createTempFile("books-benchmark", ".txt");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < lineCount; i++) {
+                writer.write(samples.get(i % samples.size()));
+                writer.newLine();
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Checks that both parsers produce the same book for every line of the file.
+     * @param file Path to the generated file.
+     * @throws IOException Thrown if the file cannot be read.
+     */
+    private static void verify(Path file) throws IOException {
+        BookLineParser parser = new BookLineParser();
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Book expected = parseLegacy(line);
+                Book actual = parser.parse(line);
+
+                if ((expected == null) != (actual == null) || (expected != null && !sameBook(expected, actual))) {
+                    throw new IllegalStateException("Parsers disagree on line: " + line);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the file line by line with the provided parser.
+     * @param file Path to the generated file.
+     * @param parser Function converting a line into a Book, or null if it is not valid.
+     * @return Double lines parsed per second.
+     * @throws IOException Thrown if the file cannot be read.
+     */
+    private static double run(Path file, Function<String, Book> parser) throws IOException {
+        long lines = 0;
+        long books = 0;
+        long start = System.nanoTime();
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines++;
+                if (parser.apply(line) != null) {
+                    books++;
+                }
+            }
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (books == 0) {
+            throw new IllegalStateException("No books were parsed.");
+        }
+        return lines / seconds;
+    }
+
+    /**
+     * Determines whether two books have the same fields.
+     * @param first Book to compare.
+     * @param second Book to compare.
+     * @return True if every field matches, false otherwise.
+     */
+    private static boolean sameBook(Book first, Book second) {
+        return first.getBarcode() == second.getBarcode() &&
+                Objects.equals(first.getTitle(), second.getTitle()) &&
+                Objects.equals(first.getAuthor(), second.getAuthor()) &&
+                Objects.equals(first.getGenre(), second.getGenre()) &&
+                first.getBookStatus() == second.getBookStatus() &&
+                Objects.equals(first.getDueDate(), second.getDueDate());
+    }
+
+    /**
+     * Parses a line the way LibraryCore did before BookLineParser was introduced.
+     * @param line String line of text.
+     * @return Book object from the provided line, or null if the line is not valid.
+     */
+    private static Book parseLegacy(String line) {
+        Pattern pattern = Pattern.compile("[^,;]+,[^,;]+,[^,;]+,[^,;]+,[^,;]*");
+        Matcher matcher = pattern.matcher(line);
+        if (!matcher.find()) {
+            return null;
+        }
+
+        String[] parameters = line.split(",");
+        String status = parameters[3];
+
+        BookStatus bookStatus;
+        if (status.equalsIgnoreCase(BookStatus.CHECKED_OUT.toString()) ||
+                status.equalsIgnoreCase(BookStatus.CHECKED_IN.toString())) {
+            bookStatus = BookStatus.valueOf(status.toUpperCase());
+        } else {
+            return null;
+        }
+
+        if (parameters.length > 4) {
+            try {
+                LocalDate.parse(parameters[4]);
+                return new Book(-1, parameters[0], parameters[1], parameters[2], bookStatus, parameters[4]);
+            } catch (DateTimeException ignored) {
+            }
+        }
+
+        return new Book(-1, parameters[0], parameters[1], parameters[2], bookStatus);
+    }
+}
@@ -0,0 +1,92 @@
+import database.DatabaseManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+/**
+ * Compares barcode lookups that open a new connection per call against lookups
+ * made through the pooled DatabaseManager. Prints operations per second for both.
+ * Run from the project root with the project classes and sqlite-jdbc on the classpath.
+ * @author Elise Kidroske
+ */
+public class ConnectionPoolBenchmark {
+    /** Number of lookups performed before measuring.*/
+    private static final int WARMUP_OPERATIONS = 2_000;
+    /** Number of lookups measured.*/
+    private static final int MEASURED_OPERATIONS = 20_000;
+
+    /**
+     * Runs the benchmark against a temporary copy of the library database.
+     * @param args String array of arguments from the command line.
+     * @throws Exception Thrown if the database cannot be copied or queried.
+     */
+    public static void main(String[] args) throws Exception {
+        // Disables the book cache so that every pooled lookup reaches the database
+        System.setProperty(DatabaseManager.CACHE_SIZE_PROPERTY, "0");
+
+        Path source = Paths.get(args.length > 0 ? args[0] : DatabaseManager.DEFAULT_DATABASE_PATH);
+        Path copy = Files.createTempFile("library-benchmark", ".db");
+        Files.copy(source, copy, StandardCopyOption.REPLACE_EXISTING);
+
+        try (DatabaseManager databaseManager = new DatabaseManager(copy.toString())) {
+            String connectionString = "jdbc:sqlite:" + copy;
+
+            run(connectionString, WARMUP_OPERATIONS);
+            double unpooled = run(connectionString, MEASURED_OPERATIONS);
+
+            run(databaseManager, WARMUP_OPERATIONS);
+            double pooled = run(databaseManager, MEASURED_OPERATIONS);
+
+            System.out.printf("Connection per call: %,.0f ops/sec%n", unpooled);
+            System.out.printf("Pooled connections:  %,.0f ops/sec%n", pooled);
+            System.out.printf("Speedup:             %.1fx%n", pooled / unpooled);
+        } finally {
+            Files.deleteIfExists(copy);
+        }
+    }
+
+    /**
+     * Looks up books by barcode, opening a new connection for every lookup.
+     * @param connectionString String JDBC connection string.
+     * @param operations Int number of lookups to perform.
+     * @return Double operations per second.
+     * @throws Exception Thrown if a lookup fails.
+     */
+    private static double run(String connectionString, int operations) throws Exception {
+        long start = System.nanoTime();
+
+        for (int i = 0; i < operations; i++) {
+            try (Connection connection = DriverManager.getConnection(connectionString);
+                 PreparedStatement selectBook = connection.prepareStatement("SELECT * FROM books WHERE barcode = ?")) {
+                selectBook.setInt(1, i % 20 + 1);
+                try (ResultSet resultSet = selectBook.executeQuery()) {
+                    resultSet.next();
+                }
+            }
+        }
+
+        return operations / ((System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Looks up books by barcode through the pooled DatabaseManager.
+     * @param databaseManager DatabaseManager to query.
+     * @param operations Int number of lookups to perform.
+     * @return Double operations per second.
+     */
+    private static double run(DatabaseManager databaseManager, int operations) {
+        long start = System.nanoTime();
+
+        for (int i = 0; i < operations; i++) {
+            databaseManager.searchByBarcode(i % 20 + 1);
+        }
+
+        return operations / ((System.nanoTime() - start) / 1e9);
+    }
+}
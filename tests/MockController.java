@@ -1,9 +1,18 @@
+import application.CancellationToken;
+import application.CirculationResult;
+import application.ImportPreview;
+import application.ImportProgress;
 import application.LibraryCore;
+import controller.BookChanges;
 import controller.IBookController;
+import database.BookFilter;
+import database.InsertStatistics;
+import database.SQLForm;
 import domain.Book;
 
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * This class is a mock controller implementation used for testing the
@@ -12,6 +21,14 @@ import java.util.ArrayList;
  */
 public class MockController implements IBookController {
     private final LibraryCore libraryCore;
+    /** Final progress of the last import.*/
+    private ImportProgress lastProgress;
+    /** Books sent as added through applyChanges.*/
+    private final List<Book> addedBooks = new ArrayList<>();
+    /** Books sent as updated through applyChanges.*/
+    private final List<Book> updatedBooks = new ArrayList<>();
+    /** Number of times the collection was to be read again.*/
+    private int reloads;
 
     public MockController(LibraryCore libraryCore) {
         this.libraryCore = libraryCore;
@@ -24,12 +41,137 @@ public class MockController implements IBookController {
      * @return Int number of rows affected.
      */
     public int addBooksFromFile(String path) {
-        int numberBooksBefore = libraryCore.getLibraryBooks().size();
+        int numberBooksBefore = libraryCore.getLibraryBookCount();
         libraryCore.getBooksFromTextFile(path, this);
-        int numberBooksAfter = libraryCore.getLibraryBooks().size();
+        int numberBooksAfter = libraryCore.getLibraryBookCount();
         return numberBooksAfter - numberBooksBefore;
     }
 
+    /**
+     * Attempts to add books to the database from an external text file
+     * by importing it as a stream, whatever its size.
+     * @param path String absolute path to a text file.
+     * @return Int number of rows affected.
+     */
+    public int importBooksFromFile(String path) {
+        libraryCore.setStreamingThreshold(0);
+        try {
+            return addBooksFromFile(path);
+        } finally {
+            libraryCore.setStreamingThreshold(LibraryCore.DEFAULT_STREAMING_THRESHOLD);
+        }
+    }
+
+    /**
+     * Attempts to import books into the database from an external text file
+     * as a stream, stopping if the provided token is cancelled.
+     * @param path String absolute path to a text file.
+     * @param token CancellationToken used to stop the import.
+     * @return Int number of rows affected.
+     */
+    public int importBooksFromFile(String path, CancellationToken token) {
+        int numberBooksBefore = libraryCore.getLibraryBookCount();
+        ImportPreview preview = libraryCore.previewBooks(path);
+        if (preview == null) {
+            return 0;
+        }
+        libraryCore.importBooksFromTextFile(preview, token, this);
+        int numberBooksAfter = libraryCore.getLibraryBookCount();
+        return numberBooksAfter - numberBooksBefore;
+    }
+
+    /**
+     * Attempts to add books to the database from an external database
+     * by importing its table as a stream, whatever its size.
+     * @param form SQLForm describing the external database.
+     * @return Int number of rows affected.
+     */
+    public int importBooksFromDatabase(SQLForm form) {
+        return importBooksFromDatabase(form, true);
+    }
+
+    /**
+     * Attempts to add books to the database from an external database
+     * by importing its table as a stream, whatever its size.
+     * @param form SQLForm describing the external database.
+     * @param attachSqlite True to copy tables of SQLite databases by attaching the database,
+     * false to read them through the application.
+     * @return Int number of rows affected.
+     */
+    public int importBooksFromDatabase(SQLForm form, boolean attachSqlite) {
+        int numberBooksBefore = libraryCore.getLibraryBookCount();
+        libraryCore.setDatabaseStreamingThreshold(0);
+        libraryCore.setAttachSqliteSources(attachSqlite);
+        try {
+            libraryCore.getBooksFromDatabase(form, this);
+        } finally {
+            libraryCore.setDatabaseStreamingThreshold(LibraryCore.DEFAULT_DATABASE_STREAMING_THRESHOLD);
+            libraryCore.setAttachSqliteSources(true);
+        }
+        int numberBooksAfter = libraryCore.getLibraryBookCount();
+        return numberBooksAfter - numberBooksBefore;
+    }
+
+    /**
+     * Attempts to sync books from an external database, adding or updating
+     * the rows changed since the last sync of its table.
+     * @param form SQLForm describing the external database and its watermark column.
+     * @return Long number of books added or updated, or -1 if the sync did not finish.
+     */
+    public long syncBooksFromDatabase(SQLForm form) {
+        InsertStatistics statistics = libraryCore.syncBooksFromDatabase(form, new CancellationToken(), this);
+        return statistics == null ? -1 : statistics.getRowsInserted();
+    }
+
+    /**
+     * Counts the books in the library database.
+     * @return Int number of books.
+     */
+    public int getLibraryBookCount() {
+        return libraryCore.getLibraryBookCount();
+    }
+
+    /**
+     * Looks up a book in the library database given a title.
+     * @param title String title of book to find.
+     * @return Book with the title, or null if there is none.
+     */
+    public Book findBookByTitle(String title) {
+        return libraryCore.findBookByTitle(title);
+    }
+
+    /**
+     * Provides the final progress of the last import.
+     * @return ImportProgress of the last import, or null if no import has finished.
+     */
+    public ImportProgress getLastProgress() {
+        return lastProgress;
+    }
+
+    /**
+     * Provides the books sent as added through applyChanges, in the order they were sent.
+     * @return Book List of added books.
+     */
+    public List<Book> getAddedBooks() {
+        return addedBooks;
+    }
+
+    /**
+     * Counts the times the collection was to be read again instead of patched.
+     * @return Int number of reloads.
+     */
+    public int getReloads() {
+        return reloads;
+    }
+
+    /**
+     * Provides the books sent as updated through applyChanges, in the order they were sent.
+     * @return Book List of updated books.
+     */
+    public List<Book> getUpdatedBooks() {
+        return updatedBooks;
+    }
+
     /**
      * Attempts to remove a book from the library database given a
      * title.
@@ -37,13 +179,13 @@ public class MockController implements IBookController {
      * @return Int number of rows affected.
      */
     public int removeBookByTitle(String title) {
-        int numberBooksBefore = libraryCore.getLibraryBooks().size();
+        int numberBooksBefore = libraryCore.getLibraryBookCount();
         Book book = libraryCore.findBookByTitle(title);
         if (book == null) {
             return 0;
         }
         libraryCore.removeBookFromCollection(book, this);
-        int numberBooksAfter = libraryCore.getLibraryBooks().size();
+        int numberBooksAfter = libraryCore.getLibraryBookCount();
 
         return numberBooksBefore - numberBooksAfter;
     }
@@ -55,7 +197,7 @@ public class MockController implements IBookController {
      * @return Int number of rows affected.
      */
     public int removeBookByBarcode(String barcode) {
-        int numberBooksBefore = libraryCore.getLibraryBooks().size();
+        int numberBooksBefore = libraryCore.getLibraryBookCount();
         Book book;
 
         try {
@@ -69,7 +211,7 @@ public class MockController implements IBookController {
             return 0;
         }
         libraryCore.removeBookFromCollection(book, this);
-        int numberBooksAfter = libraryCore.getLibraryBooks().size();
+        int numberBooksAfter = libraryCore.getLibraryBookCount();
 
         return numberBooksBefore - numberBooksAfter;
     }
@@ -104,6 +246,42 @@ public class MockController implements IBookController {
         return libraryCore.findBookByTitle(title);
     }
 
+    /**
+     * Attempts to check out several books together and update their
+     * checked states in the database.
+     * @param titles String titles of books to check out.
+     * @return CirculationResult List with the outcome for each book found.
+     */
+    public List<CirculationResult> checkOutBooks(String... titles) {
+        return libraryCore.checkOutBooks(findBooks(titles), this);
+    }
+
+    /**
+     * Attempts to check in several books together and update their
+     * checked states in the database.
+     * @param titles String titles of books to check in.
+     * @return CirculationResult List with the outcome for each book found.
+     */
+    public List<CirculationResult> checkInBooks(String... titles) {
+        return libraryCore.checkInBooks(findBooks(titles), this);
+    }
+
+    /**
+     * Looks up books by title, skipping titles that are not in the library.
+     * @param titles String titles of books to find.
+     * @return Book List of books found.
+     */
+    private List<Book> findBooks(String... titles) {
+        List<Book> books = new ArrayList<>();
+        for (String title : titles) {
+            Book book = libraryCore.findBookByTitle(title);
+            if (book != null) {
+                books.add(book);
+            }
+        }
+        return books;
+    }
+
     @Override
     public void invokeMessage(String message) {
     }
@@ -116,10 +294,25 @@ public class MockController implements IBookController {
     public void invokeDeleteConfirmation(String message, Book book) {
     }
 
+    @Override
+    public void invokeBulkDeleteConfirmation(String message, BookFilter filter) {
+    }
+
     @Override
     public void updateContent(ArrayList<Book> updatedBooks) {
     }
 
+    @Override
+    public void applyChanges(BookChanges changes) {
+        addedBooks.addAll(changes.getAddedBooks());
+        updatedBooks.addAll(changes.getUpdatedBooks());
+    }
+
+    @Override
+    public void reloadContent() {
+        reloads++;
+    }
+
     /**
      * Adds new books to the library database.
      * @param newBooks Book ArrayList representing new books to add to library.
@@ -128,4 +321,24 @@ public class MockController implements IBookController {
     public void invokePreview(ArrayList<Book> newBooks) {
         libraryCore.addBooksToDatabase(newBooks, this);
     }
-}
+
+    /**
+     * Imports the previewed text file or table into the library database.
+     * @param preview ImportPreview describing the text file or table.
+     */
+    @Override
+    public void invokeImportPreview(ImportPreview preview) {
+        libraryCore.importBooks(preview, new CancellationToken(), this);
+    }
+
+    /**
+     * Keeps the final progress of an import.
+     * @param progress ImportProgress describing how far the import has come.
+     */
+    @Override
+    public void updateProgress(ImportProgress progress) {
+        if (progress.isFinished()) {
+            lastProgress = progress;
+        }
+    }
+}
\ No newline at end of file
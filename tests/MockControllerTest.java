@@ -1,10 +1,44 @@
+import application.CirculationResult;
+import application.BookImportPipeline;
+import application.BookLineParser;
+import application.CancellationToken;
 import application.LibraryCore;
+import application.MappedBookReader;
+import application.ParallelBookReader;
+import controller.BackgroundTasks;
+import database.AttachedBookImporter;
+import database.DatabaseManager;
+import database.ExternalConnectionCache;
+import database.ExternalSQLHandler;
+import database.SQLForm;
+import database.SQLSourceType;
+import database.SyncWatermark;
 import domain.Book;
 import domain.BookStatus;
 import org.junit.jupiter.api.DisplayName;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -15,14 +49,20 @@ import static org.junit.jupiter.api.Assertions.*;
  */
 class MockControllerTest {
 
+    LibraryCore libraryCore;
     MockController mockController;
 
     @org.junit.jupiter.api.BeforeEach
     void setUp() {
-        LibraryCore libraryCore = new LibraryCore(StandardCharsets.UTF_8);
+        libraryCore = new LibraryCore(StandardCharsets.UTF_8);
         mockController = new MockController(libraryCore);
     }
 
+    @org.junit.jupiter.api.AfterEach
+    void tearDown() {
+        libraryCore.close();
+    }
+
     /**
      * Test ability to add books from a user-given text file
      * @outcome Actual number of books added will equal the expected number of books added
@@ -37,6 +77,649 @@ class MockControllerTest {
         assertEquals(expectedBooksAdded, actualBooksAdded);
     }
 
+    /**
+     * Test ability to import books from a user-given text file as a stream
+     * @outcome Actual number of books added will equal the expected number of books added,
+     * and the added books are sent to the controller
+     */
+    @org.junit.jupiter.api.Test
+    @DisplayName("Import Books From File Test")
+    void importBooksFromFile() {
+        String path = "./tests/test-books.txt";
+        int expectedBooksAdded = 4;
+        int actualBooksAdded = mockController.importBooksFromFile(path);
+
+        assertEquals(expectedBooksAdded, actualBooksAdded);
+        assertEquals(expectedBooksAdded, mockController.getAddedBooks().size());
+        for (Book book : mockController.getAddedBooks()) {
+            assertNotEquals(-1, book.getBarcode());
+        }
+    }
+
+    /**
+     * Test ability to cancel an import from a user-given text file
+     * @outcome No books are added once the import is cancelled, and the final progress is reported
+     */
+    @org.junit.jupiter.api.Test
+    @DisplayName("Cancel Import Test")
+    void cancelImport() {
+        String path = "./tests/test-books.txt";
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+
+        int actualBooksAdded = mockController.importBooksFromFile(path, token);
+
+        assertEquals(0, actualBooksAdded);
+        assertNotNull(mockController.getLastProgress());
+        assertEquals(0, mockController.getLastProgress().getRowsInserted());
+    }
+
+    /**
+     * Test ability to resume an import that stopped partway through a user-given text file
+     * @outcome Importing the file again adds only the books after the last commit, so every line is added once
+     */
+    @org.junit.jupiter.api.Test
+    @DisplayName("Resume Import Test")
+    void resumeImport() throws IOException {
+        int lineCount = 2500;
+        Path path = Files.createTempFile("resume-books", ".txt");
+        Path libraryPath = Files.createTempFile("resume-library", ".db");
+
+        try {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < lineCount; i++) {
+                text.append("Resume Test ").append(i).append(",Author,Genre,CHECKED_IN,NULL\r\n");
+            }
+            Files.write(path, text.toString().getBytes(StandardCharsets.UTF_8));
+
+            DatabaseManager databaseManager = new DatabaseManager(libraryPath.toString());
+            databaseManager.setInsertChunkSize(100);
+            databaseManager.setCommitInterval(1);
+            try (LibraryCore resumingCore = new LibraryCore(StandardCharsets.UTF_8, databaseManager)) {
+                resumingCore.setParallelism(1);
+                MockController controller = new MockController(resumingCore);
+
+                // Stops the import once the first batch has been inserted and committed
+                CancellationToken token = new CancellationToken() {
+                    private int checks;
+
+                    @Override
+                    public void throwIfCancelled() {
+                        if (++checks == 2) {
+                            cancel();
+                        }
+                        super.throwIfCancelled();
+                    }
+                };
+
+                int firstBooksAdded = controller.importBooksFromFile(path.toString(), token);
+                int resumedBooksAdded = controller.importBooksFromFile(path.toString(), new CancellationToken());
+
+                assertEquals(BookImportPipeline.DEFAULT_BATCH_SIZE, firstBooksAdded);
+                assertEquals(lineCount, firstBooksAdded + resumedBooksAdded);
+                assertNotNull(resumingCore.findBookByTitle("Resume Test " + firstBooksAdded));
+                assertEquals(lineCount, resumingCore.getLibraryBookCount());
+            }
+        } finally {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(libraryPath);
+        }
+    }
+
+    /**
+     * Test ability to skip books whose title and author are already in the library
+     * @outcome Copies differing only in case and spacing are added once, and importing the file again adds nothing
+     */
+    @org.junit.jupiter.api.Test
+    @DisplayName("Skip Duplicates Test")
+    void skipDuplicates() throws IOException {
+        String title = "Duplicate Test " + System.nanoTime();
+        Path path = Files.createTempFile("duplicate-books", ".txt");
+
+        try {
+            Files.write(path, Arrays.asList(
+                    title + ",Some Author,Genre,CHECKED_IN,NULL",
+                    " " + title.toUpperCase() + ",Some  Author,Genre,CHECKED_OUT,2024-03-29",
+                    title + " Sequel,Some Author,Genre,CHECKED_IN,NULL"), StandardCharsets.UTF_8);
+
+            try (LibraryCore deduplicatingCore = new LibraryCore(StandardCharsets.UTF_8)) {
+                deduplicatingCore.setSkipDuplicates(true);
+                MockController controller = new MockController(deduplicatingCore);
+
+                assertEquals(2, controller.addBooksFromFile(path.toString()));
+                assertEquals(0, controller.importBooksFromFile(path.toString()));
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Test ability to report a page of the library that cannot be read
+     * @outcome Reading the page fails instead of returning a page cut short, and reading every book returns null
+     */
+    @org.junit.jupiter.api.Test
+    @DisplayName("Failed Page Read Test")
+    void reportFailedPageRead() throws IOException, SQLException {
+        Path path = Files.createTempFile("corrupt-library", ".db");
+
+        try (DatabaseManager databaseManager = new DatabaseManager(path.toString())) {
+            // A row no book can be created from stands in for a query failing partway through the collection
+            try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + path);
+                 Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA ignore_check_constraints = ON");
+                statement.execute("INSERT INTO books (title, author, genre, book_status) " +
+                        "VALUES ('Readable', 'Author', 'Genre', 'CHECKED_IN'), ('Lost', 'Author', 'Genre', 'LOST')");
+            }
+
+            assertThrows(SQLException.class, () -> databaseManager.getBooksPage(DatabaseManager.BEFORE_FIRST_BARCODE, 10));
+            assertNull(databaseManager.getAllBooks());
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Test ability to import books from a user-given SQLite database as a stream
+     * @outcome Every row with a valid book status is added, and rows with an invalid status are skipped.
+     * More books are added than a page holds, so the controller reads the collection again instead of
+     * being sent every book
+     */
+    @org.junit.jupiter.api.Test
+    @DisplayName("Stream Books From Database Test")
+    void importBooksFromDatabase() throws IOException, SQLException {
+        int rowCount = 2500;
+        Path path = Files.createTempFile("external-books", ".db");
+        Path libraryPath = Files.createTempFile("stream-library", ".db");
+
+        try (LibraryCore streamingCore = new LibraryCore(StandardCharsets.UTF_8,
+                new DatabaseManager(libraryPath.toString()))) {
+            MockController controller = new MockController(streamingCore);
+            createExternalBooks(path, rowCount);
+            SQLForm form = new SQLForm(SQLSourceType.SQLITE, "vendor_books", path.toString());
+
+            assertEquals(rowCount, controller.importBooksFromDatabase(form, false));
+            assertEquals(rowCount + 1, controller.getLastProgress().getRowsRead());
+            assertEquals(1, controller.getLastProgress().getRowsRejected());
+            assertEquals(rowCount, streamingCore.getLibraryBookCount());
+            assertTrue(controller.getAddedBooks().isEmpty());
+            assertEquals(1, controller.getReloads());
+        } finally {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(libraryPath);
+        }
+    }
+
+    /**
+     * Test ability to copy an attached table in chunks when its rowids are far apart
+     * @outcome Every chunk holds the chunk size of rows until the last, whatever the gaps between rowids,
+     * and every row is read once
+     */
+    @org.junit.jupiter.api.Test
+    @DisplayName("Attached Chunk Import Test")
+    void importAttachedDatabaseInChunks() throws IOException, SQLException {
+        Path libraryPath = Files.createTempFile("chunked-library", ".db");
+        Path path = Files.createTempFile("sparse-books", ".db");
+
+        try (DatabaseManager databaseManager = new DatabaseManager(libraryPath.toString())) {
+            try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + path);
+                 Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE sparse_books (id INTEGER PRIMARY KEY, title VARCHAR(100), " +
+                        "author VARCHAR(50), genre VARCHAR(50), book_status VARCHAR(20), due_date DATE)");
+
+                try (PreparedStatement insert = connection.prepareStatement(
+                        "INSERT INTO sparse_books VALUES (?, ?, 'Sparse Author', 'Genre', ?, NULL)")) {
+                    for (int i = 0; i < 25; i++) {
+                        // Rowids span the whole range, with gaps far larger than a chunk
+                        long id = i == 0 ? Long.MIN_VALUE : i == 24 ? Long.MAX_VALUE : i * 1_000_000_000_000L;
+                        insert.setLong(1, id);
+                        insert.setString(2, "Sparse Book " + i);
+                        insert.setString(3, i == 12 ? "LOST" : "CHECKED_IN");
+                        insert.executeUpdate();
+                    }
+                }
+            }
+
+            databaseManager.setAttachedChunkRows(10);
+            List<Long> rowsRead = new ArrayList<>();
+            try (AttachedBookImporter importer =
+                         databaseManager.openAttachedImport(path.toString(), "sparse_books")) {
+                while (importer.copyNextChunk()) {
+                    rowsRead.add(importer.getRowsRead());
+                }
+                assertFalse(importer.copyNextChunk());
+                assertEquals(1, importer.getRowsRejected());
+            }
+
+            assertEquals(Arrays.asList(10L, 20L, 25L), rowsRead);
+            assertEquals(24, databaseManager.countBooks());
+        } finally {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(libraryPath);
+        }
+    }
+
+    /**
+     * Test ability to import the table of an external SQLite database by copying its rows inside SQLite
+     * @outcome Rows with a valid book status and due date are added, blank due dates are cleared, and rows
+     * with an invalid status or date are rejected
+     */
+    @org.junit.jupiter.api.Test
+    @DisplayName("Attached Database Import Test")
+    void importBooksByAttachingDatabase() throws IOException, SQLException {
+        int rowCount = 1000;
+        Path path = Files.createTempFile("external-books", ".db");
+        String prefix = "Attached Book " + path.getFileName() + " ";
+        Path libraryPath = Files.createTempFile("attached-library", ".db");
+
+        try (LibraryCore attachingCore = new LibraryCore(StandardCharsets.UTF_8,
+                new DatabaseManager(libraryPath.toString()))) {
+            MockController controller = new MockController(attachingCore);
+            try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + path);
+                 Statement statement = connection.createStatement()) {
+                // The table name needs quoting, and is looked up without regard to letter case
+                statement.execute("CREATE TABLE \"Vendor \"\"Books\"\"\" (title VARCHAR(100), " +
+                        "author VARCHAR(50), genre VARCHAR(50), book_status VARCHAR(20), due_date DATE)");
+
+                connection.setAutoCommit(false);
+                try (PreparedStatement insert = connection.prepareStatement(
+                        "INSERT INTO \"Vendor \"\"Books\"\"\" VALUES (?, 'Vendor Author', 'Genre', ?, ?)")) {
+                    for (int i = 0; i < rowCount; i++) {
+                        insert.setString(1, prefix + i);
+                        insert.setString(2, "CHECKED_IN");
+                        insert.setString(3, null);
+                        insert.addBatch();
+                    }
+
+                    String[][] rows = {
+                            {"Blank Date", "CHECKED_IN", " "},
+                            {"Due", "CHECKED_OUT", "2024-05-01"},
+                            {"Lowercase Status", "checked_in", null},
+                            {"Invalid Date", "CHECKED_OUT", "2024-02-30"}
+                    };
+                    for (String[] row : rows) {
+                        insert.setString(1, prefix + row[0]);
+                        insert.setString(2, row[1]);
+                        insert.setString(3, row[2]);
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                }
+                connection.commit();
+            }
+
+            SQLForm form = new SQLForm(SQLSourceType.SQLITE, "vendor \"books\"", path.toString());
+
+            assertEquals(rowCount + 2, controller.importBooksFromDatabase(form, true));
+            assertEquals(1, controller.getReloads());
+            assertEquals(rowCount + 2, attachingCore.getLibraryBookCount());
+            assertEquals(rowCount + 4, controller.getLastProgress().getRowsRead());
+            assertEquals(2, controller.getLastProgress().getRowsRejected());
+            assertEquals("", controller.findBookByTitle(prefix + "Blank Date").getDueDate());
+            assertEquals("2024-05-01", controller.findBookByTitle(prefix + "Due").getDueDate());
+            assertNull(controller.findBookByTitle(prefix + "Invalid Date"));
+        } finally {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(libraryPath);
+        }
+    }
+
+    /**
+     * Test ability to read the table of an external database as several key ranges at once
+     * @outcome Books read over several connections, including the row without a key, will match books read as one stream,
+     * and a key column holding text or decimal keys is read as one stream instead
+     */
+    @org.junit.jupiter.api.Test
+    @DisplayName("Partitioned Database Read Test")
+    void readBooksFromDatabaseInPartitions() throws IOException, SQLException, InterruptedException {
+        int rowCount = 2500;
+        Path path = Files.createTempFile("external-books", ".db");
+
+        try {
+            createExternalBooks(path, rowCount);
+
+            SQLForm form = new SQLForm(SQLSourceType.SQLITE, "vendor_books", path.toString());
+            form.setKeyColumn("book_id");
+            ExternalSQLHandler handler = new ExternalSQLHandler();
+
+            List<String> streamedTitles = new ArrayList<>();
+            handler.streamBooks(form, 100, books -> books.forEach(book -> streamedTitles.add(book.getTitle())));
+
+            List<String> partitionedTitles = new ArrayList<>();
+            handler.streamBooksPartitioned(form, 7, 3, 100,
+                    books -> books.forEach(book -> partitionedTitles.add(book.getTitle())));
+
+            Collections.sort(streamedTitles);
+            Collections.sort(partitionedTitles);
+            assertEquals(rowCount, streamedTitles.size());
+            assertEquals(streamedTitles, partitionedTitles);
+            assertEquals(rowCount + 1, handler.getRowsRead());
+            assertEquals(1, handler.getRowsRejected());
+
+            // Text and decimal keys fall outside every integer range, so the table is read whole
+            try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + path);
+                 Statement statement = connection.createStatement()) {
+                statement.execute("UPDATE vendor_books SET book_id = 'key-' || book_id WHERE book_id % 10 = 0");
+                statement.execute("UPDATE vendor_books SET book_id = book_id + 0.5 WHERE book_id % 10 = 5");
+            }
+
+            List<String> mixedKeyTitles = new ArrayList<>();
+            handler.streamBooksPartitioned(form, 7, 3, 100,
+                    books -> books.forEach(book -> mixedKeyTitles.add(book.getTitle())));
+
+            Collections.sort(mixedKeyTitles);
+            assertEquals(streamedTitles, mixedKeyTitles);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Test ability to sync only the rows of an external table changed since the last sync
+     * @outcome Batches stay bounded when many rows share a watermark, every row is added by the first sync,
+     * and the controller reads the collection again, changed rows are updated in place and new rows added
+     * by the second and sent to the controller, and nothing is synced by the third
+     */
+    @org.junit.jupiter.api.Test
+    @DisplayName("Incremental Database Sync Test")
+    void syncBooksFromDatabase() throws IOException, SQLException, InterruptedException {
+        int rowCount = 1500;
+        Path path = Files.createTempFile("partner-books", ".db");
+        String url = "jdbc:sqlite:" + path;
+        Path libraryPath = Files.createTempFile("sync-library", ".db");
+
+        try (LibraryCore syncingCore = new LibraryCore(StandardCharsets.UTF_8,
+                new DatabaseManager(libraryPath.toString()))) {
+            MockController controller = new MockController(syncingCore);
+            try (Connection connection = DriverManager.getConnection(url);
+                 Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE partner_books (book_id INTEGER, title VARCHAR(100), " +
+                        "author VARCHAR(50), genre VARCHAR(50), book_status VARCHAR(20), due_date DATE, " +
+                        "updated_at TEXT)");
+
+                connection.setAutoCommit(false);
+                try (PreparedStatement insert = connection.prepareStatement(
+                        "INSERT INTO partner_books VALUES (?, ?, 'Partner Author', 'Genre', 'CHECKED_IN', NULL, ?)")) {
+                    for (int i = 0; i < rowCount; i++) {
+                        insert.setInt(1, i);
+                        insert.setString(2, "Partner Book " + path.getFileName() + " " + i);
+                        // The first 1,200 rows share one timestamp, more than a batch holds
+                        insert.setString(3, String.format("2024-01-01 %02d:00:00", Math.max(0, i - 1100) / 100));
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                }
+                connection.commit();
+            }
+
+            SQLForm form = new SQLForm(SQLSourceType.SQLITE, "partner_books", path.toString());
+            form.setKeyColumn("book_id");
+            form.setWatermarkColumn("updated_at");
+
+            // Ties are broken by the key column, so batches stay bounded and resume inside a timestamp
+            List<Integer> batchSizes = new ArrayList<>();
+            ExternalSQLHandler handler = new ExternalSQLHandler();
+            handler.streamChanges(form, null, 300, (books, sourceRows, watermark) -> batchSizes.add(books.size()));
+            assertEquals(Arrays.asList(300, 300, 300, 300, 300), batchSizes);
+            batchSizes.clear();
+            handler.streamChanges(form, new SyncWatermark("2024-01-01 00:00:00", 599L), 300,
+                    (books, sourceRows, watermark) -> batchSizes.add(books.size()));
+            assertEquals(Arrays.asList(300, 300, 300), batchSizes);
+
+            // More books are synced than a page holds, so the controller reads the collection again
+            assertEquals(rowCount, controller.syncBooksFromDatabase(form));
+            assertEquals(rowCount, controller.getLibraryBookCount());
+            assertEquals(1, controller.getReloads());
+            assertTrue(controller.getAddedBooks().isEmpty());
+
+            String updatedTitle = "Revised Partner Book " + path.getFileName();
+            try (Connection connection = DriverManager.getConnection(url);
+                 Statement statement = connection.createStatement()) {
+                statement.execute("UPDATE partner_books SET title = '" + updatedTitle + "' || book_id, " +
+                        "updated_at = '2024-02-01 00:00:00' WHERE book_id IN (3, 700, 1499)");
+                statement.execute("INSERT INTO partner_books VALUES (1500, 'New Partner Book', 'Partner Author', " +
+                        "'Genre', 'CHECKED_IN', NULL, '2024-02-01 00:00:00'), (1501, 'Other Partner Book', " +
+                        "'Partner Author', 'Genre', 'CHECKED_IN', NULL, '2024-02-02 00:00:00')");
+            }
+
+            assertEquals(5, controller.syncBooksFromDatabase(form));
+            assertEquals(rowCount + 2, controller.getLibraryBookCount());
+            assertNotNull(controller.findBookByTitle(updatedTitle + 700));
+            assertEquals(2, controller.getAddedBooks().size());
+            assertEquals(3, controller.getUpdatedBooks().size());
+            assertTrue(controller.getUpdatedBooks().stream()
+                    .allMatch(book -> book.getTitle().startsWith(updatedTitle)));
+
+            assertEquals(0, controller.syncBooksFromDatabase(form));
+            assertEquals(rowCount + 2, controller.getLibraryBookCount());
+            assertEquals(1, controller.getReloads());
+        } finally {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(libraryPath);
+        }
+    }
+
+    /**
+     * Test ability to reuse connections to an external database between reads
+     * @outcome Repeated reads of a source share one warm connection, which cannot be unwrapped,
+     * and the least recently used source is dropped once the cache is full
+     */
+    @org.junit.jupiter.api.Test
+    @DisplayName("External Connection Cache Test")
+    void reuseExternalConnections() throws IOException, SQLException, InterruptedException {
+        Path path = Files.createTempFile("external-books", ".db");
+        Path otherPath = Files.createTempFile("other-books", ".db");
+
+        try (ExternalConnectionCache cache = new ExternalConnectionCache(1, 2, 60_000)) {
+            createExternalBooks(path, 100);
+            SQLForm form = new SQLForm(SQLSourceType.SQLITE, "vendor_books", path.toString());
+            ExternalSQLHandler handler = new ExternalSQLHandler(cache);
+
+            cache.getConnection(form).close();
+            assertEquals(101, handler.countBooks(form));
+            assertEquals(10, handler.previewBooks(form, 10).size());
+            assertEquals(1, cache.getOpenConnections(form));
+
+            // The physical connection is never handed out, so it cannot be closed behind the cache's back
+            try (Connection connection = cache.getConnection(form)) {
+                assertSame(connection, connection.unwrap(Connection.class));
+                assertFalse(connection.isWrapperFor(org.sqlite.SQLiteConnection.class));
+                assertThrows(SQLException.class, () -> connection.unwrap(org.sqlite.SQLiteConnection.class));
+            }
+            assertEquals(1, cache.getOpenConnections(form));
+
+            SQLForm otherForm = new SQLForm(SQLSourceType.SQLITE, "vendor_books", otherPath.toString());
+            cache.getConnection(otherForm).close();
+            assertEquals(1, cache.getSourceCount());
+            assertEquals(0, cache.getOpenConnections(form));
+        } finally {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(otherPath);
+        }
+    }
+
+    /**
+     * Test ability to cancel a slow query to an external database from another thread
+     * @outcome The running query stops long before it would finish, and later reads of the handler fail at once
+     */
+    @org.junit.jupiter.api.Test
+    @DisplayName("Cancel External Query Test")
+    void cancelExternalQuery() throws IOException, SQLException, InterruptedException {
+        Path path = Files.createTempFile("slow-books", ".db");
+
+        try {
+            // Counting the view walks a billion generated rows
+            try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + path);
+                 Statement statement = connection.createStatement()) {
+                statement.execute("CREATE VIEW slow_books AS WITH RECURSIVE n(x) AS " +
+                        "(SELECT 1 UNION ALL SELECT x + 1 FROM n LIMIT 1000000000) " +
+                        "SELECT 'Slow Book ' || x AS title, 'Author' AS author, 'Genre' AS genre, " +
+                        "'CHECKED_IN' AS book_status, NULL AS due_date FROM n");
+            }
+
+            SQLForm form = new SQLForm(SQLSourceType.SQLITE, "slow_books", path.toString());
+            ExternalSQLHandler handler = new ExternalSQLHandler();
+            AtomicLong rowCount = new AtomicLong();
+
+            Thread reader = new Thread(() -> rowCount.set(handler.countBooks(form)));
+            long start = System.nanoTime();
+            reader.start();
+            Thread.sleep(300);
+            handler.cancel();
+            reader.join(10_000);
+
+            assertFalse(reader.isAlive());
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+            assertEquals(-1, rowCount.get());
+            assertTrue(handler.previewBooks(form, 10).isEmpty());
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Creates an external SQLite database holding a table of books with an integer key.
+     * The first book has no key, and a final row with an invalid book status is added.
+     * @param path Path of the database file.
+     * @param rowCount Int number of books with a valid book status.
+     * @throws SQLException Thrown if the table cannot be created.
+     */
+    private void createExternalBooks(Path path, int rowCount) throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + path);
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE vendor_books (book_id INTEGER, title VARCHAR(100), " +
+                    "author VARCHAR(50), genre VARCHAR(50), book_status VARCHAR(20), due_date DATE)");
+
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO vendor_books VALUES (?, ?, 'Vendor Author', 'Genre', ?, NULL)")) {
+                for (int i = 0; i <= rowCount; i++) {
+                    if (i == 0) {
+                        insert.setNull(1, Types.INTEGER);
+                    } else {
+                        insert.setInt(1, i);
+                    }
+                    insert.setString(2, "Vendor Book " + i);
+                    insert.setString(3, i < rowCount ? "CHECKED_IN" : "LOST");
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            connection.commit();
+        }
+    }
+
+    /**
+     * Test ability to read books from a user-given text file on several threads
+     * @outcome Books read in parallel from small byte ranges will match books read line by line
+     */
+    @org.junit.jupiter.api.Test
+    @DisplayName("Parallel Read Test")
+    void readBooksInParallel() throws IOException {
+        Path path = Paths.get("./tests/test-books.txt");
+        ParallelBookReader reader = new ParallelBookReader(StandardCharsets.UTF_8, 4, 16);
+
+        assertSameBooks(readBooksLineByLine(path), reader.readBooks(path));
+    }
+
+    /**
+     * Test ability to read books from a user-given text file through memory mapped windows
+     * @outcome Books read from small mapped windows will match books read line by line
+     */
+    @org.junit.jupiter.api.Test
+    @DisplayName("Mapped Read Test")
+    void readBooksFromMappedFile() throws IOException {
+        Path path = Paths.get("./tests/test-books.txt");
+        MappedBookReader reader = new MappedBookReader(StandardCharsets.UTF_8, 100);
+
+        assertSameBooks(readBooksLineByLine(path), reader.readBooks(path));
+    }
+
+    /**
+     * Test ability to read books from a gzip compressed text file made of several members
+     * @outcome Books read from a file holding the test books compressed twice will match the test books twice
+     */
+    @org.junit.jupiter.api.Test
+    @DisplayName("Read Compressed File Test")
+    void readBooksFromCompressedFile() throws IOException {
+        Path path = Paths.get("./tests/test-books.txt");
+        Path compressedPath = Files.createTempFile("test-books", ".txt.gz");
+
+        try {
+            byte[] text = Files.readAllBytes(path);
+            try (OutputStream output = Files.newOutputStream(compressedPath)) {
+                for (int member = 0; member < 2; member++) {
+                    GZIPOutputStream gzip = new GZIPOutputStream(output);
+                    gzip.write(text);
+                    gzip.write('\n');
+                    gzip.finish();
+                }
+            }
+
+            List<Book> expectedBooks = new ArrayList<>(readBooksLineByLine(path));
+            expectedBooks.addAll(readBooksLineByLine(path));
+
+            assertSameBooks(expectedBooks, libraryCore.readBooks(compressedPath.toString()));
+        } finally {
+            Files.deleteIfExists(compressedPath);
+        }
+    }
+
+    /**
+     * Test ability to read titles containing semicolons, as the original regular expression allowed
+     * @outcome Titles with semicolons are read whole unless they end in one, and semicolons in other fields are rejected
+     */
+    @org.junit.jupiter.api.Test
+    @DisplayName("Semicolon Title Test")
+    void parseSemicolonTitles() {
+        BookLineParser parser = new BookLineParser();
+
+        Book book = parser.parse("A;B,auth,genre,CHECKED_IN,");
+        assertNotNull(book);
+        assertEquals("A;B", book.getTitle());
+        assertEquals("auth", book.getAuthor());
+
+        assertNotNull(parser.parse(";Leading,auth,genre,CHECKED_OUT,2024-03-29"));
+        assertNull(parser.parse("Trailing;,auth,genre,CHECKED_IN,"));
+        assertNull(parser.parse("Title,Last; First,genre,CHECKED_IN,"));
+        assertNull(parser.parse("Title,auth,genre;fiction,CHECKED_IN,"));
+    }
+
+    /**
+     * Reads books from a text file with a BufferedReader, one line at a time.
+     * @param path Path to the text file.
+     * @return Book List of books in the file.
+     * @throws IOException Thrown if the file cannot be read.
+     */
+    private List<Book> readBooksLineByLine(Path path) throws IOException {
+        List<Book> books = new ArrayList<>();
+        BookLineParser parser = new BookLineParser();
+
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            Book book = parser.parse(line);
+            if (book != null) {
+                books.add(book);
+            }
+        }
+        return books;
+    }
+
+    /**
+     * Asserts that two lists contain books with the same fields in the same order.
+     * @param expectedBooks Book List of expected books.
+     * @param actualBooks Book List of actual books.
+     */
+    private void assertSameBooks(List<Book> expectedBooks, List<Book> actualBooks) {
+        assertEquals(expectedBooks.size(), actualBooks.size());
+        for (int i = 0; i < expectedBooks.size(); i++) {
+            assertEquals(expectedBooks.get(i).getTitle(), actualBooks.get(i).getTitle());
+            assertEquals(expectedBooks.get(i).getAuthor(), actualBooks.get(i).getAuthor());
+            assertEquals(expectedBooks.get(i).getGenre(), actualBooks.get(i).getGenre());
+            assertEquals(expectedBooks.get(i).getBookStatus(), actualBooks.get(i).getBookStatus());
+            assertEquals(expectedBooks.get(i).getDueDate(), actualBooks.get(i).getDueDate());
+        }
+    }
+
     /**
      * Test ability to remove books from a user-provided book title.
      * @outcome Actual number of books removed should equal the expected number of books removed
@@ -93,4 +776,83 @@ class MockControllerTest {
         String expectedDate = LocalDate.now().plusWeeks(4).toString();
         assertEquals(expectedDate, book.getDueDate());
     }
-}
\ No newline at end of file
+
+    /**
+     * Test ability to check out and check in several books from user-provided titles at once
+     * @outcome Every book is checked out and then checked in. Checking out a book that is already checked out fails.
+     * The books provided are left unchanged, and the saved copies are sent to the controller.
+     */
+    @org.junit.jupiter.api.Test
+    @DisplayName("Batch Check Out and Check In Test")
+    void checkOutAndCheckInBooks() {
+        List<CirculationResult> checkedOut = mockController.checkOutBooks("Cinder", "Game Programming Patterns");
+
+        assertEquals(2, checkedOut.size());
+        for (CirculationResult result : checkedOut) {
+            assertTrue(result.isSuccessful());
+            assertEquals(BookStatus.CHECKED_OUT, result.getBook().getBookStatus());
+        }
+
+        List<CirculationResult> repeated = mockController.checkOutBooks("Cinder");
+        assertFalse(repeated.get(0).isSuccessful());
+
+        List<CirculationResult> checkedIn = mockController.checkInBooks("Cinder", "Game Programming Patterns");
+
+        for (CirculationResult result : checkedIn) {
+            assertTrue(result.isSuccessful());
+            assertEquals(BookStatus.CHECKED_IN, result.getBook().getBookStatus());
+            assertEquals("", result.getBook().getDueDate());
+        }
+
+        // A book the controller may be showing is replaced through applyChanges, never changed in place
+        Book shown = mockController.findBookByTitle("Cinder");
+        libraryCore.checkOutBook(shown, mockController);
+        assertEquals(BookStatus.CHECKED_IN, shown.getBookStatus());
+        assertEquals(BookStatus.CHECKED_OUT, mockController.findBookByTitle("Cinder").getBookStatus());
+        assertEquals(BookStatus.CHECKED_OUT, mockController.getUpdatedBooks()
+                .get(mockController.getUpdatedBooks().size() - 1).getBookStatus());
+
+        List<Book> shownBooks = Collections.singletonList(mockController.findBookByTitle("Cinder"));
+        libraryCore.checkInBooks(shownBooks, mockController);
+        assertEquals(BookStatus.CHECKED_OUT, shownBooks.get(0).getBookStatus());
+        assertEquals(BookStatus.CHECKED_IN, mockController.findBookByTitle("Cinder").getBookStatus());
+    }
+
+    /**
+     * Test ability to run changes to the library in the background in the order they were submitted
+     * @outcome Every change runs on the single writer thread in submission order, and read results
+     * are handed to the result executor
+     */
+    @org.junit.jupiter.api.Test
+    @DisplayName("Ordered Background Writes Test")
+    void runBackgroundWritesInOrder() throws InterruptedException {
+        List<Integer> applied = new ArrayList<>();
+        List<String> writerThreads = Collections.synchronizedList(new ArrayList<>());
+        List<Book> foundBooks = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch readDone = new CountDownLatch(1);
+
+        try (BackgroundTasks backgroundTasks = new BackgroundTasks(2, Runnable::run)) {
+            for (int i = 0; i < 1000; i++) {
+                int change = i;
+                backgroundTasks.write(() -> {
+                    applied.add(change);
+                    writerThreads.add(Thread.currentThread().getName());
+                });
+            }
+
+            backgroundTasks.read(() -> mockController.findBookByTitle("Cinder"), book -> {
+                foundBooks.add(book);
+                readDone.countDown();
+            });
+            assertTrue(readDone.await(10, TimeUnit.SECONDS));
+        }
+
+        assertEquals(1000, applied.size());
+        for (int i = 0; i < applied.size(); i++) {
+            assertEquals(i, applied.get(i));
+        }
+        assertEquals(1, new HashSet<>(writerThreads).size());
+        assertNotEquals(Thread.currentThread().getName(), writerThreads.get(0));
+        assertEquals("Cinder", foundBooks.get(0).getTitle());
+    }
+}
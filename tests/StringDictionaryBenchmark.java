@@ -0,0 +1,134 @@
+import domain.Book;
+import domain.BookStatus;
+import domain.StringDictionary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Measures the heap held by a synthetic catalog of books whose authors and genres are
+ * shared through StringDictionary, against the same catalog with a separate copy of
+ * every author and genre as Book held before. Each field is built as a new String, as
+ * parsing a file or reading a result set does. Prints the retained heap and the time
+ * taken to build both catalogs. Run from the project root with the project classes on
+ * the classpath and a heap large enough for the catalog, such as -Xmx2g. The number
+ * of books can be passed as the first argument.
+ * @author Elise Kidroske
+ */
+public class StringDictionaryBenchmark {
+    /** Number of books in the catalog unless another number is provided.*/
+    private static final int DEFAULT_BOOKS = 2_000_000;
+    /** Number of distinct genres in the catalog.*/
+    private static final int GENRES = 40;
+    /** Number of distinct authors in the catalog.*/
+    private static final int AUTHORS = 200_000;
+
+    /**
+     * Runs the benchmark.
+     * @param args String array of arguments from the command line.
+     * @throws InterruptedException Thrown if the benchmark is interrupted while waiting for garbage collection.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int bookCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_BOOKS;
+
+        long copied = measure("Separate copies", bookCount, i -> new CopiedBook(-1, title(i), author(i),
+                genre(i), BookStatus.CHECKED_IN, ""));
+        long shared = measure("Shared values", bookCount, i -> new Book(-1, title(i), author(i),
+                genre(i), BookStatus.CHECKED_IN, ""));
+
+        System.out.printf("Dictionaries hold %,d authors and %,d genres%n",
+                StringDictionary.AUTHORS.size(), StringDictionary.GENRES.size());
+        System.out.printf("Sharing saves %,d MB (%.0f%%), %,.0f bytes per book%n",
+                (copied - shared) >> 20, 100.0 * (copied - shared) / copied, (copied - shared) / (double) bookCount);
+    }
+
+    /**
+     * Builds a catalog and reports the heap it holds, including any dictionary entries it adds.
+     * @param name String name of the catalog printed with the results.
+     * @param bookCount Int number of books in the catalog.
+     * @param factory IntFunction building the book at an index.
+     * @return Long bytes of heap held by the catalog.
+     * @throws InterruptedException Thrown if interrupted while waiting for garbage collection.
+     */
+    private static long measure(String name, int bookCount, IntFunction<Object> factory) throws InterruptedException {
+        long before = usedHeap();
+        long start = System.nanoTime();
+
+        List<Object> catalog = new ArrayList<>(bookCount);
+        for (int i = 0; i < bookCount; i++) {
+            catalog.add(factory.apply(i));
+        }
+
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        long retained = usedHeap() - before;
+        System.out.printf("%s: %,d books hold %,d MB, built at %,.0f books/sec%n",
+                name, catalog.size(), retained >> 20, bookCount / seconds);
+
+        catalog.clear();
+        return retained;
+    }
+
+    /**
+     * Builds the title of a book. Every title is distinct.
+     * @param index Int index of the book.
+     * @return String new title.
+     */
+    private static String title(int index) {
+        return "Title of Book Number " + index;
+    }
+
+    /**
+     * Builds the author of a book as a new String, as a parser would.
+     * @param index Int index of the book.
+     * @return String new copy of one of the catalog's authors.
+     */
+    private static String author(int index) {
+        return "Author Name " + (index * 7919L % AUTHORS);
+    }
+
+    /**
+     * Builds the genre of a book as a new String, as a parser would.
+     * @param index Int index of the book.
+     * @return String new copy of one of the catalog's genres.
+     */
+    private static String genre(int index) {
+        return "Genre " + (index % GENRES);
+    }
+
+    /**
+     * Measures the heap in use after collecting garbage.
+     * @return Long bytes of heap in use.
+     * @throws InterruptedException Thrown if interrupted while waiting for garbage collection.
+     */
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Holds the same fields as Book without sharing authors and genres, as Book did before.
+     */
+    private static class CopiedBook {
+        private final int barcode;
+        private final String title;
+        private final String author;
+        private final String genre;
+        private final BookStatus bookStatus;
+        private final String dueDate;
+
+        private CopiedBook(int barcode, String title, String author, String genre,
+                           BookStatus bookStatus, String dueDate) {
+            this.barcode = barcode;
+            this.title = title;
+            this.author = author;
+            this.genre = genre;
+            this.bookStatus = bookStatus;
+            this.dueDate = dueDate;
+        }
+    }
+}